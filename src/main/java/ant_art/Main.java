@@ -1,19 +1,24 @@
 package ant_art;
 
 import ant_art.config.Configuration;
+import ant_art.config.SimulationParameters;
 import ant_art.entities.AntArea;
 import ant_art.exceptions.AntArtException;
 import ant_art.gui.Renderer;
+import ant_art.simulation.Ensemble;
+import ant_art.simulation.ParameterSweep;
+import ant_art.simulation.TickProfile;
+import ant_art.utils.ColorProfiler;
 import ant_art.utils.ImageUtils;
 import ant_art.utils.MarkovChain;
+import ant_art.utils.MarkovChainCache;
+import ant_art.utils.PalletRegistry;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -52,9 +57,11 @@ public class Main {
      */
     private static boolean checkAndCreateDefaultDirectories() {
         List<String> dirs = Arrays.asList(Configuration.Directories.INPUT,
-                Configuration.Directories.PALLETS, Configuration.Directories.PROCESSED, Configuration.Directories.OUTPUT
+                Configuration.Directories.PALLETS, Configuration.Directories.PROCESSED, Configuration.Directories.OUTPUT,
+                Configuration.Directories.CACHE
                 , Configuration.Directories.OUTPUT + "/" + Configuration.Directories.GIF_RELATIVE,
-                Configuration.Directories.OUTPUT + "/" + Configuration.Directories.RAW_RELATIVE
+                Configuration.Directories.OUTPUT + "/" + Configuration.Directories.RAW_RELATIVE,
+                Configuration.Directories.OUTPUT + "/" + Configuration.Directories.EVENT_LOG_RELATIVE
                 , Configuration.Directories.OUTPUT + "/" + Configuration.Directories.OIL_PAINTED_RELATIVE);
         for (String dir : dirs) {
             File dirObj = new File(dir);
@@ -66,6 +73,18 @@ public class Main {
         return true;
     }
 
+    /**
+     * Clip a value to a range
+     *
+     * @param value input value
+     * @param min   minimum value
+     * @param max   maximum value
+     * @return clipped value
+     */
+    private static int clip(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
     public static void main(String[] args) throws IOException, AntArtException {
         int targetColorCount = Configuration.DEFAULT_TARGET_COLOR_COUNT;
 
@@ -83,15 +102,17 @@ public class Main {
         File inputFile = getRandomFile(Configuration.Directories.INPUT);
         System.out.println(String.format("Working on file:%s\n", inputFile.getName()));
         BufferedImage image = ImageIO.read(inputFile);
-        image = ImageUtils.rescaleToLimit(image, Configuration.MAXIMUM_IMAGE_SIZE);
-        //If not able to rescale the image to a limit.
         if (image == null) {
-            System.out.println("Image size can't be processed.");
+            System.out.println(String.format("Not able to read the input image:%s", inputFile.getName()));
             System.exit(1);
         }
 
-        //Generate color profile from the image
-        Map<Color, Float> colorProfile = ImageUtils.colorProfile(image);
+        //Generate color profile from the original image. Ratios don't depend on the size so the image is profiled
+        //before rescaling where sampling pays off, and an image without usable colors is rejected before calibrating
+        //and training anything.
+        ColorProfiler.Profile profile = ColorProfiler.profile(image, Configuration.COLOR_FILTERING_LOWER_LIMIT,
+                Configuration.COLOR_FILTERING_HIGHER_LIMIT, Collections.singletonList(Configuration.Colors.DEFAULT));
+        Map<Color, Float> colorProfile = profile.getRatios();
         List<Color> colors = new ArrayList<>(colorProfile.keySet());
         for (Color color : colors) {
             //remove colors which are not withing an configured threshold
@@ -105,7 +126,8 @@ public class Main {
         //Sort map according to decreasing ratio of colors
         colorProfile = colorProfile.entrySet().stream().sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue())).
                 collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (e1, e2) -> e1, LinkedHashMap::new));
-        colorProfile.forEach((color, aFloat) -> System.out.println("Color:" + color + ", Percentage:" + aFloat));
+        colorProfile.forEach((color, aFloat) -> System.out.println("Color:" + color + ", Percentage:" + aFloat +
+                (profile.isExact() ? "" : " +/- " + profile.getMargin(color))));
         System.out.println();
 
         colors = new ArrayList<>(colorProfile.keySet());
@@ -135,26 +157,115 @@ public class Main {
 
         System.out.println(String.format("Target colors found:%s\n", targetColors));
 
+        //Pallets are scanned once. Training can start while the host is calibrated.
+        PalletRegistry palletRegistry = new PalletRegistry(Configuration.Directories.PALLETS,
+                Collections.singletonList(Configuration.Colors.DEFAULT),
+                new MarkovChainCache(Configuration.Directories.CACHE));
+        if (Configuration.PRELOAD_PALLETS) {
+            palletRegistry.preload();
+        }
+
+        //Fit the simulation to the speed of this host
+        int imageSizeLimit = Configuration.MAXIMUM_IMAGE_SIZE;
+        int fps = Configuration.GUI.FPS;
+        SimulationParameters parameters = SimulationParameters.DEFAULT;
+        if (Configuration.Calibration.TARGET != Configuration.Calibration.Target.NONE) {
+            TickProfile tickProfile = TickProfile.get(new File(Configuration.Directories.CACHE), parameters);
+            float headroom = Configuration.Calibration.HEADROOM;
+            switch (Configuration.Calibration.TARGET) {
+                case IMAGE_SIZE:
+                    int imageSize = tickProfile.getMaximumImageSize(fps, parameters.getMaxAnts(), targetColorCount,
+                            headroom);
+                    if (imageSize == 0) {
+                        System.out.println(String.format("WARNING!!! This host can't run any image at %s FPS. " +
+                                "Using the smallest image size. Consider reducing the FPS or the ants.", fps));
+                    }
+                    imageSizeLimit = clip(imageSize, Configuration.Calibration.MIN_IMAGE_SIZE,
+                            Configuration.MAXIMUM_IMAGE_SIZE);
+                    System.out.println(String.format("Calibrated image size:%s", imageSizeLimit));
+                    break;
+                case ANTS:
+                    int ants = tickProfile.getMaximumAnts(fps, imageSizeLimit, targetColorCount, headroom);
+                    if (ants == 0) {
+                        System.out.println(String.format("WARNING!!! This host can't run any ants at %s FPS. " +
+                                "Using the fewest ants. Consider reducing the FPS or the image size.", fps));
+                    }
+                    int maxAnts = clip(ants, Configuration.Calibration.MIN_ANTS, Configuration.Calibration.MAX_ANTS);
+                    parameters = new SimulationParameters(maxAnts, parameters.getPheromoneDecayRate(),
+                            parameters.getCellSize(), parameters.getAntSelectionSeed(),
+                            parameters.getIntensityAmplifier());
+                    System.out.println(String.format("Calibrated ants:%s", maxAnts));
+                    break;
+                case FPS:
+                    int maxFPS = tickProfile.getMaximumFPS(imageSizeLimit, parameters.getMaxAnts(), targetColorCount,
+                            headroom);
+                    if (maxFPS < Configuration.Calibration.MIN_FPS) {
+                        System.out.println(String.format("WARNING!!! This host can only run %s FPS. Using %s FPS. " +
+                                "The simulation may not keep up.", maxFPS, Configuration.Calibration.MIN_FPS));
+                    }
+                    fps = clip(maxFPS, Configuration.Calibration.MIN_FPS, Configuration.Calibration.MAX_FPS);
+                    System.out.println(String.format("Calibrated FPS:%s", fps));
+                    break;
+            }
+        }
+        image = ImageUtils.rescaleToLimit(image, imageSizeLimit);
+        //If not able to rescale the image to a limit.
+        if (image == null) {
+            System.out.println("Image size can't be processed.");
+            System.exit(1);
+        }
+
         //Select pallets to replace target colors
         MarkovChain[] chains = new MarkovChain[targetColorCount];
         for (int i = 0; i < targetColorCount; i++) {
-            //Selecting a pallet
-            File pallet = getRandomFile(Configuration.Directories.PALLETS);
-            System.out.println("Selected pallet:" + pallet.getName());
-            InputStream inputStream = new FileInputStream(pallet);
+            //Selecting a pallet. A pallet which can't be trained is replaced by another one.
+            while (chains[i] == null) {
+                String pallet = palletRegistry.getRandomName();
+                System.out.println("Selected pallet:" + pallet);
+
+                //Training markov chains. Already trained chains are loaded from the cache.
+                try {
+                    chains[i] = palletRegistry.get(pallet);
+                    System.out.println(String.format("Chain created for pallet: %s", pallet));
 
-            //Training markov chains
-            chains[i] = new MarkovChain(Collections.singletonList(Configuration.Colors.DEFAULT));
-            chains[i].train(ImageIO.read(inputStream));
-            System.out.println(String.format("Chain created for pallet: %s", pallet.getName()));
+                } catch (AntArtException e) {
+                    System.out.println(String.format("%s. Selecting another pallet.", e.getMessage()));
+                }
+            }
         }
         System.out.println();
 
+        if (Configuration.Sweep.ENABLED) {
+            List<SimulationParameters> settings = Configuration.Sweep.RANDOM_SAMPLES > 0 ?
+                    ParameterSweep.randomSearch(Configuration.Sweep.RANDOM_SAMPLES, Configuration.Sweep.MAX_ANTS,
+                            Configuration.Sweep.PHEROMONE_DECAY_RATES, Configuration.Sweep.CELL_SIZES,
+                            Configuration.Sweep.ANT_SELECTION_SEEDS, Configuration.Sweep.INTENSITY_AMPLIFIERS,
+                            new Random()) :
+                    ParameterSweep.grid(Configuration.Sweep.MAX_ANTS, Configuration.Sweep.PHEROMONE_DECAY_RATES,
+                            Configuration.Sweep.CELL_SIZES, Configuration.Sweep.ANT_SELECTION_SEEDS,
+                            Configuration.Sweep.INTENSITY_AMPLIFIERS);
+            System.out.println(String.format("Sweeping %s settings...", settings.size()));
+            //Input file is not moved as no outputs are generated
+            new ParameterSweep(chains, image, targetColors, Configuration.Sweep.RUNS_PER_SETTING, new Random().nextLong())
+                    .execute(settings, new File(Configuration.Directories.OUTPUT + "/" +
+                            Configuration.Sweep.RESULTS_RELATIVE)).join();
+            return;
+        }
+
+        if (Configuration.ENSEMBLE_RUNS > 1) {
+            System.out.println(String.format("Running %s simulations...", Configuration.ENSEMBLE_RUNS));
+            new Ensemble(chains, image, targetColors, inputFile, Configuration.ENSEMBLE_RUNS, new Random().nextLong())
+                    .execute().join();
+            System.out.println("Now you can LOOK the outputs");
+            return;
+        }
+
         //Create ant area
-        AntArea antArea = new AntArea(chains, image, targetColors, Configuration.Colors.DEFAULT);
+        AntArea antArea = new AntArea(chains, image, targetColors, Configuration.Colors.DEFAULT, new Random().nextLong(),
+                parameters);
         //Create the GUI
         System.out.println("Starting GUI...");
-        Renderer renderer = new Renderer(antArea, "Ant Simulator", Configuration.GUI.FPS, Configuration.GUI.DURATION,
+        Renderer renderer = new Renderer(antArea, "Ant Simulator", fps, Configuration.GUI.DURATION,
                 Configuration.GUI.SAMPLE_INTERVAL, inputFile);
         //Run the GUI
         renderer.execute();
@@ -0,0 +1,158 @@
+package ant_art.benchmark;
+
+import ant_art.config.Configuration;
+import ant_art.entities.AntArea;
+import ant_art.entities.BufferCellStore;
+import ant_art.entities.CellStore;
+import ant_art.entities.FixedPointCellStore;
+import ant_art.entities.HeapCellStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 12-05-2020 14:20
+ * Purpose: Compares the cell stores on the access patterns of a simulation. A sweep visits every cell in order like the
+ * pheromone decay, walkers move to a neighboring cell like ants and random visits jump anywhere in the area which shows
+ * the cost of touching a new page every time.
+ * Usage: GridBenchmark heap|fixed-point|off-heap|mapped [side of the area in cells] [walkers]
+ * Run a store per JVM. Calls to the store are slower after the JIT compiler has seen more than one kind of store.
+ **/
+public class GridBenchmark {
+    private static final int REPEATS = 3;
+    private static final int WALK_STEPS = 200;
+    private static final int RANDOM_VISITS = 1 << 22;
+
+    public static void main(String[] args) throws IOException {
+        String name = args.length > 0 ? args[0] : "heap";
+        int side = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+        int walkers = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        int cells = side * side;
+
+        System.gc();
+        long heapBefore = getUsedHeap();
+        CellStore store = create(name, cells);
+        long heapMB = (getUsedHeap() - heapBefore) >> 20;
+        initialize(store);
+
+        double sweep = Double.MAX_VALUE;
+        double walk = Double.MAX_VALUE;
+        double random = Double.MAX_VALUE;
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+            sweep = Math.min(sweep, sweep(store));
+            walk = Math.min(walk, walk(store, side, walkers, repeat));
+            random = Math.min(random, visitRandomly(store, repeat));
+        }
+        store.close();
+        System.out.println("store,cells,walkers,heap_mb,sweep_ns_per_cell,walk_ns_per_step,random_ns_per_visit");
+        System.out.println(String.format("%s,%s,%s,%s,%.2f,%.2f,%.2f", name, cells, walkers, heapMB, sweep, walk,
+                random));
+    }
+
+    private static CellStore create(String name, int cells) throws IOException {
+        switch (name) {
+            case "fixed-point":
+                return new FixedPointCellStore(cells, 0.995f);
+            case "off-heap":
+                return BufferCellStore.allocateDirect(cells);
+            case "mapped":
+                File directory = new File(Configuration.Grid.SCRATCH);
+                if (!directory.exists() && !directory.mkdirs()) {
+                    throw new IOException("Not able to create the scratch directory:" + directory);
+                }
+                return BufferCellStore.map(cells, directory);
+            default:
+                return new HeapCellStore(cells);
+        }
+    }
+
+    private static long getUsedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Make every cell a default cell with some pheromone
+     */
+    private static void initialize(CellStore store) {
+        for (int i = 0; i < store.size(); i++) {
+            store.setType(i, AntArea.CellType.DEFAULT);
+            store.setFoodPheromone(i, i % 50);
+            store.setHomePheromone(i, i % 30);
+            store.setFoodId(i, -1);
+        }
+    }
+
+    /**
+     * Decay the pheromone of every cell in order
+     *
+     * @return nanoseconds per cell
+     */
+    private static double sweep(CellStore store) {
+        long start = System.nanoTime();
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getType(i) != AntArea.CellType.DEFAULT) {
+                continue;
+            }
+            store.decayPheromones(i, 0.995f, 0.01f);
+        }
+        return (double) (System.nanoTime() - start) / store.size();
+    }
+
+    /**
+     * Move walkers to the neighbor with the most pheromone out of three like the ants do. Cells are column major.
+     *
+     * @return nanoseconds per step of a walker
+     */
+    private static double walk(CellStore store, int side, int walkers, long seed) {
+        Random random = new Random(seed);
+        int[] xs = new int[walkers];
+        int[] ys = new int[walkers];
+        for (int i = 0; i < walkers; i++) {
+            xs[i] = random.nextInt(side);
+            ys[i] = random.nextInt(side);
+        }
+        long start = System.nanoTime();
+        for (int step = 0; step < WALK_STEPS; step++) {
+            for (int i = 0; i < walkers; i++) {
+                int dx = random.nextInt(3) - 1;
+                int bestX = xs[i];
+                int bestY = ys[i];
+                float best = -1;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int x = Math.floorMod(xs[i] + dx, side);
+                    int y = Math.floorMod(ys[i] + dy, side);
+                    int cell = x * side + y;
+                    float pheromone = store.getFoodPheromone(cell);
+                    if (!store.isAntPresent(cell) && pheromone > best) {
+                        best = pheromone;
+                        bestX = x;
+                        bestY = y;
+                    }
+                }
+                int cell = bestX * side + bestY;
+                store.setFoodPheromone(cell, Math.min(50, store.getFoodPheromone(cell) + 1));
+                xs[i] = bestX;
+                ys[i] = bestY;
+            }
+        }
+        return (double) (System.nanoTime() - start) / ((long) WALK_STEPS * walkers);
+    }
+
+    /**
+     * Visit cells anywhere in the area
+     *
+     * @return nanoseconds per visit
+     */
+    private static double visitRandomly(CellStore store, long seed) {
+        Random random = new Random(seed);
+        long start = System.nanoTime();
+        for (int i = 0; i < RANDOM_VISITS; i++) {
+            int cell = random.nextInt(store.size());
+            store.setHomePheromone(cell, store.getHomePheromone(cell) + 1);
+        }
+        return (double) (System.nanoTime() - start) / RANDOM_VISITS;
+    }
+}
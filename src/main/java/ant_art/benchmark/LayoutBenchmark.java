@@ -0,0 +1,154 @@
+package ant_art.benchmark;
+
+import ant_art.config.Configuration;
+import ant_art.entities.AntArea;
+import ant_art.entities.CellLayout;
+import ant_art.entities.CellStore;
+import ant_art.entities.HeapCellStore;
+import ant_art.utils.AntDirections;
+
+import java.util.Random;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 13-05-2020 15:40
+ * Purpose: Compares the cell layouts on the access patterns of a simulation. Walkers sense the three cells in front of
+ * them and move to one like the ants do, a stencil reads all the eight neighbors of every cell and a sweep visits every
+ * cell in the order of the store like the pheromone decay.
+ * Usage: LayoutBenchmark column-major|z-order [table|computed] [side of the area in cells] [walkers]
+ * Run a layout per JVM. Calls to the layout are slower after the JIT compiler has seen more than one kind of layout.
+ **/
+public class LayoutBenchmark {
+    private static final int REPEATS = 3;
+    private static final int WALK_STEPS = 200;
+
+    public static void main(String[] args) {
+        String name = args.length > 0 ? args[0] : "column-major";
+        boolean table = args.length > 1 && args[1].equals("table");
+        int side = args.length > 2 ? Integer.parseInt(args[2]) : 2048;
+        int walkers = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+
+        CellLayout layout = name.equals("z-order") ?
+                CellLayout.blockedZOrder(side, side, Configuration.Grid.BLOCK_SHIFT) :
+                CellLayout.columnMajor(side, side);
+        if (table) {
+            layout.precomputeNeighbors();
+        }
+        CellStore store = new HeapCellStore(layout.size());
+        initialize(store, layout);
+
+        double walk = Double.MAX_VALUE;
+        double stencil = Double.MAX_VALUE;
+        double sweep = Double.MAX_VALUE;
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+            walk = Math.min(walk, walk(store, layout, walkers, repeat));
+            stencil = Math.min(stencil, stencil(store, layout));
+            sweep = Math.min(sweep, sweep(store, layout));
+        }
+        System.out.println("layout,neighbors,cells,walkers,walk_ns_per_step,stencil_ns_per_cell,sweep_ns_per_cell");
+        System.out.println(String.format("%s,%s,%s,%s,%.2f,%.2f,%.2f", name, table ? "table" : "computed",
+                side * side, walkers, walk, stencil, sweep));
+    }
+
+    /**
+     * Make every cell a default cell with some pheromone. Padding of a layout is marked as a site so it is skipped.
+     */
+    private static void initialize(CellStore store, CellLayout layout) {
+        for (int i = 0; i < store.size(); i++) {
+            store.setType(i, layout.isInside(i) ? AntArea.CellType.DEFAULT : AntArea.CellType.SITE);
+            store.setFoodPheromone(i, i % 50);
+            store.setHomePheromone(i, i % 30);
+        }
+    }
+
+    /**
+     * Move walkers to the cell with the most pheromone out of the forward, left and right cells like the ants do
+     *
+     * @return nanoseconds per step of a walker
+     */
+    private static double walk(CellStore store, CellLayout layout, int walkers, long seed) {
+        Random random = new Random(seed);
+        //Walkers keep their location like the cells of an area do
+        int[] cells = new int[walkers];
+        int[] xs = new int[walkers];
+        int[] ys = new int[walkers];
+        int[] directions = new int[walkers];
+        for (int i = 0; i < walkers; i++) {
+            xs[i] = random.nextInt(layout.getColumns());
+            ys[i] = random.nextInt(layout.getRows());
+            cells[i] = layout.index(xs[i], ys[i]);
+            directions[i] = random.nextInt(AntDirections.NO_OF_DIRECTIONS);
+        }
+        long start = System.nanoTime();
+        for (int step = 0; step < WALK_STEPS; step++) {
+            for (int i = 0; i < walkers; i++) {
+                int direction = directions[i];
+                int moved = direction;
+                int best = neighbor(layout, cells[i], xs[i], ys[i], direction);
+                int left = neighbor(layout, cells[i], xs[i], ys[i], AntDirections.moveCounterClockwise(direction));
+                int right = neighbor(layout, cells[i], xs[i], ys[i], AntDirections.moveClockWise(direction));
+                if (store.getFoodPheromone(left) > store.getFoodPheromone(best)) {
+                    best = left;
+                    moved = direction = AntDirections.moveCounterClockwise(direction);
+                }
+                if (store.getFoodPheromone(right) > store.getFoodPheromone(best)) {
+                    best = right;
+                    moved = direction = AntDirections.moveClockWise(directions[i]);
+                }
+                //Wander a bit so that the walkers don't get stuck on a ridge
+                if (random.nextInt(8) == 0) {
+                    direction = random.nextInt(AntDirections.NO_OF_DIRECTIONS);
+                }
+                store.setFoodPheromone(best, Math.min(50, store.getFoodPheromone(best) + 1));
+                cells[i] = best;
+                xs[i] = layout.neighborX(xs[i], moved);
+                ys[i] = layout.neighborY(ys[i], moved);
+                directions[i] = direction;
+            }
+        }
+        return (double) (System.nanoTime() - start) / ((long) WALK_STEPS * walkers);
+    }
+
+    private static int neighbor(CellLayout layout, int index, int x, int y, int direction) {
+        return layout.neighbor(index, direction, layout.neighborX(x, direction), layout.neighborY(y, direction));
+    }
+
+    /**
+     * Set the home pheromone of every cell to the mean of its neighbors
+     *
+     * @return nanoseconds per cell
+     */
+    private static double stencil(CellStore store, CellLayout layout) {
+        long start = System.nanoTime();
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getType(i) != AntArea.CellType.DEFAULT) {
+                continue;
+            }
+            //Location is found once for all the neighbors
+            int x = layout.getX(i);
+            int y = layout.getY(i);
+            float sum = 0;
+            for (int direction = 0; direction < AntDirections.NO_OF_DIRECTIONS; direction++) {
+                sum += store.getHomePheromone(neighbor(layout, i, x, y, direction));
+            }
+            store.setHomePheromone(i, sum / AntDirections.NO_OF_DIRECTIONS);
+        }
+        return (double) (System.nanoTime() - start) / (layout.getColumns() * layout.getRows());
+    }
+
+    /**
+     * Decay the pheromone of every cell in the order of the store
+     *
+     * @return nanoseconds per cell
+     */
+    private static double sweep(CellStore store, CellLayout layout) {
+        long start = System.nanoTime();
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getType(i) != AntArea.CellType.DEFAULT) {
+                continue;
+            }
+            store.setFoodPheromone(i, store.getFoodPheromone(i) * 0.995f);
+        }
+        return (double) (System.nanoTime() - start) / (layout.getColumns() * layout.getRows());
+    }
+}
@@ -42,6 +42,8 @@ public final class Configuration {
         public static final String OUTPUT = "outputs";
         //Directory to move the images after processing
         public static final String PROCESSED = "processed";
+        //Directory to keep the trained markov chains
+        public static final String CACHE = "cache";
 
         //**************
         //DO NOT CHANGE
@@ -49,6 +51,8 @@ public final class Configuration {
         //THESE SET OF DIRECTORIES ARE ASSUMED TO BE RELATIVE TO OUTPUT DIRECTORY
         //Directory where gifs are moved inside output directory
         public static final String GIF_RELATIVE = "gifs";
+        //Directory of the event logs inside output directory
+        public static final String EVENT_LOG_RELATIVE = "logs";
         //Directory where final image is generated inside output directory
         public static final String RAW_RELATIVE = "raw";
         //Directory where oil painted image is generated inside output directory
@@ -76,6 +80,133 @@ public final class Configuration {
         public static final int UPDATE_ACCUMULATION_THRESHOLD = 5;
     }
 
+    /**
+     * Configuration for stopping the simulation when the image is not changing anymore. Ticks are the updates of the
+     * area so a second is as many ticks as the FPS the simulation runs at. Runs without the GUI use `GUI.FPS`.
+     */
+    public final class Termination {
+        private Termination() {
+        }
+
+        //If enabled the simulation stops on convergence instead of after `GUI.DURATION` seconds
+        public static final boolean ENABLED = true;
+        //Seconds for which the simulation always runs
+        public static final int MIN_SECONDS = 8;
+        //Seconds after which the simulation stops even if it is not converged
+        public static final int MAX_SECONDS = 60;
+        //Seconds over which the progress is measured
+        public static final int WINDOW_SECONDS = 2;
+        //Coverage is stable if it changes less than this in a window
+        public static final float MAX_COVERAGE_CHANGE = 0.002f;
+        //Sites are stable if less than this ratio of the food cells become sites in a window
+        public static final float MAX_SITE_RATE = 0.001f;
+        //If less than this ratio of the food is left no new sites are expected
+        public static final float FOOD_REMAINING_THRESHOLD = 0.02f;
+    }
+
+    /**
+     * Configuration for sweeping the simulation parameters (look `SimulationParameters`) to find the settings which are
+     * fast and give good results.
+     */
+    public static final class Sweep {
+        private Sweep() {
+        }
+
+        //If enabled the parameters are swept without the GUI instead of running a simulation
+        public static final boolean ENABLED = false;
+        //Number of random settings taken from the ranges of the values below. 0 tries every combination of the values.
+        public static final int RANDOM_SAMPLES = 0;
+        //Number of simulations with different seeds for every setting
+        public static final int RUNS_PER_SETTING = 2;
+        //Values of the parameters. A random search takes values between the smallest and the largest one.
+        public static final int[] MAX_ANTS = {25, 50, 100};
+        public static final float[] PHEROMONE_DECAY_RATES = {0.0025f, 0.005f, 0.01f};
+        public static final int[] CELL_SIZES = {2, 4, 8};
+        public static final int[] ANT_SELECTION_SEEDS = {3, 5, 10};
+        public static final float[] INTENSITY_AMPLIFIERS = {10f, 25f, 50f};
+        //CSV file of the results relative to the output directory
+        public static final String RESULTS_RELATIVE = "sweep.csv";
+    }
+
+    /**
+     * Configuration for fitting the simulation to the speed of this host. The cost of a tick is measured once per host
+     * and cached (look `TickProfile`).
+     */
+    public static final class Calibration {
+        private Calibration() {
+        }
+
+        public enum Target {
+            //Use the configured values as they are
+            NONE,
+            //Largest image size up to `MAXIMUM_IMAGE_SIZE` which runs at `GUI.FPS` with `MAX_ANTS`
+            IMAGE_SIZE,
+            //Largest number of ants which runs at `GUI.FPS` with images of `MAXIMUM_IMAGE_SIZE`
+            ANTS,
+            //Highest FPS for images of `MAXIMUM_IMAGE_SIZE` with `MAX_ANTS`
+            FPS
+        }
+
+        //Value which is calibrated. Calibration measures this host once so it is off unless asked for.
+        public static final Target TARGET = Target.NONE;
+        //Ratio of the time of a tick used by the simulation. Rest is left for the GIF snapshots, GC and the OS.
+        public static final float HEADROOM = 0.5f;
+        //Limits of the calibrated values. Calibrated image size never goes beyond `MAXIMUM_IMAGE_SIZE`.
+        public static final int MIN_IMAGE_SIZE = 100;
+        public static final int MIN_ANTS = 5;
+        public static final int MAX_ANTS = 500;
+        public static final int MIN_FPS = 10;
+        public static final int MAX_FPS = 240;
+    }
+
+    /**
+     * Configuration for storing the state of the cells (look `CellStore`)
+     */
+    public static final class Grid {
+        private Grid() {
+        }
+
+        public enum Storage {
+            //Arrays on the heap
+            HEAP,
+            //Arrays on the heap with the pheromones as 16 bit fixed point logarithms
+            FIXED_POINT,
+            //Direct buffers which are not scanned by the garbage collector
+            OFF_HEAP,
+            //Scratch file mapped in the memory for the areas which don't fit in the memory
+            MAPPED
+        }
+
+        public static final Storage STORAGE = Storage.HEAP;
+        //Directory of the scratch files of the `MAPPED` storage
+        public static final String SCRATCH = Directories.CACHE;
+
+        public enum Layout {
+            //Cells of a column are together
+            COLUMN_MAJOR,
+            //Square blocks of cells in Z-order so the cells around an ant are near each other in the store
+            Z_ORDER
+        }
+
+        public static final Layout LAYOUT = Layout.COLUMN_MAJOR;
+        //Side of a block of the `Z_ORDER` layout is 2 ^ BLOCK_SHIFT cells
+        public static final int BLOCK_SHIFT = 4;
+        //Whether to keep the neighbors of all the cells in a table (32 bytes per cell) instead of computing them
+        public static final boolean NEIGHBOR_TABLE = false;
+    }
+
+    /**
+     * Configuration of the image painted by the ants
+     */
+    public static final class Canvas {
+        private Canvas() {
+        }
+
+        //Whether the image keeps a byte per pixel which is an index in a palette of the colors which can be painted.
+        //Pheromone shading is limited to `OUTPUT_GIF_SHADE_LEVELS` levels and the image is cropped to whole cells.
+        public static final boolean INDEXED = false;
+    }
+
     /**
      * Configuration for outputs generated by the system
      */
@@ -111,9 +242,13 @@ public final class Configuration {
     //Decay rate of pheromone.
     public static final float PHEROMONE_DECAY_RATE = 0.005f;
     //520 works best with an FPS of 60 so change accordingly. If increasing the FPS reduce the size and vice-versa.
+    //Lowered to fit the host if `Calibration.TARGET` is `IMAGE_SIZE`.
     public static final int MAXIMUM_IMAGE_SIZE = 400;
     //This is the main setting which will greatly affect the output images. The number of colors to look for in images.
     public static final int DEFAULT_TARGET_COLOR_COUNT = 2;
+    //Number of simulations run with different seeds. If more than 1 they run together without the GUI and only the
+    //outputs of the best one are kept.
+    public static final int ENSEMBLE_RUNS = 1;
 
     //**************
     //DO NOT CHANGE
@@ -155,6 +290,23 @@ public final class Configuration {
     //Number of times rescaling is applied. - NOT USED
     @SuppressWarnings("unused")
     public static final int MAXIMUM_RESCALING_DEPTH = 3;
+    //Bits of every channel kept when counting colors of the input image. Should be smaller than the similarity range.
+    public static final int COLOR_PROFILE_HISTOGRAM_BITS = 5;
+    //Number of pixels sampled to estimate the color profile of large images.
+    public static final int COLOR_PROFILE_SAMPLE_SIZE = 1 << 16;
+    //Seed of the pixels picked for the sample so an image always gets the same profile.
+    public static final long COLOR_PROFILE_SEED = 7;
+    //Images with pixels less than this times the sample size are profiled fully.
+    public static final int COLOR_PROFILE_SAMPLING_FACTOR = 4;
+    //Z-score of the confidence bound of the estimated color ratios. 2.576 is 99% confidence.
+    public static final float COLOR_PROFILE_CONFIDENCE_Z = 2.576f;
+    //Side of a swatch in pixels when a text pallet is drawn. Same as the image pallets in the pallet directory.
+    public static final int PALLET_SWATCH_SIZE = 32;
+    //Whether all the pallets are trained at startup. Else a pallet is trained when it is selected for the first time.
+    public static final boolean PRELOAD_PALLETS = false;
+    //Transitions of a color seen less than this ratio of all its transitions are dropped while training a Markov chain.
+    //Removes noise of large reference images. 0 keeps every transition.
+    public static final float MARKOV_CHAIN_PRUNE_RATIO = 0f;
     //The percentage above which colors are removed.
     public static final float COLOR_FILTERING_HIGHER_LIMIT = 0.5f;
     //The percentage below which colors are removed
@@ -163,8 +315,17 @@ public final class Configuration {
     public static final int OUTPUT_GIF_DELAY = 250;
     //Whether the GIF will be looping or not.
     public static final boolean OUTPUT_GIF_LOOPING = true;
+    //Number of frame buffers reused while streaming the output GIF.
+    public static final int OUTPUT_GIF_FRAME_POOL_SIZE = 3;
+    //Whether the output GIF uses a fixed color table made from the pallets. Frames will only contain the changed area.
+    public static final boolean OUTPUT_GIF_FIXED_PALETTE = true;
+    //Number of intensity levels of each color kept in the fixed color table for pheromone shading.
+    public static final int OUTPUT_GIF_SHADE_LEVELS = 8;
+    //Whether the paints of every tick are logged so the GIF and images can be rebuilt later by `Replay`
+    public static final boolean OUTPUT_EVENT_LOG = false;
     //The neighborhood to consider when evaluating the output for mosaic.
     public static final int MOSAIC_NEIGHBORHOOD = 3;
-    //Number of different neighbors to look for in the neighborhood
+    //A pixel is a mosaic if more than this number of pixels in its neighborhood are different. Below 1 a single
+    //different neighbor is enough and the scores are found without counting the neighbors.
     public static final float MOSAIC_THRESHOLD = 0.5f;
 }
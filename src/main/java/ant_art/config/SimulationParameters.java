@@ -0,0 +1,66 @@
+package ant_art.config;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 11-05-2020 10:20
+ * Purpose: Parameters of a simulation which can be changed without recompiling. `DEFAULT` takes them from the
+ * configuration.
+ **/
+public final class SimulationParameters {
+    public static final SimulationParameters DEFAULT = new SimulationParameters(Configuration.MAX_ANTS,
+            Configuration.PHEROMONE_DECAY_RATE, Configuration.CELL_SIZE, Configuration.ANT_SELECTION_SEED,
+            Configuration.INTENSITY_AMPLIFIER);
+
+    private final int maxAnts;
+    private final float pheromoneDecayRate;
+    private final int cellSize;
+    private final int antSelectionSeed;
+    private final float intensityAmplifier;
+
+    /**
+     * @param maxAnts            number of ants of every target color (look `Configuration.MAX_ANTS`)
+     * @param pheromoneDecayRate decay rate of the pheromone (look `Configuration.PHEROMONE_DECAY_RATE`)
+     * @param cellSize           side of a cell in pixels (look `Configuration.CELL_SIZE`)
+     * @param antSelectionSeed   one out of these many moves of an ant is random (look `Configuration.ANT_SELECTION_SEED`)
+     * @param intensityAmplifier push for the low pheromone levels (look `Configuration.INTENSITY_AMPLIFIER`)
+     */
+    public SimulationParameters(int maxAnts, float pheromoneDecayRate, int cellSize, int antSelectionSeed,
+                                float intensityAmplifier) {
+        if (maxAnts <= 0 || cellSize <= 0 || antSelectionSeed <= 0 ||
+                !(pheromoneDecayRate >= 0 && pheromoneDecayRate < 1)) {
+            throw new IllegalArgumentException(String.format("Invalid simulation parameters:%s,%s,%s,%s", maxAnts,
+                    pheromoneDecayRate, cellSize, antSelectionSeed));
+        }
+        this.maxAnts = maxAnts;
+        this.pheromoneDecayRate = pheromoneDecayRate;
+        this.cellSize = cellSize;
+        this.antSelectionSeed = antSelectionSeed;
+        this.intensityAmplifier = intensityAmplifier;
+    }
+
+    public int getMaxAnts() {
+        return maxAnts;
+    }
+
+    public float getPheromoneDecayRate() {
+        return pheromoneDecayRate;
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    public int getAntSelectionSeed() {
+        return antSelectionSeed;
+    }
+
+    public float getIntensityAmplifier() {
+        return intensityAmplifier;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ants:%s decay:%s cell:%s selection:%s amplifier:%s", maxAnts, pheromoneDecayRate,
+                cellSize, antSelectionSeed, intensityAmplifier);
+    }
+}
@@ -1,9 +1,7 @@
 package ant_art.entities;
 
 import ant_art.utils.AntDirections;
-import ant_art.config.Configuration;
 import ant_art.exceptions.AntArtException;
-import javafx.util.Pair;
 
 import java.awt.*;
 import java.util.Arrays;
@@ -18,10 +16,10 @@ import java.util.stream.Collectors;
  * Purpose: Ant that actually moves on the map looking for food
  **/
 class Ant {
-    //direction of the ant
-    private Pair<Integer, Integer> directionVector;
-    //location of the ant
-    private Pair<Integer, Integer> location;
+    //direction of the ant (look `AntDirections` for the ids)
+    private int direction;
+    //cell where the ant is
+    private AntArea.Cell cell;
     //reference of the area where ant moves
     private final AntArea antArea;
     //color of the ant
@@ -31,28 +29,29 @@ class Ant {
     //capacity of the ant
     private int foodCapacity;
     //random generator for the ant
-    private Random random = new Random();
+    private final Random random;
     //particular food the ant is looking for
     private int foodId;
 
-    Ant(AntArea antArea, Pair<Integer, Integer> directionVector, Pair<Integer, Integer> location, Color color,
-        int foodCapacity, int foodId) throws AntArtException {
+    Ant(AntArea antArea, int direction, AntArea.Cell cell, Color color, int foodCapacity, int foodId, Random random)
+            throws AntArtException {
         this.antArea = antArea;
-        this.directionVector = directionVector;
-        this.location = location;
+        this.random = random;
+        this.direction = direction;
+        this.cell = cell;
         this.color = color;
         this.foodCapacity = foodCapacity;
         this.foodId = foodId;
         //Move to the location
-        antArea.getMap()[location.getKey()][location.getValue()].move(this);
+        cell.move(this);
     }
 
     Color getColor() {
         return color;
     }
 
-    Pair<Integer, Integer> getLocation() {
-        return location;
+    AntArea.Cell getCell() {
+        return cell;
     }
 
     int getFoodId() {
@@ -67,29 +66,21 @@ class Ant {
     }
 
     /**
-     * Get the cell in a particular direction. It assumes that the ant area has a torus like shape
+     * Get the cell in a particular direction. The ant area has a torus like shape which is handled by the layout of
+     * the cells.
      *
-     * @param direction direction to look for
+     * @param direction id of the direction to look for
      * @return cell in the given direction
      */
-    private AntArea.Cell getCellInDirection(Pair<Integer, Integer> direction) {
-        int newX = location.getKey() + direction.getKey();
-        int newY = location.getValue() + direction.getValue();
-
-        //Torus shape
-        newX = newX < 0 ? antArea.getAreaWidth() - 1 : newX;
-        newY = newY < 0 ? antArea.getAreaHeight() - 1 : newY;
-        newX %= antArea.getAreaWidth();
-        newY %= antArea.getAreaHeight();
-
-        return antArea.getMap()[newX][newY];
+    private AntArea.Cell getCellInDirection(int direction) {
+        return cell.getNeighbor(direction);
     }
 
     /**
      * @return cell at which ant is located
      */
     private AntArea.Cell getCurrentCell() {
-        return antArea.getMap()[location.getKey()][location.getValue()];
+        return cell;
     }
 
     /**
@@ -107,8 +98,7 @@ class Ant {
         dest.move(this);
 
         //Update the ant location
-        Pair<Integer, Integer> newLoc = dest.getLocation();
-        location = new Pair<>(newLoc.getKey(), newLoc.getValue());
+        cell = dest;
 
         return true;
     }
@@ -128,8 +118,8 @@ class Ant {
         //Sort according to the quantity of the food
         foodCellList.sort((o1, o2) -> o2.getFood() - o1.getFood());
         //Do a random action based on a probability
-        if (random.nextInt(Configuration.ANT_SELECTION_SEED) == 0) {
-            Collections.shuffle(foodCellList);
+        if (random.nextInt(antArea.getParameters().getAntSelectionSeed()) == 0) {
+            Collections.shuffle(foodCellList, random);
         }
         //Try to move to the food cell
         for (AntArea.Cell cell : foodCellList) {
@@ -153,8 +143,8 @@ class Ant {
             return false;
         }
         //Do a random action based on a probability
-        if (random.nextInt(Configuration.ANT_SELECTION_SEED) == 0) {
-            Collections.shuffle(nestCellList);
+        if (random.nextInt(antArea.getParameters().getAntSelectionSeed()) == 0) {
+            Collections.shuffle(nestCellList, random);
         }
         //Try to move to the nest cell
         for (AntArea.Cell cell : nestCellList) {
@@ -168,11 +158,10 @@ class Ant {
     /**
      * Move to the food source
      */
-    @SuppressWarnings("ConstantConditions")
     private void moveToFoodSource() throws AntArtException {
-        AntArea.Cell forward = getCellInDirection(directionVector);
-        AntArea.Cell left = getCellInDirection(AntDirections.moveCounterClockwise(directionVector));
-        AntArea.Cell right = getCellInDirection(AntDirections.moveClockWise(directionVector));
+        AntArea.Cell forward = getCellInDirection(direction);
+        AntArea.Cell left = getCellInDirection(AntDirections.moveCounterClockwise(direction));
+        AntArea.Cell right = getCellInDirection(AntDirections.moveClockWise(direction));
 
         //Try to move to a food cell.
         List<AntArea.Cell> cellList = Arrays.asList(forward, left, right);
@@ -189,8 +178,8 @@ class Ant {
             return fp1 > fp2 ? -1 : 1;
         });
         //Do a random action based on a probability
-        if (random.nextInt(Configuration.ANT_SELECTION_SEED) == 0) {
-            Collections.shuffle(cellList);
+        if (random.nextInt(antArea.getParameters().getAntSelectionSeed()) == 0) {
+            Collections.shuffle(cellList, random);
         }
         //Try to move to a cell
         for (AntArea.Cell cell : cellList) {
@@ -203,11 +192,10 @@ class Ant {
     /**
      * Move to nest source
      */
-    @SuppressWarnings("ConstantConditions")
     private void moveToNest() throws AntArtException {
-        AntArea.Cell forward = getCellInDirection(directionVector);
-        AntArea.Cell left = getCellInDirection(AntDirections.moveCounterClockwise(directionVector));
-        AntArea.Cell right = getCellInDirection(AntDirections.moveClockWise(directionVector));
+        AntArea.Cell forward = getCellInDirection(direction);
+        AntArea.Cell left = getCellInDirection(AntDirections.moveCounterClockwise(direction));
+        AntArea.Cell right = getCellInDirection(AntDirections.moveClockWise(direction));
 
         //Try to move to a nest cell
         List<AntArea.Cell> cellList = Arrays.asList(forward, left, right);
@@ -225,8 +213,8 @@ class Ant {
             return hp1 > hp2 ? -1 : 1;
         });
         //Do a random action based on a probability
-        if (random.nextInt(Configuration.ANT_SELECTION_SEED) == 0) {
-            Collections.shuffle(cellList);
+        if (random.nextInt(antArea.getParameters().getAntSelectionSeed()) == 0) {
+            Collections.shuffle(cellList, random);
         }
         //Try to move to a cell
         for (AntArea.Cell cell : cellList) {
@@ -244,7 +232,7 @@ class Ant {
             if (curr.getType() == AntArea.CellType.NEST) {
                 curr.depositFood();
                 currFood = 0;
-                directionVector = AntDirections.moveBackward(directionVector);
+                direction = AntDirections.moveBackward(direction);
                 moveToFoodSource();
             } else {
                 //If collected  food and not reached to a nest then look for a way to nest
@@ -257,7 +245,7 @@ class Ant {
                 curr.pickUpFood(this.foodId);
                 currFood++;
                 if (collectedFood()) {
-                    directionVector = AntDirections.moveBackward(directionVector);
+                    direction = AntDirections.moveBackward(direction);
                     moveToNest();
                 }
             } else {
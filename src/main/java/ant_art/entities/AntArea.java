@@ -1,14 +1,20 @@
 package ant_art.entities;
 
 import ant_art.utils.AntDirections;
+import ant_art.utils.EventLog;
 import ant_art.config.Configuration;
-import ant_art.utils.ImageUtils;
+import ant_art.config.SimulationParameters;
+import ant_art.evaluation.AreaMetrics;
+import ant_art.utils.GIFPalette;
+import ant_art.utils.IndexedCanvas;
 import ant_art.utils.MarkovChain;
+import ant_art.utils.SimilarityIndex;
 import ant_art.exceptions.AntArtException;
-import javafx.util.Pair;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.List;
 
@@ -23,6 +29,9 @@ public class AntArea {
         NEST, DEFAULT, FOOD, SITE
     }
 
+    //Color of a cell which is not painted by an ant yet
+    private static final int NO_COLOR = -1;
+
     /**
      * This class represents an ant food which represents a particular target color. It also generate alternatives
      * for this target color which seems not so nice at first but I have not found any better way yet.
@@ -31,76 +40,81 @@ public class AntArea {
         @SuppressWarnings("unused")
         private int id;
         Color color;
-        private MarkovChain chain;
-        private Color prevRandomColor;
+        //Walk of the shared chain which belongs to this area only
+        private MarkovChain.Sampler sampler;
 
         AntFood(int id, Color color, MarkovChain chain) {
             this.id = id;
             this.color = color;
-            this.chain = chain;
+            this.sampler = chain.newSampler(new Random(random.nextLong()));
         }
 
-        Color getRandomColor() {
-            if (prevRandomColor == null) {
-                prevRandomColor = chain.getRandomColor();
-                return prevRandomColor;
-            }
-            prevRandomColor = chain.getRandomNeighboringColor(prevRandomColor);
-            return prevRandomColor;
+        /**
+         * @return packed RGB of a random color
+         */
+        int getRandomColor() {
+            return sampler.next();
         }
     }
 
     /**
-     * A cell in the area
+     * A cell in the area. It only points to the state in the cell store so a cell can be created whenever it is needed.
      */
     class Cell {
-        private CellType type;
-        //current level of home pheromone in this cell
-        private float homePheromone;
-        //current level of food pheromone in this cell
-        private float foodPheromone;
-        //location which in the area which this cell represents
-        private final Pair<Integer, Integer> location;
-        //is an ant present on this cell
-        private boolean antPresent;
-        //size of the cell
-        private int size;
-        //food present on the cell
-        private int food;
-        //current color of this cell
-        private Color color;
-        //If this cell contains then store the food id.
-        private int foodId = -1;
-
-        Cell(Pair<Integer, Integer> location, int size, boolean identifyFood) {
-            this.type = CellType.DEFAULT;
-            this.location = location;
-            this.size = size;
-            this.food = Configuration.DEFAULT_FOOD_IN_CELL;
-            //Try to identify the cell type from the area contents on the location
-            if (identifyFood) {
-                identifyFood();
-            }
+        //location in the area which this cell represents
+        private final int x;
+        private final int y;
+        //index of the cell in the cell store
+        private final int index;
+
+        Cell(int x, int y) {
+            this.x = x;
+            this.y = y;
+            this.index = layout.index(x, y);
+        }
+
+        Cell(int index) {
+            this(layout.getX(index), layout.getY(index), index);
+        }
+
+        private Cell(int x, int y, int index) {
+            this.x = x;
+            this.y = y;
+            this.index = index;
         }
 
-        Pair<Integer, Integer> getLocation() {
-            return location;
+        /**
+         * @return index of the cell in the cell store
+         */
+        int getIndex() {
+            return index;
+        }
+
+        /**
+         * @param direction id of a direction (look `AntDirections`)
+         * @return neighbor of the cell in the direction
+         */
+        Cell getNeighbor(int direction) {
+            //Location is known so the layout doesn't need to find it from the index
+            int neighborX = layout.neighborX(x, direction);
+            int neighborY = layout.neighborY(y, direction);
+            return new Cell(neighborX, neighborY, layout.neighbor(index, direction, neighborX, neighborY));
         }
 
         CellType getType() {
-            return type;
+            return cells.getType(index);
         }
 
         float getHomePheromone() {
-            return homePheromone;
+            return cells.getHomePheromone(index);
         }
 
         float getFoodPheromone() {
-            return foodPheromone;
+            return cells.getFoodPheromone(index);
         }
 
         int getFood() {
-            return food;
+            return cells.getFood(index);
         }
 
         /**
@@ -110,39 +124,58 @@ public class AntArea {
          * @return true if cell contains the food with given id
          */
         boolean isContainingFood(int foodId) {
-            return type == CellType.FOOD && this.foodId == foodId;
+            return cells.getType(index) == CellType.FOOD && cells.getFoodId(index) == foodId;
+        }
+
+        /**
+         * Set the initial state of the cell
+         *
+         * @param input image to identify the cell type from the contents on the location. Null if not to identify.
+         */
+        private void initialize(BufferedImage input) {
+            cells.setType(index, CellType.DEFAULT);
+            cells.setFood(index, Configuration.DEFAULT_FOOD_IN_CELL);
+            cells.setColor(index, NO_COLOR);
+            cells.setFoodId(index, -1);
+            if (input != null) {
+                identifyFood(input);
+            }
         }
 
         /**
          * Check whether the cell contains an ant food or not.
+         *
+         * @param input image of the area
          */
-        private void identifyFood() {
+        private void identifyFood(BufferedImage input) {
             //Get the coordinates in the area
-            int imageX = location.getKey() * size;
-            int imageY = location.getValue() * size;
+            int imageX = x * cellSize;
+            int imageY = y * cellSize;
 
-            Map<Integer, Integer> foodIdToCountMap = new HashMap<>();
+            //Food ids are the positions in the food index.
+            int[] foodCounts = new int[foodIndex.size()];
 
             //Check pixel by pixel that the color of the cell is similar to any of the ant-foods.
-            for (int i = imageX; i < imageX + size; i++) {
-                for (int j = imageY; j < imageY + size; j++) {
-                    Color pixelColor = new Color(mapImage.getRGB(i, j));
-                    for (int foodId : antFoodMap.keySet()) {
-                        boolean isSimilar = ImageUtils.isSimilar(antFoodMap.get(foodId).color, pixelColor);
-                        if (isSimilar) {
-                            foodIdToCountMap.put(foodId, foodIdToCountMap.getOrDefault(foodId, 0) + 1);
+            for (int i = imageX; i < imageX + cellSize; i++) {
+                for (int j = imageY; j < imageY + cellSize; j++) {
+                    int pixelColor = input.getRGB(i, j);
+                    for (int word = 0; word * 64 < foodCounts.length; word++) {
+                        long similarFoods = foodIndex.similarMask(pixelColor, word);
+                        while (similarFoods != 0) {
+                            foodCounts[word * 64 + Long.numberOfTrailingZeros(similarFoods)]++;
+                            similarFoods &= similarFoods - 1;
                         }
                     }
                 }
             }
 
             //If the color count for any food crosses a threshold then setup with that foodId.
-            for (int foodId : antFoodMap.keySet()) {
+            for (int foodId = 0; foodId < foodCounts.length; foodId++) {
                 //Food never found
-                if (!foodIdToCountMap.containsKey(foodId)) {
+                if (foodCounts[foodId] == 0) {
                     continue;
                 }
-                float colorRatio = (float) foodIdToCountMap.get(foodId) / (size * size);
+                float colorRatio = (float) foodCounts[foodId] / (cellSize * cellSize);
                 if (colorRatio > Configuration.TYPE_IDENTIFICATION_THRESHOLD) {
                     setFood(foodId);
                     break;
@@ -155,16 +188,17 @@ public class AntArea {
          */
         private void setSite() {
             //We have not set foodId as this site should remember its color forever.
-            this.type = CellType.SITE;
+            cells.setType(index, CellType.SITE);
+            siteCells++;
         }
 
         /**
          * Set cell as a nest
          */
         private void setNest() {
-            this.type = CellType.NEST;
+            cells.setType(index, CellType.NEST);
             repaint(Configuration.Colors.NEST);
-            this.foodId = -1;
+            cells.setFoodId(index, -1);
         }
 
         /**
@@ -173,8 +207,8 @@ public class AntArea {
          * @param foodId id of the food
          */
         private void setFood(int foodId) {
-            this.type = CellType.FOOD;
-            this.foodId = foodId;
+            cells.setType(index, CellType.FOOD);
+            cells.setFoodId(index, foodId);
             repaint(antFoodMap.get(foodId).color);
         }
 
@@ -184,13 +218,15 @@ public class AntArea {
          * @param foodId id of the food to pickup
          */
         void pickUpFood(int foodId) throws AntArtException {
-            if (type != CellType.FOOD) {
+            if (cells.getType(index) != CellType.FOOD) {
                 throw new AntArtException("Invalid operation: Not a food source");
             }
-            if (this.foodId != foodId) {
+            if (cells.getFoodId(index) != foodId) {
                 throw new AntArtException(String.format("Not contain food:%s", foodId));
             }
-            food -= Configuration.FOOD_PICKUP_QUANTITY;
+            int food = cells.getFood(index) - Configuration.FOOD_PICKUP_QUANTITY;
+            cells.setFood(index, food);
+            remainingFood -= Configuration.FOOD_PICKUP_QUANTITY;
             //All food is gone.
             if (food == 0) {
                 //After all food is gone make it as a site.
@@ -203,10 +239,10 @@ public class AntArea {
          * Deposit the food in cell
          */
         void depositFood() throws AntArtException {
-            if (type != CellType.NEST) {
+            if (cells.getType(index) != CellType.NEST) {
                 throw new AntArtException("Invalid operation: Not a Ant nest");
             }
-            food += Configuration.FOOD_PICKUP_QUANTITY;
+            cells.setFood(index, cells.getFood(index) + Configuration.FOOD_PICKUP_QUANTITY);
         }
 
         /**
@@ -216,19 +252,21 @@ public class AntArea {
          */
         void move(Ant ant) throws AntArtException {
             //ant is already present. Before moving the caller should check ant is already present on this cell or not.
-            if (antPresent) {
+            if (cells.isAntPresent(index)) {
                 throw new AntArtException("Invalid operation: Ant already present");
             }
             if (ant.collectedFood()) {
                 //if the ant has food with it update the food pheromone
-                foodPheromone = Math.min(Configuration.MAX_FOOD_PHEROMONE, foodPheromone + Configuration.PHEROMONE_GAIN);
+                cells.setFoodPheromone(index, Math.min(Configuration.MAX_FOOD_PHEROMONE,
+                        cells.getFoodPheromone(index) + Configuration.PHEROMONE_GAIN));
             } else {
                 //if ant is looking for food then update the home pheromone
-                homePheromone = Math.min(Configuration.MAX_HOME_PHEROMONE, homePheromone + Configuration.PHEROMONE_GAIN);
+                cells.setHomePheromone(index, Math.min(Configuration.MAX_HOME_PHEROMONE,
+                        cells.getHomePheromone(index) + Configuration.PHEROMONE_GAIN));
             }
             //update the cell
             repaint(ant.getColor());
-            antPresent = true;
+            cells.setAntPresent(index, true);
         }
 
         /**
@@ -237,105 +275,222 @@ public class AntArea {
          * @param color input color
          */
         void repaint(Color color) {
-            //Get the coordinates in the area
-            int imageX = location.getKey() * size;
-            int imageY = location.getValue() * size;
-
-            //Paint the cell pixel by pixel in the area
-            for (int i = imageX; i < imageX + size; i++) {
-                for (int j = imageY; j < imageY + size; j++) {
-                    mapImage.setRGB(i, j, color.getRGB());
-                }
-            }
+            paint(x, y, index, color.getRGB());
         }
 
         /**
          * @return true if ant can move on this cell
          */
         boolean isAntPresent() {
-            return antPresent;
-        }
-
-        /**
-         * Repaint according to pheromone intensity
-         */
-        private void repaintAccordingToPheromoneIntensity() {
-            //We don't change intensity of FOOD and NEST cells. A color is set once a ant moves in this cell.
-            if (type == CellType.FOOD || type == CellType.NEST || color == null) {
-                return;
-            }
-            //Right now the intensity is decided on food pheromone levels only
-            float intensity = (foodPheromone / Configuration.MAX_FOOD_PHEROMONE) * Configuration.INTENSITY_AMPLIFIER;
-            //Clip to a value of 1.
-            intensity = Math.min(intensity, 1f);
-            int red = (int) (color.getRed() * intensity);
-            int green = (int) (color.getGreen() * intensity);
-            int blue = (int) (color.getBlue() * intensity);
-            repaint(new Color(red, green, blue));
+            return cells.isAntPresent(index);
         }
 
         /**
          * Let an ant leave this cell
          */
         void leave(Ant ant) throws AntArtException {
-            if (!antPresent) {
+            if (!cells.isAntPresent(index)) {
                 throw new AntArtException("Can't leave as no ant is currently present here");
             }
-            switch (type) {
+            switch (cells.getType(index)) {
                 case DEFAULT:
                     //Get a random color when an ant leave this cell.
-                    color = antFoodMap.get(ant.getFoodId()).getRandomColor();
-                    repaintAccordingToPheromoneIntensity();
+                    cells.setColor(index, antFoodMap.get(ant.getFoodId()).getRandomColor());
+                    paintAccordingToPheromoneIntensity(x, y, index);
                     break;
                 case NEST:
                     repaint(Configuration.Colors.NEST);
                     break;
                 case FOOD:
-                    repaint(antFoodMap.get(foodId).color);
+                    repaint(antFoodMap.get(cells.getFoodId(index)).color);
                     break;
                 case SITE:
                     //A site will be updated by a random color for the food id which it used to contain
-                    repaint(antFoodMap.get(foodId).getRandomColor());
+                    paint(x, y, index, antFoodMap.get(cells.getFoodId(index)).getRandomColor());
                     break;
             }
-            antPresent = false;
+            cells.setAntPresent(index, false);
+        }
+    }
+
+    /**
+     * Update the color of the paint of a cell
+     *
+     * @param x     column of the cell
+     * @param y     row of the cell
+     * @param index index of the cell in the cell store
+     * @param rgb   input color as packed RGB
+     */
+    private void paint(int x, int y, int index, int rgb) {
+        if (canvas != null) {
+            paintIndex(x, y, index, canvas.indexOf(rgb));
+            return;
+        }
+        //Area image can have alpha so always paint opaque
+        rgb |= 0xFF000000;
+        //Most of the repaints don't change anything
+        if (rgb == cells.getPaintedRGB(index)) {
+            return;
+        }
+        cells.setPaintedRGB(index, rgb);
+        if (eventLog != null) {
+            eventLog.paint(x * rows + y, rgb);
+        }
+
+        //Paint the cell pixel by pixel in the area
+        int imageX = x * cellSize;
+        int imageY = y * cellSize;
+        for (int i = imageX; i < imageX + cellSize; i++) {
+            for (int j = imageY; j < imageY + cellSize; j++) {
+                mapImage.setRGB(i, j, rgb);
+            }
+        }
+        if (metrics != null) {
+            metrics.update(x, y, rgb);
+        }
+    }
+
+    /**
+     * Update the color of the paint of a cell on the indexed canvas
+     *
+     * @param x            column of the cell
+     * @param y            row of the cell
+     * @param index        index of the cell in the cell store
+     * @param paletteIndex index of the color in the palette of the canvas
+     */
+    private void paintIndex(int x, int y, int index, int paletteIndex) {
+        int rgb = canvas.getRGB(paletteIndex);
+        //Most of the repaints don't change anything
+        if (rgb == cells.getPaintedRGB(index)) {
+            return;
+        }
+        cells.setPaintedRGB(index, rgb);
+        if (eventLog != null) {
+            eventLog.paint(x * rows + y, rgb);
+        }
+        canvas.fill(x * cellSize, y * cellSize, cellSize, paletteIndex);
+        if (metrics != null) {
+            metrics.update(x, y, rgb);
+        }
+    }
+
+    /**
+     * Repaint a cell according to pheromone intensity
+     *
+     * @param x     column of the cell
+     * @param y     row of the cell
+     * @param index index of the cell in the cell store
+     */
+    private void paintAccordingToPheromoneIntensity(int x, int y, int index) {
+        CellType type = cells.getType(index);
+        int color = cells.getColor(index);
+        //We don't change intensity of FOOD and NEST cells. A color is set once a ant moves in this cell.
+        if (type == CellType.FOOD || type == CellType.NEST || color == NO_COLOR) {
+            return;
         }
+        //Right now the intensity is decided on food pheromone levels only
+        float intensity = (cells.getFoodPheromone(index) / Configuration.MAX_FOOD_PHEROMONE)
+                * parameters.getIntensityAmplifier();
+        //Clip to a value of 1.
+        intensity = Math.min(intensity, 1f);
+        if (canvas != null) {
+            paintIndex(x, y, index, canvas.shade(canvas.indexOf(color), intensity));
+            return;
+        }
+        int red = (int) (((color >> 16) & 0xFF) * intensity);
+        int green = (int) (((color >> 8) & 0xFF) * intensity);
+        int blue = (int) ((color & 0xFF) * intensity);
+        paint(x, y, index, (red << 16) | (green << 8) | blue);
     }
 
     //The image of this area
     private final BufferedImage mapImage;
-    //Cells in the area
-    private final Cell[][] map;
+    //Indexed canvas which backs the image of this area or null if the image is a RGB image
+    private final IndexedCanvas canvas;
+    //State of the cells in the area. Index of a cell is given by the layout.
+    private final CellStore cells;
+    private final CellLayout layout;
     private final int width;
     private final int height;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
     private final List<Ant> ants = new ArrayList<>();
     private int currAnts = 0;
-    private List<Pair<Integer, Integer>> nestLocations = new ArrayList<>();
+    private List<Cell> nestLocations = new ArrayList<>();
     @SuppressWarnings({"FieldCanBeLocal", "MismatchedQueryAndUpdateOfCollection"})
-    private List<Pair<Integer, Integer>> foodLocations = new ArrayList<>();
+    private List<Cell> foodLocations = new ArrayList<>();
     private Color antColor = Color.blue;
-    @SuppressWarnings("unchecked")
-    private Pair<Integer, Integer>[] directions = new Pair[]{AntDirections.SOUTH_WEST, AntDirections.SOUTH,
+    //Ids of the directions in which ants are spawned
+    private int[] directions = new int[]{AntDirections.SOUTH_WEST, AntDirections.SOUTH,
             AntDirections.SOUTH_EAST, AntDirections.NORTH_EAST, AntDirections.NORTH_WEST, AntDirections.NORTH,
             AntDirections.EAST, AntDirections.WEST};
-    private final Random random = new Random();
+    //Every random decision of the area, its ants and its colors comes from this so a seed repeats a simulation
+    private final Random random;
+    private final SimulationParameters parameters;
 
     //Map of food id to the ant food.
     private Map<Integer, AntFood> antFoodMap = new HashMap<>();
+    //Colors of the ant foods. Position of a color is its food id.
+    private SimilarityIndex foodIndex = new SimilarityIndex();
+    //Scores of the image which are updated as the cells are painted
+    private AreaMetrics metrics;
+    //Log of the paints or null if the paints are not logged
+    private EventLog eventLog;
+    //Progress of the simulation
+    private int foodCells;
+    private long initialFood;
+    private long remainingFood;
+    private int siteCells;
     private Color defaultColor;
     private int lastFoodIdForWhichAntSpawned;
     private int antsCount;
 
     public AntArea(MarkovChain[] mkvChains, BufferedImage frame, List<Color> targetColors, Color background) throws AntArtException {
+        this(mkvChains, frame, targetColors, background, new Random().nextLong());
+    }
+
+    /**
+     * Create an area from an input image. The image is painted by the simulation.
+     *
+     * @param mkvChains    chains which give the colors of every target color
+     * @param frame        input image
+     * @param targetColors colors of the image which are used as ant foods
+     * @param background   background color
+     * @param seed         seed of the random decisions
+     * @throws AntArtException if the number of chains and target colors are not same
+     */
+    public AntArea(MarkovChain[] mkvChains, BufferedImage frame, List<Color> targetColors, Color background, long seed)
+            throws AntArtException {
+        this(mkvChains, frame, targetColors, background, seed, SimulationParameters.DEFAULT);
+    }
+
+    /**
+     * Create an area from an input image. The image is painted by the simulation.
+     *
+     * @param mkvChains    chains which give the colors of every target color
+     * @param frame        input image
+     * @param targetColors colors of the image which are used as ant foods
+     * @param background   background color
+     * @param seed         seed of the random decisions
+     * @param parameters   parameters of the simulation
+     * @throws AntArtException if the number of chains and target colors are not same
+     */
+    public AntArea(MarkovChain[] mkvChains, BufferedImage frame, List<Color> targetColors, Color background, long seed,
+                   SimulationParameters parameters) throws AntArtException {
+        this.random = new Random(seed);
+        this.parameters = parameters;
 
         //Round up to the multiple of the cell size
-        int cellSize = Configuration.CELL_SIZE;
+        this.cellSize = parameters.getCellSize();
         this.width = (frame.getWidth() / cellSize) * cellSize;
         this.height = (frame.getHeight() / cellSize) * cellSize;
+        this.columns = width / cellSize;
+        this.rows = height / cellSize;
 
         this.defaultColor = background;
-        this.mapImage = frame;
-        this.map = new Cell[width / cellSize][height / cellSize];
+        this.layout = createLayout(columns, rows);
+        this.cells = createStore(layout.size(), 1 - parameters.getPheromoneDecayRate());
 
         if (mkvChains.length != targetColors.size()) {
             throw new AntArtException("The number of markov chains and target colors should be same");
@@ -344,24 +499,29 @@ public class AntArea {
         //Updated target colors as ant foods
         for (int i = 0; i < targetColors.size(); i++) {
             antFoodMap.put(i, new AntFood(i, targetColors.get(i), mkvChains[i]));
+            foodIndex.add(targetColors.get(i));
         }
 
         //So that spawning starts from zero. Look for `spawnAnt` and you will understand this.
         this.lastFoodIdForWhichAntSpawned = targetColors.size() - 1;
-        this.antsCount = antFoodMap.size() * Configuration.MAX_ANTS;
+        this.antsCount = antFoodMap.size() * parameters.getMaxAnts();
+
+        //Every cell is painted below so the indexed canvas doesn't need the input image
+        this.canvas = Configuration.Canvas.INDEXED ? createCanvas(width, height) : null;
+        this.mapImage = canvas != null ? canvas.getImage() : frame;
 
         //Create cells for the area
         int foodCellsCount = 0;
-        for (int i = 0; i < this.width / cellSize; i++) {
-            for (int j = 0; j < this.height / cellSize; j++) {
-                this.map[i][j] = new Cell(new Pair<>(i, j), cellSize, true);
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                new Cell(i, j).initialize(frame);
                 //Record if the cell is a food cell.
-                if (this.map[i][j].getType() == CellType.FOOD) {
+                if (cells.getType(layout.index(i, j)) == CellType.FOOD) {
                     foodCellsCount++;
                 }
             }
         }
-        System.out.println("Food Cells:" + foodCellsCount + " out of " + (map[0].length * map.length));
+        System.out.println("Food Cells:" + foodCellsCount + " out of " + (columns * rows));
 
         //Spawn nest cells
         for (int i = 0; i < Configuration.NEST_CELLS_TO_SPAWN; i++) {
@@ -369,29 +529,51 @@ public class AntArea {
             int y = random.nextInt(height / cellSize);
             for (int l = x; l < x + Configuration.NEST_AREA_SIZE && l < width / cellSize; l++) {
                 for (int k = y; k < y + Configuration.NEST_AREA_SIZE && k < height / cellSize; k++) {
-                    map[l][k].setNest();
-                    nestLocations.add(new Pair<>(l, k));
+                    Cell nest = new Cell(l, k);
+                    nest.setNest();
+                    nestLocations.add(nest);
                 }
             }
         }
+
+        //Cells show the input image till they are painted in the first update. Painting the background now gives every
+        //cell a single color which the metrics depend on.
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                int index = layout.index(i, j);
+                if (cells.getType(index) == CellType.DEFAULT) {
+                    paint(i, j, index, defaultColor.getRGB());
+                }
+            }
+        }
+        this.metrics = new AreaMetrics(mapImage, getAreaWidth(), getAreaHeight(), cellSize);
+        countFood();
     }
 
     //This constructor is used when working on empty canvas as it will spawn some food areas.
     @SuppressWarnings("unused")
-    public AntArea(int width, int height, MarkovChain mkvChain) {
-        this.mapImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    public AntArea(int width, int height, MarkovChain mkvChain) throws AntArtException {
+        this.random = new Random();
+        this.parameters = SimulationParameters.DEFAULT;
         this.width = width;
         this.height = height;
+        this.cellSize = parameters.getCellSize();
+        this.columns = width / cellSize;
+        this.rows = height / cellSize;
 
         //Single food; setting food id as 0
         this.antFoodMap.put(0, new AntFood(0, Configuration.Colors.FOOD, mkvChain));
+        this.foodIndex.add(Configuration.Colors.FOOD);
+        this.canvas = Configuration.Canvas.INDEXED ? createCanvas(width, height) : null;
+        this.mapImage = canvas != null ? canvas.getImage() :
+                new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
         //Create cells for the area
-        int cellSize = Configuration.CELL_SIZE;
-        this.map = new Cell[width / cellSize][height / cellSize];
-        for (int i = 0; i < this.width / cellSize; i++) {
-            for (int j = 0; j < this.height / cellSize; j++) {
-                this.map[i][j] = new Cell(new Pair<>(i, j), cellSize, false);
+        this.layout = createLayout(columns, rows);
+        this.cells = createStore(layout.size(), 1 - parameters.getPheromoneDecayRate());
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                new Cell(i, j).initialize(null);
             }
         }
 
@@ -401,8 +583,9 @@ public class AntArea {
             int y = random.nextInt(height / cellSize);
             for (int l = x; l < x + Configuration.NEST_AREA_SIZE && l < width / cellSize; l++) {
                 for (int k = y; k < y + Configuration.NEST_AREA_SIZE && k < height / cellSize; k++) {
-                    map[l][k].setNest();
-                    nestLocations.add(new Pair<>(l, k));
+                    Cell nest = new Cell(l, k);
+                    nest.setNest();
+                    nestLocations.add(nest);
                 }
             }
         }
@@ -414,49 +597,192 @@ public class AntArea {
             for (int l = x; l < x + Configuration.FOOD_AREA_SIZE && l < width / cellSize; l++) {
                 for (int k = y; k < y + Configuration.FOOD_AREA_SIZE && k < height / cellSize; k++) {
                     //This constructor is for ant area with single food. This food will have a food id of 0
-                    map[k][l].setFood(0);
-                    foodLocations.add(new Pair<>(k, l));
+                    Cell food = new Cell(k, l);
+                    food.setFood(0);
+                    foodLocations.add(food);
                 }
             }
         }
+        this.metrics = new AreaMetrics(mapImage, getAreaWidth(), getAreaHeight(), cellSize);
+        countFood();
     }
 
     public BufferedImage getMapImage() {
         return mapImage;
     }
 
+    /**
+     * @return palette of the image of the area or null if the image is not indexed
+     */
+    public GIFPalette getPalette() {
+        return canvas != null ? canvas.getPalette() : null;
+    }
+
     public int getWidth() {
         return width;
     }
 
+    /**
+     * @return all the colors which can be painted on the area. Colors darkened by the pheromone intensity are not
+     * included.
+     */
+    public List<Color> getPaintColors() {
+        List<Color> colors = new ArrayList<>();
+        colors.add(defaultColor);
+        colors.add(Configuration.Colors.NEST);
+        colors.add(antColor);
+        for (AntFood antFood : antFoodMap.values()) {
+            colors.add(antFood.color);
+            colors.addAll(antFood.sampler.getChain().getColors());
+        }
+        return colors;
+    }
+
     public int getHeight() {
         return height;
     }
 
+    /**
+     * Record the food present at the start of the simulation
+     */
+    private void countFood() {
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                int index = layout.index(i, j);
+                if (cells.getType(index) == CellType.FOOD) {
+                    foodCells++;
+                    initialFood += cells.getFood(index);
+                }
+            }
+        }
+        remainingFood = initialFood;
+    }
+
+    /**
+     * @return number of food cells at the start of the simulation
+     */
+    public int getFoodCellCount() {
+        return foodCells;
+    }
+
+    /**
+     * @return number of food cells which became sites as their food is finished
+     */
+    public int getSiteCount() {
+        return siteCells;
+    }
+
+    /**
+     * @return ratio of the food which is not picked up yet
+     */
+    public float getFoodRemaining() {
+        return initialFood == 0 ? 0 : (float) remainingFood / initialFood;
+    }
+
+    /**
+     * @return coverage and mosaic scores of the area image which are always up to date
+     */
+    public AreaMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return parameters of the simulation
+     */
+    public SimulationParameters getParameters() {
+        return parameters;
+    }
+
     int getAreaWidth() {
-        return width / Configuration.CELL_SIZE;
+        return columns;
     }
 
     int getAreaHeight() {
-        return height / Configuration.CELL_SIZE;
+        return rows;
+    }
+
+    /**
+     * @param x column of the cell
+     * @param y row of the cell
+     * @return cell at the location
+     */
+    Cell getCell(int x, int y) {
+        return new Cell(x, y);
     }
 
-    Cell[][] getMap() {
-        return map;
+    /**
+     * @param index index of the cell in the cell store
+     * @return cell at the index
+     */
+    Cell getCell(int index) {
+        return new Cell(index);
+    }
+
+    /**
+     * Create an indexed canvas for the colors which can be painted on the area. Shades are same as the output GIF so
+     * the canvas palette is also the GIF palette.
+     *
+     * @param width  width of the canvas
+     * @param height height of the canvas
+     * @return canvas of the area
+     */
+    private IndexedCanvas createCanvas(int width, int height) {
+        return new IndexedCanvas(width, height, getPaintColors(), Configuration.OUTPUT_GIF_SHADE_LEVELS);
+    }
+
+    /**
+     * Create the layout of the cells which is configured
+     *
+     * @param columns columns of the area
+     * @param rows    rows of the area
+     * @return layout of the cells
+     */
+    private static CellLayout createLayout(int columns, int rows) {
+        CellLayout layout = Configuration.Grid.LAYOUT == Configuration.Grid.Layout.Z_ORDER ?
+                CellLayout.blockedZOrder(columns, rows, Configuration.Grid.BLOCK_SHIFT) :
+                CellLayout.columnMajor(columns, rows);
+        return Configuration.Grid.NEIGHBOR_TABLE ? layout.precomputeNeighbors() : layout;
+    }
+
+    /**
+     * Create the store of the cell state which is configured
+     *
+     * @param size     number of cells
+     * @param retained ratio of the pheromones which is left after a decay
+     * @return empty store
+     * @throws AntArtException if not able to create the store
+     */
+    private static CellStore createStore(int size, float retained) throws AntArtException {
+        switch (Configuration.Grid.STORAGE) {
+            case FIXED_POINT:
+                return new FixedPointCellStore(size, retained);
+            case OFF_HEAP:
+                return BufferCellStore.allocateDirect(size);
+            case MAPPED:
+                try {
+                    return BufferCellStore.map(size, new File(Configuration.Grid.SCRATCH));
+
+                } catch (IOException e) {
+                    throw new AntArtException("Not able to create the scratch file of the cells:" + e.getMessage());
+                }
+            default:
+                return new HeapCellStore(size);
+        }
     }
 
     /**
      * Spawn an ant
      *
-     * @param directionVector direction of the ant
-     * @param location        location of the ant
+     * @param direction id of the direction of the ant (look `AntDirections`)
+     * @param location  location of the ant
      * @throws AntArtException if not able to create ant on the given position
      */
-    private void spawnAnt(Pair<Integer, Integer> directionVector, Pair<Integer, Integer> location) throws AntArtException {
+    private void spawnAnt(int direction, Cell location) throws AntArtException {
         lastFoodIdForWhichAntSpawned++;
         lastFoodIdForWhichAntSpawned %= antFoodMap.size();
 
-        ants.add(new Ant(this, directionVector, location, antColor, Configuration.ANT_FOOD_CAPACITY, lastFoodIdForWhichAntSpawned));
+        ants.add(new Ant(this, direction, location, antColor, Configuration.ANT_FOOD_CAPACITY,
+                lastFoodIdForWhichAntSpawned, new Random(random.nextLong())));
         currAnts++;
     }
 
@@ -464,24 +790,29 @@ public class AntArea {
      * Update the area
      */
     private void updateArea() {
-        for (int i = 0; i < getAreaWidth(); i++) {
-            for (int j = 0; j < getAreaHeight(); j++) {
-                Cell cell = map[i][j];
-                //Skip for food, site or nest cell
-                if (cell.getType() != CellType.DEFAULT) {
-                    continue;
-                }
-                //Decay the pheromone levels
-                cell.foodPheromone = cell.foodPheromone * (1 - Configuration.PHEROMONE_DECAY_RATE);
-                cell.homePheromone = cell.homePheromone * (1 - Configuration.PHEROMONE_DECAY_RATE);
-                //Remove the color if pheromone level drops below a level
-                if ((cell.foodPheromone + cell.homePheromone) < Configuration.MINIMUM_PHEROMONE_THRESHOLD) {
-                    cell.repaint(defaultColor);
-                    continue;
-                }
-                //Let the cell update according to the new intensity
-                cell.repaintAccordingToPheromoneIntensity();
+        float retained = 1 - parameters.getPheromoneDecayRate();
+        int background = defaultColor.getRGB();
+        int columns = layout.getColumns();
+        int rows = layout.getRows();
+        //Cells are visited in the order of the store
+        for (int index = 0; index < cells.size(); index++) {
+            //Skip for food, site or nest cell
+            if (cells.getType(index) != CellType.DEFAULT) {
+                continue;
+            }
+            int x = layout.getX(index);
+            int y = layout.getY(index);
+            //Skip the padding of the layout (same as `CellLayout.isInside` without decoding the index again)
+            if (x >= columns || y >= rows) {
+                continue;
+            }
+            //Decay the pheromone levels and remove the color if pheromone level drops below a level
+            if (cells.decayPheromones(index, retained, Configuration.MINIMUM_PHEROMONE_THRESHOLD)) {
+                paint(x, y, index, background);
+                continue;
             }
+            //Let the cell update according to the new intensity
+            paintAccordingToPheromoneIntensity(x, y, index);
         }
     }
 
@@ -492,16 +823,14 @@ public class AntArea {
         if (currAnts >= antsCount) {
             return;
         }
-        int randIndex = random.nextInt(nestLocations.size());
-        int x = nestLocations.get(randIndex).getKey();
-        int y = nestLocations.get(randIndex).getValue();
+        Cell nest = nestLocations.get(random.nextInt(nestLocations.size()));
 
-        if (map[x][y].isAntPresent()) {
+        if (cells.isAntPresent(nest.getIndex())) {
             return;
 
         }
         try {
-            spawnAnt(directions[random.nextInt(directions.length)], new Pair<>(x, y));
+            spawnAnt(directions[random.nextInt(directions.length)], nest);
 
         } catch (AntArtException e) {
             System.out.println("Error in spawning ants");
@@ -523,35 +852,66 @@ public class AntArea {
                 e.printStackTrace();
             }
         }
+        if (eventLog != null) {
+            eventLog.endTick();
+        }
     }
 
-    public void shutDown() {
-        int areaWidth = getAreaWidth();
-        int areaHeight = getAreaHeight();
+    /**
+     * Log the paints of every tick from now on. The log is closed when the area is shut down.
+     *
+     * @param file output file of the log
+     * @throws IOException if not able to create the log
+     */
+    public void startEventLog(File file) throws IOException {
+        int[] rgbs = new int[columns * rows];
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                rgbs[i * rows + j] = cells.getPaintedRGB(layout.index(i, j));
+            }
+        }
+        eventLog = new EventLog(file, columns, rows, cellSize, rgbs);
+    }
 
+    /**
+     * Clean up the area at the end of the simulation. Only the image and the metrics can be used after this as the
+     * cell store is closed.
+     */
+    public void shutDown() {
         //Remove the food which ants are not able to find
-        for (int i = 0; i < areaWidth; i++) {
-            for (int j = 0; j < areaHeight; j++) {
-                if (map[i][j].type == CellType.FOOD) {
-                    map[i][j].repaint(defaultColor);
+        for (int i = 0; i < columns; i++) {
+            for (int j = 0; j < rows; j++) {
+                int index = layout.index(i, j);
+                if (cells.getType(index) == CellType.FOOD) {
+                    paint(i, j, index, defaultColor.getRGB());
                 }
             }
         }
         //Remove nests
-        for (Pair<Integer, Integer> nestLocation : nestLocations) {
-            map[nestLocation.getKey()][nestLocation.getValue()].repaint(defaultColor);
+        for (Cell nestLocation : nestLocations) {
+            nestLocation.repaint(defaultColor);
         }
 
         //Remove ants
         for (Ant ant : ants) {
-            Pair<Integer, Integer> location = ant.getLocation();
             try {
-                map[location.getKey()][location.getValue()].leave(ant);
+                ant.getCell().leave(ant);
 
             } catch (AntArtException e) {
                 System.out.println("Error in removing ants");
                 e.printStackTrace();
             }
         }
+        cells.close();
+        //Paints of the clean up are the last tick of the log
+        if (eventLog != null) {
+            try {
+                eventLog.close();
+
+            } catch (IOException e) {
+                System.out.println("Not able to write the event log");
+                e.printStackTrace();
+            }
+        }
     }
 }
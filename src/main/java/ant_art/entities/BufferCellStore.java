@@ -0,0 +1,205 @@
+package ant_art.entities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 12-05-2020 11:05
+ * Purpose: Cell state off the heap. All the fields of a cell are kept together in a record so a cell is on a single
+ * page. Records are kept in direct buffers or in a memory mapped scratch file for the areas which don't fit in the
+ * memory. The garbage collector never scans the state.
+ **/
+public final class BufferCellStore implements CellStore {
+    private static final AntArea.CellType[] TYPES = AntArea.CellType.values();
+    //Layout of a record
+    private static final int HOME_PHEROMONE = 0;
+    private static final int FOOD_PHEROMONE = 4;
+    private static final int COLOR = 8;
+    private static final int PAINTED_RGB = 12;
+    private static final int FOOD = 16;
+    private static final int FOOD_ID = 20;
+    private static final int TYPE = 22;
+    private static final int ANT_PRESENT = 23;
+    private static final int RECORD_SIZE = 24;
+    //A buffer can't be larger than 2GB so the records are split in segments of these many cells
+    private static final int SEGMENT_SHIFT = 24;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    private final ByteBuffer[] segments;
+    private final int cells;
+    //Scratch file of a mapped store or null
+    private final File file;
+
+    private BufferCellStore(ByteBuffer[] segments, int cells, File file) {
+        this.segments = segments;
+        this.cells = cells;
+        this.file = file;
+    }
+
+    /**
+     * Create a store in direct buffers
+     *
+     * @param cells number of cells
+     * @return store of the cells
+     */
+    public static BufferCellStore allocateDirect(int cells) {
+        ByteBuffer[] segments = new ByteBuffer[getSegmentCount(cells)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(getSegmentCells(cells, i) * RECORD_SIZE)
+                    .order(ByteOrder.nativeOrder());
+        }
+        return new BufferCellStore(segments, cells, null);
+    }
+
+    /**
+     * Create a store in a scratch file mapped in the memory. Pages of the file are loaded and written back by the OS
+     * so the store can be larger than the memory. The file is deleted when the store is closed.
+     *
+     * @param cells     number of cells
+     * @param directory directory of the scratch file
+     * @return store of the cells
+     * @throws IOException if not able to create the scratch file
+     */
+    public static BufferCellStore map(int cells, File directory) throws IOException {
+        File file = File.createTempFile("cells", ".grid", directory);
+        file.deleteOnExit();
+        ByteBuffer[] segments = new ByteBuffer[getSegmentCount(cells)];
+        try (RandomAccessFile scratch = new RandomAccessFile(file, "rw")) {
+            //A new file is sparse so its pages are zeros which is same as a new buffer
+            scratch.setLength((long) cells * RECORD_SIZE);
+            FileChannel channel = scratch.getChannel();
+            for (int i = 0; i < segments.length; i++) {
+                //Mapping is valid after the channel is closed
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, ((long) i << SEGMENT_SHIFT) * RECORD_SIZE,
+                        (long) getSegmentCells(cells, i) * RECORD_SIZE).order(ByteOrder.nativeOrder());
+            }
+        }
+        return new BufferCellStore(segments, cells, file);
+    }
+
+    private static int getSegmentCount(int cells) {
+        return (int) (((long) cells + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+    }
+
+    private static int getSegmentCells(int cells, int segment) {
+        return Math.min(SEGMENT_MASK + 1, cells - (segment << SEGMENT_SHIFT));
+    }
+
+    private ByteBuffer segment(int cell) {
+        return segments[cell >>> SEGMENT_SHIFT];
+    }
+
+    private static int offset(int cell, int field) {
+        return (cell & SEGMENT_MASK) * RECORD_SIZE + field;
+    }
+
+    @Override
+    public int size() {
+        return cells;
+    }
+
+    @Override
+    public AntArea.CellType getType(int cell) {
+        return TYPES[segment(cell).get(offset(cell, TYPE))];
+    }
+
+    @Override
+    public void setType(int cell, AntArea.CellType type) {
+        segment(cell).put(offset(cell, TYPE), (byte) type.ordinal());
+    }
+
+    @Override
+    public float getHomePheromone(int cell) {
+        return segment(cell).getFloat(offset(cell, HOME_PHEROMONE));
+    }
+
+    @Override
+    public void setHomePheromone(int cell, float pheromone) {
+        segment(cell).putFloat(offset(cell, HOME_PHEROMONE), pheromone);
+    }
+
+    @Override
+    public float getFoodPheromone(int cell) {
+        return segment(cell).getFloat(offset(cell, FOOD_PHEROMONE));
+    }
+
+    @Override
+    public void setFoodPheromone(int cell, float pheromone) {
+        segment(cell).putFloat(offset(cell, FOOD_PHEROMONE), pheromone);
+    }
+
+    @Override
+    public boolean decayPheromones(int cell, float retained, float minimum) {
+        ByteBuffer segment = segment(cell);
+        int offset = offset(cell, 0);
+        float foodPheromone = segment.getFloat(offset + FOOD_PHEROMONE) * retained;
+        float homePheromone = segment.getFloat(offset + HOME_PHEROMONE) * retained;
+        segment.putFloat(offset + FOOD_PHEROMONE, foodPheromone);
+        segment.putFloat(offset + HOME_PHEROMONE, homePheromone);
+        return foodPheromone + homePheromone < minimum;
+    }
+
+    @Override
+    public int getFood(int cell) {
+        return segment(cell).getInt(offset(cell, FOOD));
+    }
+
+    @Override
+    public void setFood(int cell, int food) {
+        segment(cell).putInt(offset(cell, FOOD), food);
+    }
+
+    @Override
+    public int getFoodId(int cell) {
+        return segment(cell).getShort(offset(cell, FOOD_ID));
+    }
+
+    @Override
+    public void setFoodId(int cell, int foodId) {
+        segment(cell).putShort(offset(cell, FOOD_ID), (short) foodId);
+    }
+
+    @Override
+    public int getColor(int cell) {
+        return segment(cell).getInt(offset(cell, COLOR));
+    }
+
+    @Override
+    public void setColor(int cell, int color) {
+        segment(cell).putInt(offset(cell, COLOR), color);
+    }
+
+    @Override
+    public int getPaintedRGB(int cell) {
+        return segment(cell).getInt(offset(cell, PAINTED_RGB));
+    }
+
+    @Override
+    public void setPaintedRGB(int cell, int rgb) {
+        segment(cell).putInt(offset(cell, PAINTED_RGB), rgb);
+    }
+
+    @Override
+    public boolean isAntPresent(int cell) {
+        return segment(cell).get(offset(cell, ANT_PRESENT)) != 0;
+    }
+
+    @Override
+    public void setAntPresent(int cell, boolean antPresent) {
+        segment(cell).put(offset(cell, ANT_PRESENT), (byte) (antPresent ? 1 : 0));
+    }
+
+    @Override
+    public void close() {
+        //Buffers are released by the garbage collector. A mapped file can be deleted while it is mapped on most of the
+        //platforms, else it is deleted on exit.
+        if (file != null && !file.delete()) {
+            System.out.println("Scratch file will be deleted on exit:" + file);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package ant_art.entities;
+
+import ant_art.utils.AntDirections;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 13-05-2020 10:10
+ * Purpose: Order of the cells in a cell store. Neighbors of a cell are found with the torus wrap of the area without
+ * branches or from a table of all the neighbors which is computed once. Callers which know the column and row of a cell
+ * should pass them (look `neighborX`) as getting them back from an index needs a division.
+ **/
+public abstract class CellLayout {
+    //Change of the column and row of every direction id (look `AntDirections`)
+    private static final int[] DX = new int[AntDirections.NO_OF_DIRECTIONS];
+    private static final int[] DY = new int[AntDirections.NO_OF_DIRECTIONS];
+
+    static {
+        for (int direction = 0; direction < AntDirections.NO_OF_DIRECTIONS; direction++) {
+            DX[direction] = AntDirections.getDX(direction);
+            DY[direction] = AntDirections.getDY(direction);
+        }
+    }
+
+    final int columns;
+    final int rows;
+    //Neighbors of the cells. Neighbor of a cell in a direction is at `index * 8 + direction`. Null if not computed.
+    private int[] neighbors;
+
+    private CellLayout(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Cells of a column are together and columns are one after another
+     *
+     * @param columns columns of the area
+     * @param rows    rows of the area
+     * @return layout of the area
+     */
+    public static CellLayout columnMajor(int columns, int rows) {
+        return new ColumnMajor(columns, rows);
+    }
+
+    /**
+     * Area is divided in square blocks which are in column major order. Cells of a block are in Z-order so the cells
+     * near each other in the area are near each other in the store.
+     *
+     * @param columns    columns of the area
+     * @param rows       rows of the area
+     * @param blockShift side of a block is `2 ^ blockShift`
+     * @return layout of the area
+     */
+    public static CellLayout blockedZOrder(int columns, int rows, int blockShift) {
+        return new BlockedZOrder(columns, rows, blockShift);
+    }
+
+    /**
+     * @return number of indices of the layout. It can be more than the cells of the area as some layouts are padded.
+     */
+    public abstract int size();
+
+    /**
+     * @param x column of the cell
+     * @param y row of the cell
+     * @return index of the cell
+     */
+    public abstract int index(int x, int y);
+
+    /**
+     * @param index index of a cell
+     * @return column of the cell. It is outside of the area for the padding.
+     */
+    public abstract int getX(int index);
+
+    /**
+     * @param index index of a cell
+     * @return row of the cell. It is outside of the area for the padding.
+     */
+    public abstract int getY(int index);
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @param index index of a cell
+     * @return true if the index is a cell of the area and not the padding
+     */
+    public boolean isInside(int index) {
+        return getX(index) < columns && getY(index) < rows;
+    }
+
+    /**
+     * Get a neighbor of a cell. The area has a torus like shape so the neighbors of the edge cells are on the opposite
+     * edge.
+     *
+     * @param index     index of a cell
+     * @param direction id of the direction (look `AntDirections`)
+     * @return index of the neighbor
+     */
+    public int neighbor(int index, int direction) {
+        if (neighbors != null) {
+            return neighbors[(index << 3) + direction];
+        }
+        return index(neighborX(getX(index), direction), neighborY(getY(index), direction));
+    }
+
+    /**
+     * Get a neighbor of a cell whose column and row are already known
+     *
+     * @param index     index of a cell
+     * @param direction id of the direction (look `AntDirections`)
+     * @param x         column of the neighbor (look `neighborX`)
+     * @param y         row of the neighbor (look `neighborY`)
+     * @return index of the neighbor
+     */
+    public int neighbor(int index, int direction, int x, int y) {
+        if (neighbors != null) {
+            return neighbors[(index << 3) + direction];
+        }
+        return index(x, y);
+    }
+
+    /**
+     * @param x         column of a cell
+     * @param direction id of the direction (look `AntDirections`)
+     * @return column of the neighbor of the cell in the direction
+     */
+    public int neighborX(int x, int direction) {
+        return wrap(x + DX[direction], columns);
+    }
+
+    /**
+     * @param y         row of a cell
+     * @param direction id of the direction (look `AntDirections`)
+     * @return row of the neighbor of the cell in the direction
+     */
+    public int neighborY(int y, int direction) {
+        return wrap(y + DY[direction], rows);
+    }
+
+    /**
+     * Compute the neighbors of all the cells. It needs 32 bytes for every cell.
+     *
+     * @return this layout
+     */
+    public CellLayout precomputeNeighbors() {
+        int[] neighbors = new int[size() * AntDirections.NO_OF_DIRECTIONS];
+        for (int index = 0; index < size(); index++) {
+            if (!isInside(index)) {
+                continue;
+            }
+            for (int direction = 0; direction < AntDirections.NO_OF_DIRECTIONS; direction++) {
+                neighbors[(index << 3) + direction] = neighbor(index, direction);
+            }
+        }
+        this.neighbors = neighbors;
+        return this;
+    }
+
+    /**
+     * Wrap a value which is at most one outside of a range without branches
+     *
+     * @param value value between -1 and `size`
+     * @param size  size of the range
+     * @return value between 0 and `size - 1`
+     */
+    static int wrap(int value, int size) {
+        value += size & (value >> 31);
+        return value - (size & ((size - 1 - value) >> 31));
+    }
+
+    private static final class ColumnMajor extends CellLayout {
+
+        private ColumnMajor(int columns, int rows) {
+            super(columns, rows);
+        }
+
+        @Override
+        public int size() {
+            return columns * rows;
+        }
+
+        @Override
+        public int index(int x, int y) {
+            return x * rows + y;
+        }
+
+        @Override
+        public int getX(int index) {
+            return index / rows;
+        }
+
+        @Override
+        public int getY(int index) {
+            return index % rows;
+        }
+    }
+
+    private static final class BlockedZOrder extends CellLayout {
+        private final int shift;
+        private final int mask;
+        //Blocks in a column of blocks
+        private final int blockRows;
+        private final int blockColumns;
+        //Z-order of the coordinates in a block. Bits of a coordinate are spread to the even bits.
+        private final int[] spread;
+        //Coordinates of the positions in a block
+        private final int[] blockX;
+        private final int[] blockY;
+
+        private BlockedZOrder(int columns, int rows, int shift) {
+            super(columns, rows);
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+            this.blockRows = (rows + mask) >> shift;
+            this.blockColumns = (columns + mask) >> shift;
+            this.spread = new int[1 << shift];
+            for (int value = 0; value < spread.length; value++) {
+                for (int bit = 0; bit < shift; bit++) {
+                    spread[value] |= ((value >> bit) & 1) << (2 * bit);
+                }
+            }
+            this.blockX = new int[1 << (2 * shift)];
+            this.blockY = new int[1 << (2 * shift)];
+            for (int x = 0; x < spread.length; x++) {
+                for (int y = 0; y < spread.length; y++) {
+                    blockX[spread[x] | (spread[y] << 1)] = x;
+                    blockY[spread[x] | (spread[y] << 1)] = y;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return (blockColumns * blockRows) << (2 * shift);
+        }
+
+        @Override
+        public int index(int x, int y) {
+            int block = (x >> shift) * blockRows + (y >> shift);
+            return (block << (2 * shift)) | spread[x & mask] | (spread[y & mask] << 1);
+        }
+
+        @Override
+        public int getX(int index) {
+            return ((index >> (2 * shift)) / blockRows << shift) | blockX[index & ((1 << (2 * shift)) - 1)];
+        }
+
+        @Override
+        public int getY(int index) {
+            return ((index >> (2 * shift)) % blockRows << shift) | blockY[index & ((1 << (2 * shift)) - 1)];
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ant_art.entities;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 12-05-2020 10:15
+ * Purpose: Storage of the state of the cells of an area. A cell is identified by its index so the state can be kept in
+ * arrays, off the heap or in a file. Nothing is checked so callers have to pass valid indices.
+ **/
+public interface CellStore extends AutoCloseable {
+
+    /**
+     * @return number of cells
+     */
+    int size();
+
+    AntArea.CellType getType(int cell);
+
+    void setType(int cell, AntArea.CellType type);
+
+    float getHomePheromone(int cell);
+
+    void setHomePheromone(int cell, float pheromone);
+
+    float getFoodPheromone(int cell);
+
+    void setFoodPheromone(int cell, float pheromone);
+
+    /**
+     * Decay both the pheromones of a cell
+     *
+     * @param retained ratio of the pheromones which is left after the decay
+     * @param minimum  minimum sum of the pheromones
+     * @return true if the sum of the pheromones after the decay is below the minimum
+     */
+    boolean decayPheromones(int cell, float retained, float minimum);
+
+    int getFood(int cell);
+
+    void setFood(int cell, int food);
+
+    /**
+     * @return id of the food of the cell or -1 if none
+     */
+    int getFoodId(int cell);
+
+    void setFoodId(int cell, int foodId);
+
+    /**
+     * @return packed RGB color of the cell which is darkened by the pheromone before painting
+     */
+    int getColor(int cell);
+
+    void setColor(int cell, int color);
+
+    /**
+     * @return opaque packed RGB painted on the image
+     */
+    int getPaintedRGB(int cell);
+
+    void setPaintedRGB(int cell, int rgb);
+
+    boolean isAntPresent(int cell);
+
+    void setAntPresent(int cell, boolean antPresent);
+
+    /**
+     * Release the storage. The store can't be used after this.
+     */
+    @Override
+    void close();
+}
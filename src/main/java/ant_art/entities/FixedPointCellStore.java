@@ -0,0 +1,206 @@
+package ant_art.entities;
+
+import ant_art.config.Configuration;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 14-05-2020 15:10
+ * Purpose: Cell state in arrays on the heap with the pheromones in 16 bits. A pheromone is kept as a fixed point
+ * logarithm so the decay by a ratio is a subtraction of a constant step and a small value keeps decaying at the right
+ * rate. Scale of the logarithm is chosen so that the step of the decay rate of the store is a whole number. Pheromones
+ * are read from a table of all the 65536 values.
+ * <p>
+ * Largest pheromone is `MAX_FOOD_PHEROMONE` or `MAX_HOME_PHEROMONE` and anything below ~5e-5 is zero. A pheromone is
+ * kept within half a code of its value, which is 0.011% for the default decay rate and never more than 0.025%, and
+ * decays at the same rate as the float stores. A decay rate of 0 keeps the
+ * pheromones as they are. Rates too small for a whole step (below ~2e-4) can't be kept and are rejected.
+ **/
+public final class FixedPointCellStore implements CellStore {
+    private static final AntArea.CellType[] TYPES = AntArea.CellType.values();
+    private static final int MAX_CODE = Character.MAX_VALUE;
+    private static final float MAX_PHEROMONE = Math.max(Configuration.MAX_FOOD_PHEROMONE,
+            Configuration.MAX_HOME_PHEROMONE);
+    //Pheromones are kept from MAX_PHEROMONE down to this ratio of it
+    private static final double RANGE = 1e-6;
+
+    private final byte[] types;
+    private final char[] homePheromones;
+    private final char[] foodPheromones;
+    private final int[] food;
+    private final int[] foodIds;
+    private final int[] colors;
+    private final int[] paintedRGBs;
+    private final boolean[] antPresent;
+    //Codes per unit of the natural logarithm of a pheromone
+    private final double scale;
+    //Smallest pheromone which is not zero. It has the code 1.
+    private final double minimum;
+    //Decay ratio of the store and the same decay in codes
+    private final float retained;
+    private final int step;
+    //Pheromone of every code
+    private final float[] values = new float[MAX_CODE + 1];
+    //Last minimum sum checked after a decay and its code
+    private float minimumSum = Float.NaN;
+    private int minimumCode;
+
+    /**
+     * @param cells    number of cells
+     * @param retained ratio of the pheromones which is left after a decay (look `PHEROMONE_DECAY_RATE`)
+     * @throws IllegalArgumentException if the decay can't be kept in the codes
+     */
+    public FixedPointCellStore(int cells, float retained) {
+        //Decay in codes for the scale which just keeps the range
+        double decay = -Math.log(retained);
+        double fullRangeSteps = MAX_CODE * decay / -Math.log(RANGE);
+        if (!(retained > 0 && retained <= 1) || (decay > 0 && fullRangeSteps < 1)) {
+            throw new IllegalArgumentException(String.format("Decay rate %s can't be kept in fixed point pheromones",
+                    1 - retained));
+        }
+        this.types = new byte[cells];
+        this.homePheromones = new char[cells];
+        this.foodPheromones = new char[cells];
+        this.food = new int[cells];
+        this.foodIds = new int[cells];
+        this.colors = new int[cells];
+        this.paintedRGBs = new int[cells];
+        this.antPresent = new boolean[cells];
+
+        //Largest scale which keeps the range in the codes and has a whole step. Without a decay the step is 0 and the
+        //scale just keeps the range.
+        this.step = (int) fullRangeSteps;
+        this.scale = step == 0 ? MAX_CODE / -Math.log(RANGE) : step / decay;
+        this.minimum = MAX_PHEROMONE * Math.exp((1 - MAX_CODE) / scale);
+        this.retained = retained;
+        for (int code = 1; code <= MAX_CODE; code++) {
+            values[code] = (float) (minimum * Math.exp((code - 1) / scale));
+        }
+    }
+
+    /**
+     * @param pheromone pheromone
+     * @return code of the pheromone
+     */
+    private char encode(float pheromone) {
+        if (pheromone < minimum) {
+            return 0;
+        }
+        return (char) Math.min(MAX_CODE, (int) (Math.log(pheromone / minimum) * scale + 1.5));
+    }
+
+    @Override
+    public int size() {
+        return types.length;
+    }
+
+    @Override
+    public AntArea.CellType getType(int cell) {
+        return TYPES[types[cell]];
+    }
+
+    @Override
+    public void setType(int cell, AntArea.CellType type) {
+        types[cell] = (byte) type.ordinal();
+    }
+
+    @Override
+    public float getHomePheromone(int cell) {
+        return values[homePheromones[cell]];
+    }
+
+    @Override
+    public void setHomePheromone(int cell, float pheromone) {
+        homePheromones[cell] = encode(pheromone);
+    }
+
+    @Override
+    public float getFoodPheromone(int cell) {
+        return values[foodPheromones[cell]];
+    }
+
+    @Override
+    public void setFoodPheromone(int cell, float pheromone) {
+        foodPheromones[cell] = encode(pheromone);
+    }
+
+    /**
+     * Decay both the pheromones of a cell. A ratio other than the one of the store is rounded to whole steps.
+     *
+     * @param retained ratio of the pheromones which is left after the decay
+     * @param minimum  minimum sum of the pheromones
+     * @return true if the sum of the pheromones after the decay is below the minimum
+     */
+    @Override
+    public boolean decayPheromones(int cell, float retained, float minimum) {
+        int step = retained == this.retained ? this.step :
+                (int) Math.min(MAX_CODE, Math.round(-Math.log(retained) * scale));
+        int foodPheromone = Math.max(0, foodPheromones[cell] - step);
+        int homePheromone = Math.max(0, homePheromones[cell] - step);
+        foodPheromones[cell] = (char) foodPheromone;
+        homePheromones[cell] = (char) homePheromone;
+        //Sum can't be below the minimum if one of the pheromones is not. Only the small pheromones are read.
+        if (minimum != this.minimumSum) {
+            minimumSum = minimum;
+            minimumCode = encode(minimum);
+        }
+        if (Math.max(foodPheromone, homePheromone) > minimumCode) {
+            return false;
+        }
+        return values[foodPheromone] + values[homePheromone] < minimum;
+    }
+
+    @Override
+    public int getFood(int cell) {
+        return food[cell];
+    }
+
+    @Override
+    public void setFood(int cell, int food) {
+        this.food[cell] = food;
+    }
+
+    @Override
+    public int getFoodId(int cell) {
+        return foodIds[cell];
+    }
+
+    @Override
+    public void setFoodId(int cell, int foodId) {
+        foodIds[cell] = foodId;
+    }
+
+    @Override
+    public int getColor(int cell) {
+        return colors[cell];
+    }
+
+    @Override
+    public void setColor(int cell, int color) {
+        colors[cell] = color;
+    }
+
+    @Override
+    public int getPaintedRGB(int cell) {
+        return paintedRGBs[cell];
+    }
+
+    @Override
+    public void setPaintedRGB(int cell, int rgb) {
+        paintedRGBs[cell] = rgb;
+    }
+
+    @Override
+    public boolean isAntPresent(int cell) {
+        return antPresent[cell];
+    }
+
+    @Override
+    public void setAntPresent(int cell, boolean antPresent) {
+        this.antPresent[cell] = antPresent;
+    }
+
+    @Override
+    public void close() {
+        //Arrays are collected with the store
+    }
+}
@@ -0,0 +1,132 @@
+package ant_art.entities;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 12-05-2020 10:30
+ * Purpose: Cell state in arrays on the heap. A field of all the cells is in one array.
+ **/
+public final class HeapCellStore implements CellStore {
+    private static final AntArea.CellType[] TYPES = AntArea.CellType.values();
+
+    private final byte[] types;
+    private final float[] homePheromones;
+    private final float[] foodPheromones;
+    private final int[] food;
+    private final int[] foodIds;
+    private final int[] colors;
+    private final int[] paintedRGBs;
+    private final boolean[] antPresent;
+
+    /**
+     * @param cells number of cells
+     */
+    public HeapCellStore(int cells) {
+        this.types = new byte[cells];
+        this.homePheromones = new float[cells];
+        this.foodPheromones = new float[cells];
+        this.food = new int[cells];
+        this.foodIds = new int[cells];
+        this.colors = new int[cells];
+        this.paintedRGBs = new int[cells];
+        this.antPresent = new boolean[cells];
+    }
+
+    @Override
+    public int size() {
+        return types.length;
+    }
+
+    @Override
+    public AntArea.CellType getType(int cell) {
+        return TYPES[types[cell]];
+    }
+
+    @Override
+    public void setType(int cell, AntArea.CellType type) {
+        types[cell] = (byte) type.ordinal();
+    }
+
+    @Override
+    public float getHomePheromone(int cell) {
+        return homePheromones[cell];
+    }
+
+    @Override
+    public void setHomePheromone(int cell, float pheromone) {
+        homePheromones[cell] = pheromone;
+    }
+
+    @Override
+    public float getFoodPheromone(int cell) {
+        return foodPheromones[cell];
+    }
+
+    @Override
+    public void setFoodPheromone(int cell, float pheromone) {
+        foodPheromones[cell] = pheromone;
+    }
+
+    @Override
+    public boolean decayPheromones(int cell, float retained, float minimum) {
+        float foodPheromone = foodPheromones[cell] * retained;
+        float homePheromone = homePheromones[cell] * retained;
+        foodPheromones[cell] = foodPheromone;
+        homePheromones[cell] = homePheromone;
+        return foodPheromone + homePheromone < minimum;
+    }
+
+    @Override
+    public int getFood(int cell) {
+        return food[cell];
+    }
+
+    @Override
+    public void setFood(int cell, int food) {
+        this.food[cell] = food;
+    }
+
+    @Override
+    public int getFoodId(int cell) {
+        return foodIds[cell];
+    }
+
+    @Override
+    public void setFoodId(int cell, int foodId) {
+        foodIds[cell] = foodId;
+    }
+
+    @Override
+    public int getColor(int cell) {
+        return colors[cell];
+    }
+
+    @Override
+    public void setColor(int cell, int color) {
+        colors[cell] = color;
+    }
+
+    @Override
+    public int getPaintedRGB(int cell) {
+        return paintedRGBs[cell];
+    }
+
+    @Override
+    public void setPaintedRGB(int cell, int rgb) {
+        paintedRGBs[cell] = rgb;
+    }
+
+    @Override
+    public boolean isAntPresent(int cell) {
+        return antPresent[cell];
+    }
+
+    @Override
+    public void setAntPresent(int cell, boolean antPresent) {
+        this.antPresent[cell] = antPresent;
+    }
+
+    @Override
+    public void close() {
+        //Arrays are collected with the store
+    }
+}
@@ -3,8 +3,8 @@ package ant_art.evaluation;
 import ant_art.config.Configuration;
 import ant_art.utils.ImageUtils;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
 
 /**
  * Created By: Prashant Chaubey
@@ -12,6 +12,13 @@ import java.awt.image.BufferedImage;
  * Purpose: Evaluation algorithms for the project
  **/
 public class AntArtEvaluator {
+    //Rows evaluated by one task
+    private static final int ROWS_PER_TASK = 64;
+    private static final int BACKGROUND = Configuration.Colors.DEFAULT.getRGB();
+    //Whether a single different neighbor makes a pixel a mosaic (look `isMosaic`). Then the neighbors don't need to be
+    //counted.
+    static final boolean ANY_DIFFERENT_NEIGHBOR = Configuration.MOSAIC_THRESHOLD >= 0
+            && Configuration.MOSAIC_THRESHOLD < 1;
 
     /**
      * Check the number of pixels covered in the image
@@ -20,24 +27,22 @@ public class AntArtEvaluator {
      * @return the coverage ration of the image
      */
     public static float getCoverage(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int[] pixels = ImageUtils.getRGBPixels(image);
         int count = 0;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color pixelColor = new Color(image.getRGB(x, y));
-                //Skipping if background
-                if (ImageUtils.isSimilar(Configuration.Colors.DEFAULT, pixelColor)) {
-                    continue;
-                }
-                count++;
-            }
+        for (int pixel : pixels) {
+            count += isBackground(pixel) ? 0 : 1;
         }
-        return (float) count / (width * height);
+        return (float) count / pixels.length;
     }
 
     /**
-     * Get mosaic score for an image.
+     * Get mosaic score for an image. It is the ratio of the pixels which have more than `MOSAIC_THRESHOLD` different
+     * (look `ImageUtils.isSimilar`) pixels in their neighborhood. Background pixels are not counted. Rows are evaluated
+     * in parallel.
+     * When one different pixel is enough (look `ANY_DIFFERENT_NEIGHBOR`) the neighbors are never compared one by one.
+     * Similarity is checked on every channel independently, so all the pixels of a neighborhood are similar to a pixel
+     * only if the minimum and maximum of every channel in the neighborhood are similar to it. Otherwise the different
+     * neighbors of every pixel are counted.
      *
      * @param image input image
      * @return mosaic score of the image.
@@ -45,31 +50,195 @@ public class AntArtEvaluator {
     public static float getMosaicScore(BufferedImage image) {
         int width = image.getWidth();
         int height = image.getHeight();
-        int count = 0;
-        int mosaics = 0;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color pixelColor = new Color(image.getRGB(x, y));
+        int[] pixels = ImageUtils.getRGBPixels(image);
+        int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+
+        long[] result = IntStream.range(0, tasks).parallel().mapToObj(task -> {
+            int start = task * ROWS_PER_TASK;
+            int end = Math.min(height, start + ROWS_PER_TASK);
+            return ANY_DIFFERENT_NEIGHBOR ? getMosaicCounts(pixels, width, height, start, end)
+                    : countDifferentNeighbors(pixels, width, height, start, end);
+        }).reduce((a, b) -> new long[]{a[0] + b[0], a[1] + b[1]}).orElseGet(() -> new long[2]);
+
+        return (float) result[0] / result[1];
+    }
+
+    /**
+     * @param differentNeighbors number of pixels in the neighborhood of a pixel which are not similar to it
+     * @return true if the pixel is a mosaic
+     */
+    static boolean isMosaic(int differentNeighbors) {
+        return differentNeighbors > Configuration.MOSAIC_THRESHOLD;
+    }
+
+    /**
+     * Count the mosaic pixels in a band of rows by comparing every pixel with its neighbors
+     *
+     * @param pixels packed RGB pixels of the image
+     * @param width  width of the image
+     * @param height height of the image
+     * @param start  first row of the band
+     * @param end    row after the last row of the band
+     * @return number of mosaic pixels and number of pixels which are not background
+     */
+    static long[] countDifferentNeighbors(int[] pixels, int width, int height, int start, int end) {
+        int radius = Configuration.MOSAIC_NEIGHBORHOOD;
+        long mosaics = 0;
+        long count = 0;
+        for (int y = start; y < end; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = pixels[y * width + x];
                 //Skipping if background
-                if (ImageUtils.isSimilar(Configuration.Colors.DEFAULT, pixelColor)) {
+                if (isBackground(pixel)) {
                     continue;
                 }
                 int differentNeighbors = 0;
-                for (int i = x - Configuration.MOSAIC_NEIGHBORHOOD; i <= x + Configuration.MOSAIC_NEIGHBORHOOD; i++) {
-                    for (int j = y - Configuration.MOSAIC_NEIGHBORHOOD; j <= y + Configuration.MOSAIC_NEIGHBORHOOD; j++) {
-                        if (i < 0 || j < 0 || i >= width || j >= height) {
-                            continue;
-                        }
-                        Color neighborColor = new Color(image.getRGB(i, j));
-                        if (!ImageUtils.isSimilar(pixelColor, neighborColor)) {
-                            differentNeighbors++;
-                        }
+                for (int j = Math.max(0, y - radius); j <= Math.min(height - 1, y + radius); j++) {
+                    for (int i = Math.max(0, x - radius); i <= Math.min(width - 1, x + radius); i++) {
+                        differentNeighbors += ImageUtils.isSimilar(pixel, pixels[j * width + i]) ? 0 : 1;
                     }
                 }
-                mosaics += differentNeighbors > Configuration.MOSAIC_THRESHOLD ? 1 : 0;
+                mosaics += isMosaic(differentNeighbors) ? 1 : 0;
                 count++;
             }
         }
-        return (float) mosaics / count;
+        return new long[]{mosaics, count};
+    }
+
+    /**
+     * Count the mosaic pixels in a band of rows when a single different neighbor makes a mosaic
+     *
+     * @param pixels packed RGB pixels of the image
+     * @param width  width of the image
+     * @param height height of the image
+     * @param start  first row of the band
+     * @param end    row after the last row of the band
+     * @return number of mosaic pixels and number of pixels which are not background
+     */
+    static long[] getMosaicCounts(int[] pixels, int width, int height, int start, int end) {
+        int radius = Configuration.MOSAIC_NEIGHBORHOOD;
+        int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
+        //Neighborhoods of the band need rows above and below it
+        int first = Math.max(0, start - radius);
+        int last = Math.min(height, end + radius);
+        int rows = last - first;
+        int size = rows * width;
+
+        int[] channel = new int[size];
+        int[] rowMin = new int[size];
+        int[] rowMax = new int[size];
+        int[] min = new int[width];
+        int[] max = new int[width];
+        int[] buffers = new int[4 * (width + 4 * radius)];
+        //Whether a pixel is different from any of its neighbors
+        boolean[] mosaic = new boolean[size];
+
+        for (int shift = 0; shift <= 16; shift += 8) {
+            for (int i = 0; i < size; i++) {
+                channel[i] = (pixels[first * width + i] >> shift) & 0xFF;
+            }
+            //Neighborhood is a square so windows slide along the rows first. Row results of the rows in the
+            //neighborhood are then combined directly as whole rows.
+            for (int y = 0; y < rows; y++) {
+                slideWindow(channel, rowMin, rowMax, y * width, width, radius, buffers);
+            }
+            for (int y = start - first; y < end - first; y++) {
+                int top = Math.max(0, y - radius);
+                int bottom = Math.min(rows - 1, y + radius);
+                System.arraycopy(rowMin, top * width, min, 0, width);
+                System.arraycopy(rowMax, top * width, max, 0, width);
+                for (int j = top + 1; j <= bottom; j++) {
+                    for (int x = 0, row = j * width; x < width; x++) {
+                        min[x] = Math.min(min[x], rowMin[row + x]);
+                        max[x] = Math.max(max[x], rowMax[row + x]);
+                    }
+                }
+                for (int x = 0, row = y * width; x < width; x++) {
+                    mosaic[row + x] |= max[x] > channel[row + x] + limit || min[x] < channel[row + x] - limit;
+                }
+            }
+        }
+
+        long mosaics = 0;
+        long count = 0;
+        for (int i = (start - first) * width; i < (end - first) * width; i++) {
+            //Skipping if background
+            if (isBackground(pixels[first * width + i])) {
+                continue;
+            }
+            mosaics += mosaic[i] ? 1 : 0;
+            count++;
+        }
+        return new long[]{mosaics, count};
+    }
+
+    /**
+     * Find minimum and maximum of the sliding window of every value of a line (van Herk/Gil-Werman). The line is
+     * divided in blocks of the window size, so every window covers the suffix of a block and prefix of the next. Ends
+     * of the line are padded with values which never win so the windows near the ends only cover the line.
+     * REFERENCE: https://www.sciencedirect.com/science/article/pii/016786559290069C
+     *
+     * @param values  input values
+     * @param min     output minimums
+     * @param max     output maximums
+     * @param offset  index of the first value of the line
+     * @param length  number of values in the line
+     * @param radius  the window is the value and `radius` values on both sides
+     * @param buffers working space of size 4 times the padded length
+     */
+    static void slideWindow(int[] values, int[] min, int[] max, int offset, int length, int radius,
+                            int[] buffers) {
+        int window = 2 * radius + 1;
+        int padded = ((length + 2 * radius + window - 1) / window) * window;
+        int prefixMin = 0;
+        int prefixMax = padded;
+        int suffixMin = 2 * padded;
+        int suffixMax = 3 * padded;
+
+        for (int block = 0; block < padded; block += window) {
+            int currentMin = Integer.MAX_VALUE;
+            int currentMax = Integer.MIN_VALUE;
+            for (int i = block; i < block + window; i++) {
+                int index = i - radius;
+                if (index >= 0 && index < length) {
+                    int value = values[offset + index];
+                    currentMin = Math.min(currentMin, value);
+                    currentMax = Math.max(currentMax, value);
+                }
+                buffers[prefixMin + i] = currentMin;
+                buffers[prefixMax + i] = currentMax;
+            }
+            currentMin = Integer.MAX_VALUE;
+            currentMax = Integer.MIN_VALUE;
+            for (int i = block + window - 1; i >= block; i--) {
+                int index = i - radius;
+                if (index >= 0 && index < length) {
+                    int value = values[offset + index];
+                    currentMin = Math.min(currentMin, value);
+                    currentMax = Math.max(currentMax, value);
+                }
+                buffers[suffixMin + i] = currentMin;
+                buffers[suffixMax + i] = currentMax;
+            }
+        }
+        for (int index = 0; index < length; index++) {
+            int right = index + window - 1;
+            min[offset + index] = Math.min(buffers[suffixMin + index], buffers[prefixMin + right]);
+            max[offset + index] = Math.max(buffers[suffixMax + index], buffers[prefixMax + right]);
+        }
+    }
+
+    /**
+     * Check whether a pixel is similar to the background. It is `ImageUtils.isSimilar` inlined so that it can be used
+     * in tight loops.
+     *
+     * @param rgb packed RGB pixel
+     * @return true if background
+     */
+    static boolean isBackground(int rgb) {
+        int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
+        return Math.abs(((rgb >> 16) & 0xFF) - ((BACKGROUND >> 16) & 0xFF)) <= limit
+                && Math.abs(((rgb >> 8) & 0xFF) - ((BACKGROUND >> 8) & 0xFF)) <= limit
+                && Math.abs((rgb & 0xFF) - (BACKGROUND & 0xFF)) <= limit;
     }
 }
@@ -0,0 +1,445 @@
+package ant_art.evaluation;
+
+import ant_art.config.Configuration;
+import ant_art.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 09-05-2020 18:40
+ * Purpose: Coverage and mosaic scores (look `AntArtEvaluator`) of an ant area which are kept up to date while the cells
+ * are painted, so the scores can be read at any time without scanning the image.
+ * Every cell is painted with a single color, so whether a pixel of a cell is a mosaic depends only on the colors of the
+ * cells its neighborhood reaches and on which of them it reaches, which is decided by its position in the cell. When
+ * a cell changes color only the cells around it are counted again. Pixels of the image outside the cells (when the image
+ * size is not a multiple of the cell size) never change, so what they contribute is found once.
+ * Mosaic is decided by `AntArtEvaluator.isMosaic`. When a single different neighbor is enough the cells a pixel reaches
+ * are only checked for any different one, else the different pixels they put in its neighborhood are counted.
+ **/
+public class AreaMetrics {
+    private final int columns;
+    private final int rows;
+    private final int cellSize;
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int radius = Configuration.MOSAIC_NEIGHBORHOOD;
+    private final int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
+    //Number of cells on every side which a neighborhood can reach
+    private final int reach;
+    //Side of the square of cells which a neighborhood can reach
+    private final int span;
+    //Whether the different neighbors of the pixels are counted (look `AntArtEvaluator.ANY_DIFFERENT_NEIGHBOR`)
+    private final boolean counting = !AntArtEvaluator.ANY_DIFFERENT_NEIGHBOR;
+
+    //Packed RGB of every cell. Index of a cell is `column * rows + row`.
+    private final int[] colors;
+    //Number of mosaic pixels in every cell
+    private final int[] cellMosaics;
+    //For every pixel position in a cell, the cells its neighborhood reaches as bits of the square of reachable cells.
+    //Bit of a cell is `(dx + reach) * span + (dy + reach)`.
+    private final long[] reachMasks;
+    //Only when counting. For every pixel position in a cell, the pixels of every reachable cell in its neighborhood.
+    //Index is `position * span * span + bit`.
+    private final int[] reachCounts;
+    //For the cells near the pixels outside the cells: for every pixel position minimum and maximum of every channel of
+    //the outside pixels its neighborhood reaches. Null for other cells.
+    private final int[][] outsideExtremes;
+    //Only when counting. For the cells near the pixels outside the cells: for every pixel position the packed RGB of the
+    //outside pixels in its neighborhood. Null for other cells.
+    private final int[][][] outsideNeighbors;
+
+    //Pixels outside the cells which are not background. Their packed RGB, how many outside pixels in their
+    //neighborhood differ from them, the cells their neighborhood reaches with the pixels of each cell it covers and
+    //whether they are mosaic.
+    private final int[] outsideColors;
+    private final int[] outsideDifferentCounts;
+    private final int[][] outsideReachedCells;
+    private final int[][] outsideReachedCounts;
+    private final boolean[] outsideMosaic;
+    //For every cell the outside pixels whose neighborhood reaches it. Null if there are none.
+    private final int[][] reachingOutside;
+
+    private long coveredPixels;
+    private long mosaicPixels;
+
+    /**
+     * Create the metrics of an area. It is expected that every cell is already painted with a single color.
+     *
+     * @param image    image of the area
+     * @param columns  number of cells along the width
+     * @param rows     number of cells along the height
+     * @param cellSize size of a cell
+     */
+    public AreaMetrics(BufferedImage image, int columns, int rows, int cellSize) {
+        this.columns = columns;
+        this.rows = rows;
+        this.cellSize = cellSize;
+        this.imageWidth = image.getWidth();
+        this.imageHeight = image.getHeight();
+        this.reach = (radius + cellSize - 1) / cellSize;
+        this.span = 2 * reach + 1;
+        if (span * span > Long.SIZE) {
+            throw new IllegalArgumentException("Mosaic neighborhood is too large for the cell size");
+        }
+        int[] pixels = ImageUtils.getRGBPixels(image);
+
+        colors = new int[columns * rows];
+        for (int column = 0; column < columns; column++) {
+            for (int row = 0; row < rows; row++) {
+                colors[column * rows + row] = pixels[row * cellSize * imageWidth + column * cellSize] & 0xFFFFFF;
+            }
+        }
+
+        reachMasks = new long[cellSize * cellSize];
+        reachCounts = counting ? new int[reachMasks.length * span * span] : null;
+        for (int x = 0; x < cellSize; x++) {
+            for (int y = 0; y < cellSize; y++) {
+                long mask = 0;
+                for (int dx = -reach; dx <= reach; dx++) {
+                    for (int dy = -reach; dy <= reach; dy++) {
+                        if (reaches(x, dx) && reaches(y, dy) && (dx != 0 || dy != 0)) {
+                            mask |= 1L << bit(dx, dy);
+                        }
+                        if (counting) {
+                            reachCounts[(x * cellSize + y) * span * span + bit(dx, dy)] =
+                                    overlap(x, dx * cellSize) * overlap(y, dy * cellSize);
+                        }
+                    }
+                }
+                reachMasks[x * cellSize + y] = mask;
+            }
+        }
+
+        //Outside pixels
+        int cellsWidth = columns * cellSize;
+        int cellsHeight = rows * cellSize;
+        List<Integer> outside = new ArrayList<>();
+        for (int y = 0; y < imageHeight; y++) {
+            for (int x = y < cellsHeight ? cellsWidth : 0; x < imageWidth; x++) {
+                if (!AntArtEvaluator.isBackground(pixels[y * imageWidth + x])) {
+                    outside.add(y * imageWidth + x);
+                }
+            }
+        }
+        outsideColors = new int[outside.size()];
+        outsideDifferentCounts = new int[outside.size()];
+        outsideReachedCells = new int[outside.size()][];
+        outsideReachedCounts = new int[outside.size()][];
+        outsideMosaic = new boolean[outside.size()];
+        List<List<Integer>> reaching = new ArrayList<>();
+        for (int i = 0; i < colors.length; i++) {
+            reaching.add(null);
+        }
+        for (int i = 0; i < outside.size(); i++) {
+            int x = outside.get(i) % imageWidth;
+            int y = outside.get(i) / imageWidth;
+            outsideColors[i] = pixels[outside.get(i)];
+            for (int j = Math.max(0, y - radius); j <= Math.min(imageHeight - 1, y + radius); j++) {
+                for (int k = Math.max(0, x - radius); k <= Math.min(imageWidth - 1, x + radius); k++) {
+                    if (!isCell(k, j) && !ImageUtils.isSimilar(outsideColors[i], pixels[j * imageWidth + k])) {
+                        outsideDifferentCounts[i]++;
+                    }
+                }
+            }
+            List<Integer> cells = new ArrayList<>();
+            List<Integer> counts = new ArrayList<>();
+            for (int column = Math.max(0, (x - radius) / cellSize); column < columns
+                    && column * cellSize <= x + radius; column++) {
+                for (int row = Math.max(0, (y - radius) / cellSize); row < rows && row * cellSize <= y + radius; row++) {
+                    cells.add(column * rows + row);
+                    counts.add(overlap(x, column * cellSize) * overlap(y, row * cellSize));
+                    if (reaching.get(column * rows + row) == null) {
+                        reaching.set(column * rows + row, new ArrayList<>());
+                    }
+                    reaching.get(column * rows + row).add(i);
+                }
+            }
+            outsideReachedCells[i] = cells.stream().mapToInt(Integer::intValue).toArray();
+            outsideReachedCounts[i] = counts.stream().mapToInt(Integer::intValue).toArray();
+        }
+        reachingOutside = new int[colors.length][];
+        outsideExtremes = new int[colors.length][];
+        outsideNeighbors = counting ? new int[colors.length][][] : null;
+        for (int i = 0; i < colors.length; i++) {
+            if (reaching.get(i) != null) {
+                reachingOutside[i] = reaching.get(i).stream().mapToInt(Integer::intValue).toArray();
+            }
+            if (counting) {
+                outsideNeighbors[i] = getOutsideNeighbors(pixels, i / rows, i % rows);
+            } else {
+                outsideExtremes[i] = getOutsideExtremes(pixels, i / rows, i % rows);
+            }
+        }
+
+        //Initial counts
+        coveredPixels = outside.size();
+        for (int color : colors) {
+            coveredPixels += AntArtEvaluator.isBackground(color) ? 0 : cellSize * cellSize;
+        }
+        cellMosaics = new int[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            cellMosaics[i] = countCellMosaics(i / rows, i % rows);
+            mosaicPixels += cellMosaics[i];
+        }
+        for (int i = 0; i < outsideColors.length; i++) {
+            outsideMosaic[i] = isOutsideMosaic(i);
+            mosaicPixels += outsideMosaic[i] ? 1 : 0;
+        }
+    }
+
+    /**
+     * Update the color of a cell. It should be called whenever a cell is painted.
+     *
+     * @param column column of the cell
+     * @param row    row of the cell
+     * @param rgb    new packed RGB color of the cell
+     */
+    public void update(int column, int row, int rgb) {
+        int index = column * rows + row;
+        rgb &= 0xFFFFFF;
+        if (colors[index] == rgb) {
+            return;
+        }
+        coveredPixels -= AntArtEvaluator.isBackground(colors[index]) ? 0 : cellSize * cellSize;
+        coveredPixels += AntArtEvaluator.isBackground(rgb) ? 0 : cellSize * cellSize;
+        colors[index] = rgb;
+
+        //Count again the cells which can reach this cell
+        for (int i = Math.max(0, column - reach); i <= Math.min(columns - 1, column + reach); i++) {
+            for (int j = Math.max(0, row - reach); j <= Math.min(rows - 1, row + reach); j++) {
+                int mosaics = countCellMosaics(i, j);
+                mosaicPixels += mosaics - cellMosaics[i * rows + j];
+                cellMosaics[i * rows + j] = mosaics;
+            }
+        }
+        if (reachingOutside[index] != null) {
+            for (int i : reachingOutside[index]) {
+                boolean mosaic = isOutsideMosaic(i);
+                mosaicPixels += (mosaic ? 1 : 0) - (outsideMosaic[i] ? 1 : 0);
+                outsideMosaic[i] = mosaic;
+            }
+        }
+    }
+
+    /**
+     * @return ratio of the pixels which are not background. Same as `AntArtEvaluator.getCoverage` of the image.
+     */
+    public float getCoverage() {
+        return (float) coveredPixels / ((long) imageWidth * imageHeight);
+    }
+
+    /**
+     * @return mosaic score of the area. Same as `AntArtEvaluator.getMosaicScore` of the image.
+     */
+    public float getMosaicScore() {
+        return (float) mosaicPixels / coveredPixels;
+    }
+
+    /**
+     * Count the mosaic pixels of a cell
+     *
+     * @param column column of the cell
+     * @param row    row of the cell
+     * @return number of mosaic pixels
+     */
+    private int countCellMosaics(int column, int row) {
+        int color = colors[column * rows + row];
+        //Background pixels are not counted
+        if (AntArtEvaluator.isBackground(color)) {
+            return 0;
+        }
+        long different = 0;
+        for (int dx = -reach; dx <= reach; dx++) {
+            for (int dy = -reach; dy <= reach; dy++) {
+                int i = column + dx;
+                int j = row + dy;
+                if (i >= 0 && i < columns && j >= 0 && j < rows && !ImageUtils.isSimilar(color, colors[i * rows + j])) {
+                    different |= 1L << bit(dx, dy);
+                }
+            }
+        }
+        if (counting) {
+            return countDifferentNeighbors(column * rows + row, color, different);
+        }
+        int[] extremes = outsideExtremes[column * rows + row];
+        int mosaics = 0;
+        for (int position = 0; position < reachMasks.length; position++) {
+            if ((reachMasks[position] & different) != 0
+                    || (extremes != null && !isWithin(color, extremes, position * 6))) {
+                mosaics++;
+            }
+        }
+        return mosaics;
+    }
+
+    /**
+     * Count the mosaic pixels of a cell from the number of different neighbors of every pixel position
+     *
+     * @param index     index of the cell
+     * @param color     packed RGB of the cell
+     * @param different bits of the reachable cells which are different from the cell
+     * @return number of mosaic pixels
+     */
+    private int countDifferentNeighbors(int index, int color, long different) {
+        int area = span * span;
+        int[][] outside = outsideNeighbors[index];
+        int mosaics = 0;
+        for (int position = 0; position < reachMasks.length; position++) {
+            int differentNeighbors = 0;
+            for (long bits = different; bits != 0; bits &= bits - 1) {
+                differentNeighbors += reachCounts[position * area + Long.numberOfTrailingZeros(bits)];
+            }
+            if (outside != null) {
+                for (int rgb : outside[position]) {
+                    differentNeighbors += ImageUtils.isSimilar(color, rgb) ? 0 : 1;
+                }
+            }
+            mosaics += AntArtEvaluator.isMosaic(differentNeighbors) ? 1 : 0;
+        }
+        return mosaics;
+    }
+
+    /**
+     * @param index index of an outside pixel
+     * @return true if the pixel is a mosaic
+     */
+    private boolean isOutsideMosaic(int index) {
+        if (counting) {
+            int differentNeighbors = outsideDifferentCounts[index];
+            for (int i = 0; i < outsideReachedCells[index].length; i++) {
+                if (!ImageUtils.isSimilar(outsideColors[index], colors[outsideReachedCells[index][i]])) {
+                    differentNeighbors += outsideReachedCounts[index][i];
+                }
+            }
+            return AntArtEvaluator.isMosaic(differentNeighbors);
+        }
+        if (outsideDifferentCounts[index] > 0) {
+            return true;
+        }
+        for (int cell : outsideReachedCells[index]) {
+            if (!ImageUtils.isSimilar(outsideColors[index], colors[cell])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the extremes of the outside pixels reached by the neighborhoods of the pixels of a cell
+     *
+     * @param pixels packed RGB pixels of the image
+     * @param column column of the cell
+     * @param row    row of the cell
+     * @return minimum and maximum of the red, green and blue channels for every pixel position of the cell or null if
+     * no outside pixel is reached
+     */
+    private int[] getOutsideExtremes(int[] pixels, int column, int row) {
+        if ((column + 1) * cellSize + radius <= columns * cellSize && (row + 1) * cellSize + radius <= rows * cellSize) {
+            return null;
+        }
+        int[] extremes = new int[reachMasks.length * 6];
+        boolean found = false;
+        for (int position = 0; position < reachMasks.length; position++) {
+            int x = column * cellSize + position / cellSize;
+            int y = row * cellSize + position % cellSize;
+            for (int shift = 16, at = position * 6; shift >= 0; shift -= 8, at += 2) {
+                extremes[at] = Integer.MAX_VALUE;
+                extremes[at + 1] = Integer.MIN_VALUE;
+            }
+            for (int j = Math.max(0, y - radius); j <= Math.min(imageHeight - 1, y + radius); j++) {
+                for (int k = Math.max(0, x - radius); k <= Math.min(imageWidth - 1, x + radius); k++) {
+                    if (isCell(k, j)) {
+                        continue;
+                    }
+                    found = true;
+                    for (int shift = 16, at = position * 6; shift >= 0; shift -= 8, at += 2) {
+                        int value = (pixels[j * imageWidth + k] >> shift) & 0xFF;
+                        extremes[at] = Math.min(extremes[at], value);
+                        extremes[at + 1] = Math.max(extremes[at + 1], value);
+                    }
+                }
+            }
+        }
+        return found ? extremes : null;
+    }
+
+    /**
+     * Find the outside pixels in the neighborhoods of the pixels of a cell
+     *
+     * @param pixels packed RGB pixels of the image
+     * @param column column of the cell
+     * @param row    row of the cell
+     * @return packed RGB of the outside pixels for every pixel position of the cell or null if no outside pixel is
+     * reached
+     */
+    private int[][] getOutsideNeighbors(int[] pixels, int column, int row) {
+        if ((column + 1) * cellSize + radius <= columns * cellSize && (row + 1) * cellSize + radius <= rows * cellSize) {
+            return null;
+        }
+        int[][] neighbors = new int[reachMasks.length][];
+        boolean found = false;
+        for (int position = 0; position < reachMasks.length; position++) {
+            int x = column * cellSize + position / cellSize;
+            int y = row * cellSize + position % cellSize;
+            List<Integer> reached = new ArrayList<>();
+            for (int j = Math.max(0, y - radius); j <= Math.min(imageHeight - 1, y + radius); j++) {
+                for (int k = Math.max(0, x - radius); k <= Math.min(imageWidth - 1, x + radius); k++) {
+                    if (!isCell(k, j)) {
+                        reached.add(pixels[j * imageWidth + k]);
+                    }
+                }
+            }
+            found |= !reached.isEmpty();
+            neighbors[position] = reached.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return found ? neighbors : null;
+    }
+
+    /**
+     * @param rgb      packed RGB color
+     * @param extremes minimum and maximum of the channels
+     * @param at       index of the extremes
+     * @return true if all the channel values between the extremes are similar to the color
+     */
+    private boolean isWithin(int rgb, int[] extremes, int at) {
+        for (int shift = 16; shift >= 0; shift -= 8, at += 2) {
+            int value = (rgb >> shift) & 0xFF;
+            if (extremes[at] < value - limit || extremes[at + 1] > value + limit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param position position of a pixel along a side of the cell
+     * @param cells    number of cells away along the same side
+     * @return true if the neighborhood of the pixel reaches the cell
+     */
+    private boolean reaches(int position, int cells) {
+        //Nearest pixel of the other cell
+        int nearest = cells < 0 ? cells * cellSize + cellSize - 1 : cells * cellSize;
+        return cells == 0 || Math.abs(nearest - position) <= radius;
+    }
+
+    /**
+     * @param position  position of a pixel along a side
+     * @param cellStart first position of a cell along the same side
+     * @return number of positions of the cell within the neighborhood of the pixel
+     */
+    private int overlap(int position, int cellStart) {
+        return Math.max(0, Math.min(position + radius, cellStart + cellSize - 1) - Math.max(position - radius,
+                cellStart) + 1);
+    }
+
+    private int bit(int dx, int dy) {
+        return (dx + reach) * span + (dy + reach);
+    }
+
+    private boolean isCell(int x, int y) {
+        return x < columns * cellSize && y < rows * cellSize;
+    }
+}
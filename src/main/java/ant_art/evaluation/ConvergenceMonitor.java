@@ -0,0 +1,113 @@
+package ant_art.evaluation;
+
+import ant_art.config.Configuration;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 10-05-2020 11:25
+ * Purpose: Decides when a simulation can stop. It watches the progress of the simulation over a window of ticks and the
+ * simulation is converged when the coverage has stopped changing and either the food is almost finished or no new
+ * sites are being made. A simulation always runs for a minimum and never for more than a maximum number of ticks.
+ **/
+public class ConvergenceMonitor {
+    private final int minTicks;
+    private final int maxTicks;
+    private final int window;
+    private final float maxCoverageChange;
+    private final float maxSiteRate;
+    private final float foodRemainingThreshold;
+
+    //Coverage and site count of the last `window` ticks. Value of a tick is at `tick % window`.
+    private final float[] coverages;
+    private final int[] sites;
+    private int ticks;
+    private float coverageChange = Float.NaN;
+    private float siteRate = Float.NaN;
+    private float foodRemaining = 1;
+
+    public ConvergenceMonitor() {
+        this(Configuration.GUI.FPS);
+    }
+
+    /**
+     * @param fps ticks per second of the simulation. Configured durations are converted to ticks with it.
+     */
+    public ConvergenceMonitor(int fps) {
+        this(Configuration.Termination.MIN_SECONDS * fps, Configuration.Termination.MAX_SECONDS * fps,
+                Configuration.Termination.WINDOW_SECONDS * fps, Configuration.Termination.MAX_COVERAGE_CHANGE,
+                Configuration.Termination.MAX_SITE_RATE, Configuration.Termination.FOOD_REMAINING_THRESHOLD);
+    }
+
+    /**
+     * @param minTicks               ticks before which the simulation is never converged
+     * @param maxTicks               ticks after which the simulation is always finished
+     * @param window                 number of ticks over which the changes are measured
+     * @param maxCoverageChange      largest change of the coverage over the window for a converged simulation
+     * @param maxSiteRate            largest ratio of the food cells which became sites over the window for a converged
+     *                               simulation
+     * @param foodRemainingThreshold ratio of the food left below which new sites are not expected
+     */
+    public ConvergenceMonitor(int minTicks, int maxTicks, int window, float maxCoverageChange, float maxSiteRate,
+                              float foodRemainingThreshold) {
+        this.minTicks = minTicks;
+        this.maxTicks = maxTicks;
+        this.window = window;
+        this.maxCoverageChange = maxCoverageChange;
+        this.maxSiteRate = maxSiteRate;
+        this.foodRemainingThreshold = foodRemainingThreshold;
+        this.coverages = new float[window];
+        this.sites = new int[window];
+    }
+
+    /**
+     * Record the state of the simulation after a tick
+     *
+     * @param coverage      current coverage of the area
+     * @param siteCells     number of cells which became sites till now
+     * @param foodCells     number of food cells at the start
+     * @param foodRemaining ratio of the food which is not picked up yet
+     */
+    public void update(float coverage, int siteCells, int foodCells, float foodRemaining) {
+        int slot = ticks % window;
+        //The slot keeps the value of `window` ticks ago till it is overwritten
+        if (ticks >= window) {
+            coverageChange = Math.abs(coverage - coverages[slot]);
+            siteRate = (float) (siteCells - sites[slot]) / Math.max(1, foodCells);
+        }
+        coverages[slot] = coverage;
+        sites[slot] = siteCells;
+        this.foodRemaining = foodRemaining;
+        ticks++;
+    }
+
+    /**
+     * @return true if the image is not changing anymore
+     */
+    public boolean isConverged() {
+        if (ticks < minTicks || ticks <= window) {
+            return false;
+        }
+        return coverageChange <= maxCoverageChange && (foodRemaining <= foodRemainingThreshold || siteRate <= maxSiteRate);
+    }
+
+    /**
+     * @return true if the simulation should stop
+     */
+    public boolean isFinished() {
+        return ticks >= maxTicks || isConverged();
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getMaxTicks() {
+        return maxTicks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ticks:%s coverage change:%.4f new sites:%.4f food left:%.3f", ticks, coverageChange,
+                siteRate, foodRemaining);
+    }
+}
@@ -2,18 +2,16 @@ package ant_art.gui;
 
 import ant_art.config.Configuration;
 import ant_art.entities.AntArea;
-import ant_art.evaluation.AntArtEvaluator;
+import ant_art.evaluation.ConvergenceMonitor;
+import ant_art.simulation.OutputGenerator;
 import ant_art.utils.ImageUtils;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 
 /**
  * Created By: Prashant Chaubey
@@ -25,7 +23,7 @@ public class Renderer extends JFrame implements Runnable {
     private int width;
     private int height;
     private Thread renderThread;
-    private boolean running;
+    private volatile boolean running;
     private int fps;
     private BufferStrategy viewBs;
     private final AntArea antArea;
@@ -34,8 +32,10 @@ public class Renderer extends JFrame implements Runnable {
     // In seconds
     private int duration;
     private int sampleInterval;
-    private ImageUtils.GIFBuilder gifBuilder;
+    private ImageUtils.StreamingGIFBuilder gifBuilder;
     private File inputFile;
+    //Decides when the simulation stops. If null the simulation runs for `duration`.
+    private ConvergenceMonitor convergence;
 
     public Renderer(AntArea antArea, String title, int fps, int duration, int sampleInterval, File inputFile) {
         super(title);
@@ -49,8 +49,11 @@ public class Renderer extends JFrame implements Runnable {
         this.height = antArea.getHeight() + offSet;
         this.width = antArea.getWidth() + offSet;
 
-        this.gifBuilder = new ImageUtils.GIFBuilder();
         this.inputFile = inputFile;
+        if (Configuration.Termination.ENABLED) {
+            //Ticks of the termination follow the FPS this simulation runs at which can be calibrated
+            this.convergence = new ConvergenceMonitor(fps);
+        }
     }
 
     /**
@@ -80,77 +83,16 @@ public class Renderer extends JFrame implements Runnable {
     }
 
     /**
-     * Generate output files. It should be called at the end of the simulation
-     */
-    private void generateOutputs() {
-        //Remove extension from the output file
-        String outputFileName = inputFile.getName().substring(0, inputFile.getName().lastIndexOf("."));
-        String gifDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.GIF_RELATIVE;
-        String rawDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.RAW_RELATIVE;
-        String oilPaintedDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.OIL_PAINTED_RELATIVE;
-
-        try {
-            gifBuilder.create(new File(gifDir + "/" + outputFileName + ".gif"),
-                    Configuration.OUTPUT_GIF_DELAY, Configuration.OUTPUT_GIF_LOOPING);
-            ImageIO.write(ImageUtils.deepCopy(antArea.getMapImage()), Configuration.Outputs.IMG_FORMAT,
-                    new File(rawDir + "/" + outputFileName + "_raw.jpg"));
-
-            BufferedImage oilPainting = new ImageUtils.OilPainter().paint(antArea.getMapImage());
-            ImageIO.write(oilPainting, "jpg", new File(oilPaintedDir + "/" + outputFileName + "_oil_painted.jpg"));
-
-        } catch (IOException e) {
-            System.out.println("Not able to create output files.");
-            e.printStackTrace();
-        }
-    }
-
-    private void evaluateOutputs() {
-        System.out.println("Evaluating output image...");
-        System.out.println("For large images it can take some time. BE PATIENT");
-
-        float coverageScore = AntArtEvaluator.getCoverage(antArea.getMapImage());
-        float mosaicScore = AntArtEvaluator.getMosaicScore(antArea.getMapImage());
-
-        System.out.println("************************RESULTS***********************");
-        System.out.println("Coverage Score:" + coverageScore);
-        System.out.println("Mosaic Score:" + mosaicScore);
-        System.out.println("******************************************************");
-
-        System.out.println("************************COMMENTS***********************");
-        if (coverageScore <= 0.15f) {
-            System.out.println("WARNING!!! Too low coverage score consider increasing the color count to capture more image");
-        } else if (coverageScore >= 0.85f) {
-            System.out.println("WARNING!!! Too high coverage score consider decreasing the color count to get better results");
-        } else {
-            System.out.println("Good coverage");
-        }
-        if (mosaicScore < .85f) {
-            System.out.println("WARNING!!! Too low mosaic score. Rerun the simulation");
-        } else if (mosaicScore < 0.90f) {
-            System.out.println("WARNING!!! Low mosaic score. Results can be improved by reruning the simulation");
-        } else {
-            System.out.println("Good mosaic score");
-        }
-        System.out.println("*******************************************************");
-    }
-
-    /**
-     * Clean up
+     * Clean up. The application exits after all the outputs are generated.
      */
     private void shutDown() {
-        antArea.shutDown();
-        generateOutputs();
-        evaluateOutputs();
-
-        //Moving input file to processed
-        if (!inputFile.renameTo(new File(Configuration.Directories.PROCESSED + "/" + inputFile.getName()))) {
-            System.out.println("Not able to move the input file to processed. Kindly move that manually or that file will" +
-                    "be picked up in next simulation");
+        if (!running) {
+            return;
         }
-        System.out.println("Now you can CLOSE the window and LOOK the outputs");
         //Close the rendering thread
         running = false;
-        if (renderThread != null) {
+        //It is mostly called from the rendering thread itself which will stop after this call.
+        if (renderThread != null && renderThread != Thread.currentThread()) {
             try {
                 //Wait for view thread to finish.
                 renderThread.join();
@@ -159,7 +101,12 @@ public class Renderer extends JFrame implements Runnable {
                 System.out.println("Error happened while closing view thread.");
             }
         }
-        System.exit(0);
+        antArea.shutDown();
+        //Outputs are generated on daemon threads so the application has to wait for them before exiting.
+        OutputGenerator.generate(antArea, gifBuilder, inputFile).whenComplete((result, e) -> {
+            System.out.println("Now you can LOOK the outputs");
+            System.exit(0);
+        });
     }
 
     /**
@@ -169,6 +116,10 @@ public class Renderer extends JFrame implements Runnable {
         if (showGui) {
             createUI();
         }
+        gifBuilder = OutputGenerator.openGIF(antArea, OutputGenerator.getGIFFile(inputFile));
+        if (Configuration.OUTPUT_EVENT_LOG) {
+            OutputGenerator.startEventLog(antArea, OutputGenerator.getEventLogFile(inputFile));
+        }
         //Create rendering thread. The thread mechanism is implemented as rendering UI on separate thread is lot faster.
         running = true;
         renderThread = new Thread(this);
@@ -200,11 +151,18 @@ public class Renderer extends JFrame implements Runnable {
             while (timeDelta >= 1) {
                 timeDelta--;
                 antArea.update();
+                if (convergence != null) {
+                    convergence.update(antArea.getMetrics().getCoverage(), antArea.getSiteCount(),
+                            antArea.getFoodCellCount(), antArea.getFoodRemaining());
+                }
                 //Take a snapshot of image
                 if (now - samplingTimer > sampleInterval * 1000) {
                     samplingTimer = now;
-                    System.out.println("Sample taken...");
-                    gifBuilder.addImage(ImageUtils.deepCopy(antArea.getMapImage()));
+                    System.out.println(String.format("Sample taken... Coverage:%.3f Mosaic:%.3f",
+                            antArea.getMetrics().getCoverage(), antArea.getMetrics().getMosaicScore()));
+                    if (gifBuilder != null) {
+                        gifBuilder.addImage(antArea.getMapImage());
+                    }
                 }
                 if (showGui) {
                     long timeLeft = duration - ((now - timer) / 1000);
@@ -228,8 +186,12 @@ public class Renderer extends JFrame implements Runnable {
                 updates = 0;
             }
             //Check simulation is completed or not.
-            if ((now - timer) > (duration * 1000)) {
-                System.out.println("Simulation completed.");
+            if (convergence != null ? convergence.isFinished() : (now - timer) > (duration * 1000)) {
+                if (convergence != null && convergence.isConverged()) {
+                    System.out.println("Simulation converged. " + convergence);
+                } else {
+                    System.out.println("Simulation completed.");
+                }
                 shutDown();
             }
             //If updates are constantly accumulating it means FPS is not set right.
@@ -250,7 +212,13 @@ public class Renderer extends JFrame implements Runnable {
         Graphics g = viewBs.getDrawGraphics();
         g.clearRect(0, 0, view.getWidth(), view.getHeight());
 
-        g.drawString("Time left: " + timeLeft + " seconds", 20, 20);
+        if (convergence != null) {
+            g.drawString("Ticks: " + convergence.getTicks() + " of at most " + convergence.getMaxTicks(), 20, 20);
+        } else {
+            g.drawString("Time left: " + timeLeft + " seconds", 20, 20);
+        }
+        g.drawString(String.format("Coverage: %.3f Mosaic: %.3f", antArea.getMetrics().getCoverage(),
+                antArea.getMetrics().getMosaicScore()), 220, 20);
 
         //Draw the image
         int xOffset = (view.getWidth() - antArea.getWidth()) / 2;
@@ -0,0 +1,165 @@
+package ant_art.simulation;
+
+import ant_art.config.Configuration;
+import ant_art.exceptions.AntArtException;
+import ant_art.utils.MarkovChain;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 10-05-2020 17:10
+ * Purpose: Runs simulations of the same image with different seeds concurrently and keeps the outputs of the best one.
+ * Profiling and training of the chains is done once and shared by all the runs.
+ **/
+public class Ensemble {
+    private final MarkovChain[] chains;
+    private final BufferedImage image;
+    private final List<Color> targetColors;
+    private final File inputFile;
+    private final int runs;
+    private final Random random;
+
+    /**
+     * @param chains       chains of the target colors
+     * @param image        input image
+     * @param targetColors target colors of the input image
+     * @param inputFile    input file of the simulations
+     * @param runs         number of simulations
+     * @param seed         seed from which the seeds of the simulations are taken
+     */
+    public Ensemble(MarkovChain[] chains, BufferedImage image, List<Color> targetColors, File inputFile, int runs,
+                    long seed) {
+        assert runs > 0;
+        this.chains = chains;
+        this.image = image;
+        this.targetColors = targetColors;
+        this.inputFile = inputFile;
+        this.runs = runs;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Run all the simulations and generate the outputs of the best one. GIFs and event logs of the other simulations
+     * are deleted. Failed simulations are reported and skipped.
+     *
+     * @return future which completes when the outputs of the best simulation are generated
+     */
+    public CompletableFuture<Void> execute() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(runs,
+                Runtime.getRuntime().availableProcessors()), runnable -> new Thread(runnable, "ensemble-run"));
+        File gifFile = OutputGenerator.getGIFFile(inputFile);
+        String gifName = gifFile.getName().substring(0, gifFile.getName().lastIndexOf("."));
+        File eventLogFile = OutputGenerator.getEventLogFile(inputFile);
+
+        List<CompletableFuture<Simulation>> simulations = new ArrayList<>();
+        List<File> runGIFFiles = new ArrayList<>();
+        List<File> runEventLogFiles = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            int run = i;
+            long seed = random.nextLong();
+            File runGIFFile = new File(gifFile.getParentFile(), gifName + "_run" + i + ".gif");
+            File runEventLogFile = Configuration.OUTPUT_EVENT_LOG ?
+                    new File(eventLogFile.getParentFile(), gifName + "_run" + i + ".alog") : null;
+            runGIFFiles.add(runGIFFile);
+            runEventLogFiles.add(runEventLogFile);
+            //A failed run is reported and left out of the ranking so it doesn't abort the others
+            simulations.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new Simulation(chains, image, targetColors, seed, runGIFFile).logEvents(runEventLogFile)
+                            .run();
+
+                } catch (AntArtException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor).handle((simulation, e) -> {
+                if (e != null) {
+                    System.out.println(String.format("Simulation failed for the run:%s seed:%s", run, seed));
+                    e.printStackTrace();
+                    return null;
+                }
+                return simulation;
+            }));
+        }
+        executor.shutdown();
+
+        return CompletableFuture.allOf(simulations.toArray(new CompletableFuture<?>[0])).thenCompose(ignore -> {
+            List<Simulation> results = new ArrayList<>();
+            simulations.forEach(simulation -> results.add(simulation.join()));
+            Simulation best = results.stream().filter(Objects::nonNull).min(RANKING).orElse(null);
+
+            System.out.println("************************ENSEMBLE**********************");
+            for (int i = 0; i < results.size(); i++) {
+                Simulation simulation = results.get(i);
+                if (simulation == null) {
+                    System.out.println(String.format("Run:%s FAILED", i));
+                    continue;
+                }
+                System.out.println(String.format("Run:%s Seed:%s Ticks:%s Coverage:%.3f Mosaic:%.3f%s", i,
+                        simulation.getSeed(), simulation.getConvergence().getTicks(), simulation.getCoverage(),
+                        simulation.getMosaicScore(), simulation == best ? " <- BEST" : ""));
+            }
+            System.out.println("******************************************************");
+
+            //Files of the failed runs are removed as well
+            for (int i = 0; i < results.size(); i++) {
+                Simulation simulation = results.get(i);
+                if (simulation != null && simulation == best) {
+                    keepFile(simulation.getGIFFile(), gifFile);
+                    keepFile(simulation.getEventLogFile(), eventLogFile);
+                } else {
+                    keepFile(runGIFFiles.get(i), null);
+                    keepFile(runEventLogFiles.get(i), null);
+                }
+            }
+            if (best == null) {
+                //Input file is not moved so it is picked up again
+                System.out.println("All the simulations failed. No outputs are generated.");
+                return CompletableFuture.completedFuture(null);
+            }
+            return OutputGenerator.generate(best.getAntArea(), null, inputFile);
+        });
+    }
+
+    //Simulations with a good coverage are better than others. Ties are broken by the higher mosaic score.
+    private static final Comparator<Simulation> RANKING = Comparator.<Simulation, Boolean>comparing(simulation ->
+            simulation.getCoverage() > OutputGenerator.LOW_COVERAGE
+                    && simulation.getCoverage() < OutputGenerator.HIGH_COVERAGE).reversed()
+            .thenComparing(Comparator.comparing(Simulation::getMosaicScore).reversed());
+
+    /**
+     * Keep an output file of a simulation at the target file or delete it
+     *
+     * @param runFile output of a simulation or null if there is no output
+     * @param target  file where the output is kept or null if the output is deleted
+     */
+    private static void keepFile(File runFile, File target) {
+        if (runFile == null) {
+            return;
+        }
+        try {
+            if (target == null) {
+                Files.deleteIfExists(runFile.toPath());
+            } else {
+                Files.move(runFile.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            System.out.println("Not able to clean up the output:" + runFile);
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package ant_art.simulation;
+
+import ant_art.config.Configuration;
+import ant_art.entities.AntArea;
+import ant_art.utils.GIFPalette;
+import ant_art.utils.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 10-05-2020 16:05
+ * Purpose: Output files of a simulation. Used by the GUI and by the headless runs.
+ **/
+public final class OutputGenerator {
+    //Shared by all the simulations so outputs of one simulation can be generated while the next one is running.
+    private static final ExecutorService OUTPUT_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "output-generator");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    //Coverage outside these limits gives poor results
+    static final float LOW_COVERAGE = 0.15f;
+    static final float HIGH_COVERAGE = 0.85f;
+
+    private OutputGenerator() {
+    }
+
+    /**
+     * @param inputFile input file of the simulation
+     * @return name of the output files which is the input file name without extension
+     */
+    public static String getOutputFileName(File inputFile) {
+        return inputFile.getName().substring(0, inputFile.getName().lastIndexOf("."));
+    }
+
+    /**
+     * @param inputFile input file of the simulation
+     * @return output GIF file of the simulation
+     */
+    public static File getGIFFile(File inputFile) {
+        String gifDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.GIF_RELATIVE;
+        return new File(gifDir + "/" + getOutputFileName(inputFile) + ".gif");
+    }
+
+    /**
+     * @param inputFile input file of the simulation
+     * @return event log file of the simulation
+     */
+    public static File getEventLogFile(File inputFile) {
+        String logDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.EVENT_LOG_RELATIVE;
+        return new File(logDir + "/" + getOutputFileName(inputFile) + ".alog");
+    }
+
+    /**
+     * Start logging the paints of an area
+     *
+     * @param antArea ant area
+     * @param logFile output file
+     * @return true if the paints are logged
+     */
+    public static boolean startEventLog(AntArea antArea, File logFile) {
+        try {
+            antArea.startEventLog(logFile);
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("Not able to create the event log. Continuing without it.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Open the GIF sequence of an area. Snapshots are encoded as they are taken so nothing is buffered till the end.
+     *
+     * @param antArea ant area
+     * @param gifFile output file
+     * @return GIF builder or null if not able to create the GIF
+     */
+    public static ImageUtils.StreamingGIFBuilder openGIF(AntArea antArea, File gifFile) {
+        //Frames of an indexed area are already indexes of its palette
+        GIFPalette palette = antArea.getPalette();
+        if (palette == null && Configuration.OUTPUT_GIF_FIXED_PALETTE) {
+            palette = GIFPalette.create(antArea.getPaintColors(), Configuration.OUTPUT_GIF_SHADE_LEVELS);
+        }
+        try {
+            return new ImageUtils.StreamingGIFBuilder(gifFile, antArea.getMapImage(), palette,
+                    Configuration.OUTPUT_GIF_DELAY, Configuration.OUTPUT_GIF_LOOPING,
+                    Configuration.OUTPUT_GIF_FRAME_POOL_SIZE);
+
+        } catch (IOException e) {
+            System.out.println("Not able to create the GIF. Continuing without it.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Generate output files. It should be called at the end of the simulation. GIF, raw image, oil painting and
+     * evaluation don't depend on each other so they run concurrently on the output executor. The input file is moved
+     * after all of them are completed.
+     *
+     * @param antArea    area at the end of the simulation
+     * @param gifBuilder GIF of the simulation or null if there is no GIF to finish
+     * @param inputFile  input file of the simulation
+     * @return future which completes when all the outputs are generated and the input file is moved
+     */
+    public static CompletableFuture<Void> generate(AntArea antArea, ImageUtils.StreamingGIFBuilder gifBuilder,
+                                                   File inputFile) {
+        //Remove extension from the output file
+        String outputFileName = getOutputFileName(inputFile);
+        String rawDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.RAW_RELATIVE;
+        String oilPaintedDir = Configuration.Directories.OUTPUT + "/" + Configuration.Directories.OIL_PAINTED_RELATIVE;
+        //All the outputs are generated from this copy so nobody depends on the area after this point.
+        BufferedImage finalImage = ImageUtils.deepCopy(antArea.getMapImage());
+
+        CompletableFuture<Void> gif = CompletableFuture.runAsync(() -> {
+            try {
+                if (gifBuilder != null) {
+                    gifBuilder.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Not able to create the GIF.");
+                e.printStackTrace();
+            }
+        }, OUTPUT_EXECUTOR);
+        CompletableFuture<Void> raw = CompletableFuture.runAsync(() -> writeImage(finalImage,
+                new File(rawDir + "/" + outputFileName + "_raw.jpg")), OUTPUT_EXECUTOR);
+        CompletableFuture<Void> oilPainting = CompletableFuture.runAsync(() -> writeImage(
+                new ImageUtils.OilPainter().paint(finalImage),
+                new File(oilPaintedDir + "/" + outputFileName + "_oil_painted.jpg")), OUTPUT_EXECUTOR);
+        //Scores are kept up to date by the area so the output image is not scanned again
+        float coverageScore = antArea.getMetrics().getCoverage();
+        float mosaicScore = antArea.getMetrics().getMosaicScore();
+        CompletableFuture<Void> evaluation = CompletableFuture.runAsync(() -> evaluateOutputs(coverageScore,
+                mosaicScore), OUTPUT_EXECUTOR);
+
+        return CompletableFuture.allOf(gif, raw, oilPainting, evaluation).handle((result, e) -> {
+            if (e != null) {
+                System.out.println("Error happened while generating outputs.");
+                e.printStackTrace();
+            }
+            moveInputFile(inputFile);
+            return null;
+        });
+    }
+
+    /**
+     * Write an image in the output format
+     *
+     * @param image      input image
+     * @param outputFile output file
+     */
+    private static void writeImage(BufferedImage image, File outputFile) {
+        try {
+            ImageIO.write(image, Configuration.Outputs.IMG_FORMAT, outputFile);
+
+        } catch (IOException e) {
+            System.out.println("Not able to create output file:" + outputFile);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Move the input file to the processed directory
+     *
+     * @param inputFile input file of the simulation
+     */
+    private static void moveInputFile(File inputFile) {
+        if (!inputFile.renameTo(new File(Configuration.Directories.PROCESSED + "/" + inputFile.getName()))) {
+            System.out.println("Not able to move the input file to processed. Kindly move that manually or that file will" +
+                    "be picked up in next simulation");
+        }
+    }
+
+    /**
+     * Print the evaluation results of the output image
+     *
+     * @param coverageScore coverage score of the output image (look `AntArtEvaluator.getCoverage`)
+     * @param mosaicScore   mosaic score of the output image (look `AntArtEvaluator.getMosaicScore`)
+     */
+    private static void evaluateOutputs(float coverageScore, float mosaicScore) {
+
+        System.out.println("************************RESULTS***********************");
+        System.out.println("Coverage Score:" + coverageScore);
+        System.out.println("Mosaic Score:" + mosaicScore);
+        System.out.println("******************************************************");
+
+        System.out.println("************************COMMENTS***********************");
+        if (coverageScore <= LOW_COVERAGE) {
+            System.out.println("WARNING!!! Too low coverage score consider increasing the color count to capture more image");
+        } else if (coverageScore >= HIGH_COVERAGE) {
+            System.out.println("WARNING!!! Too high coverage score consider decreasing the color count to get better results");
+        } else {
+            System.out.println("Good coverage");
+        }
+        if (mosaicScore < .85f) {
+            System.out.println("WARNING!!! Too low mosaic score. Rerun the simulation");
+        } else if (mosaicScore < 0.90f) {
+            System.out.println("WARNING!!! Low mosaic score. Results can be improved by reruning the simulation");
+        } else {
+            System.out.println("Good mosaic score");
+        }
+        System.out.println("*******************************************************");
+    }
+}
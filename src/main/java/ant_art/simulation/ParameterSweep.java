@@ -0,0 +1,196 @@
+package ant_art.simulation;
+
+import ant_art.config.SimulationParameters;
+import ant_art.exceptions.AntArtException;
+import ant_art.utils.MarkovChain;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 11-05-2020 10:55
+ * Purpose: Runs simulations of an image with different parameters without the GUI and records their speed and scores
+ * in a CSV file. Simulations run concurrently so the ticks per second are the speed of a simulation when all the cores
+ * are busy.
+ **/
+public class ParameterSweep {
+    private static final String HEADER = "setting,seed,max_ants,pheromone_decay_rate,cell_size,ant_selection_seed," +
+            "intensity_amplifier,ticks,converged,ticks_per_second,coverage,mosaic_score";
+
+    private final MarkovChain[] chains;
+    private final BufferedImage image;
+    private final List<Color> targetColors;
+    private final int runsPerSetting;
+    private final Random random;
+
+    /**
+     * @param chains         chains of the target colors
+     * @param image          input image
+     * @param targetColors   target colors of the input image
+     * @param runsPerSetting number of simulations with different seeds for every setting
+     * @param seed           seed from which the seeds of the simulations are taken
+     */
+    public ParameterSweep(MarkovChain[] chains, BufferedImage image, List<Color> targetColors, int runsPerSetting,
+                          long seed) {
+        assert runsPerSetting > 0;
+        this.chains = chains;
+        this.image = image;
+        this.targetColors = targetColors;
+        this.runsPerSetting = runsPerSetting;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Get every combination of the values of the parameters
+     *
+     * @param maxAnts             values of the number of ants
+     * @param pheromoneDecayRates values of the pheromone decay rate
+     * @param cellSizes           values of the cell size
+     * @param antSelectionSeeds   values of the ant selection seed
+     * @param intensityAmplifiers values of the intensity amplifier
+     * @return settings of the grid search
+     */
+    public static List<SimulationParameters> grid(int[] maxAnts, float[] pheromoneDecayRates, int[] cellSizes,
+                                                  int[] antSelectionSeeds, float[] intensityAmplifiers) {
+        List<SimulationParameters> settings = new ArrayList<>();
+        for (int ants : maxAnts) {
+            for (float decayRate : pheromoneDecayRates) {
+                for (int cellSize : cellSizes) {
+                    for (int selectionSeed : antSelectionSeeds) {
+                        for (float amplifier : intensityAmplifiers) {
+                            settings.add(new SimulationParameters(ants, decayRate, cellSize, selectionSeed, amplifier));
+                        }
+                    }
+                }
+            }
+        }
+        return settings;
+    }
+
+    /**
+     * Get random settings. Every parameter is taken uniformly between the smallest and the largest of its values.
+     *
+     * @param count               number of settings
+     * @param maxAnts             values of the number of ants
+     * @param pheromoneDecayRates values of the pheromone decay rate
+     * @param cellSizes           values of the cell size
+     * @param antSelectionSeeds   values of the ant selection seed
+     * @param intensityAmplifiers values of the intensity amplifier
+     * @param random              random generator
+     * @return settings of the random search
+     */
+    public static List<SimulationParameters> randomSearch(int count, int[] maxAnts, float[] pheromoneDecayRates,
+                                                          int[] cellSizes, int[] antSelectionSeeds,
+                                                          float[] intensityAmplifiers, Random random) {
+        List<SimulationParameters> settings = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            settings.add(new SimulationParameters(between(maxAnts, random), between(pheromoneDecayRates, random),
+                    between(cellSizes, random), between(antSelectionSeeds, random),
+                    between(intensityAmplifiers, random)));
+        }
+        return settings;
+    }
+
+    /**
+     * Run the simulations of all the settings. A row is written as soon as its simulation is completed so the results
+     * of a long sweep can be seen while it is running. Rows can be in any order, the setting column is the position of
+     * the setting.
+     *
+     * @param settings    parameters to try
+     * @param resultsFile output CSV file
+     * @return future which completes when all the simulations are completed and the file is closed
+     * @throws IOException if the results file can't be created
+     */
+    public CompletableFuture<Void> execute(List<SimulationParameters> settings, File resultsFile) throws IOException {
+        PrintWriter writer = new PrintWriter(new FileWriter(resultsFile));
+        writer.println(HEADER);
+        writer.flush();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                runnable -> new Thread(runnable, "parameter-sweep"));
+
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int i = 0; i < settings.size(); i++) {
+            int setting = i;
+            SimulationParameters parameters = settings.get(i);
+            for (int run = 0; run < runsPerSetting; run++) {
+                long seed = random.nextLong();
+                runs.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return new Simulation(chains, image, targetColors, seed, null, parameters).run();
+
+                    } catch (AntArtException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor).handle((simulation, e) -> {
+                    if (e != null) {
+                        System.out.println("Simulation failed for the setting:" + parameters);
+                        e.printStackTrace();
+                        return null;
+                    }
+                    String row = toRow(setting, seed, parameters, simulation);
+                    synchronized (writer) {
+                        writer.println(row);
+                        writer.flush();
+                    }
+                    System.out.println(String.format("Setting:%s of %s %s", setting + 1, settings.size(), row));
+                    return null;
+                }));
+            }
+        }
+        executor.shutdown();
+
+        return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[0])).whenComplete((result, e) -> {
+            writer.close();
+            System.out.println("Sweep results are written to:" + resultsFile);
+        });
+    }
+
+    /**
+     * @param setting    position of the setting
+     * @param seed       seed of the simulation
+     * @param parameters parameters of the simulation
+     * @param simulation completed simulation
+     * @return CSV row of the simulation
+     */
+    private static String toRow(int setting, long seed, SimulationParameters parameters, Simulation simulation) {
+        //CSV needs a dot as the decimal separator whatever the locale is
+        return String.format(Locale.ROOT, "%d,%d,%d,%s,%d,%d,%s,%d,%b,%.1f,%.4f,%.4f", setting, seed,
+                parameters.getMaxAnts(), parameters.getPheromoneDecayRate(), parameters.getCellSize(),
+                parameters.getAntSelectionSeed(), parameters.getIntensityAmplifier(),
+                simulation.getConvergence().getTicks(), simulation.getConvergence().isConverged(),
+                simulation.getTicksPerSecond(), simulation.getCoverage(), simulation.getMosaicScore());
+    }
+
+    private static int between(int[] values, Random random) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private static float between(float[] values, Random random) {
+        float min = Float.MAX_VALUE;
+        float max = -Float.MAX_VALUE;
+        for (float value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        return min + random.nextFloat() * (max - min);
+    }
+}
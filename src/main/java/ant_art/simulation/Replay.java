@@ -0,0 +1,103 @@
+package ant_art.simulation;
+
+import ant_art.config.Configuration;
+import ant_art.utils.EventLog;
+import ant_art.utils.GIFPalette;
+import ant_art.utils.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 15-05-2020 14:05
+ * Purpose: Rebuilds the outputs of a simulation from its event log (look `Configuration.OUTPUT_EVENT_LOG`) at any
+ * sampling rate and size without running the ants again.
+ * Usage: Replay [event log] [output gif] [ticks between frames] [pixels per cell]
+ * Or: Replay [event log] [output image] [tick, last by default] [pixels per cell]
+ **/
+public class Replay {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: Replay [event log] [output gif|image] [ticks between frames|tick] [pixels per cell]");
+            return;
+        }
+        File log = new File(args[0]);
+        File output = new File(args[1]);
+        int ticks = args.length > 2 ? Integer.parseInt(args[2]) : -1;
+        int pixelsPerCell = args.length > 3 ? Integer.parseInt(args[3]) : -1;
+        String format = output.getName().substring(output.getName().lastIndexOf('.') + 1);
+        if (format.equalsIgnoreCase("gif")) {
+            writeGIF(log, output, ticks > 0 ? ticks : Configuration.GUI.SAMPLE_INTERVAL * Configuration.GUI.FPS,
+                    pixelsPerCell);
+        } else {
+            writeImage(log, output, format, ticks, pixelsPerCell);
+        }
+    }
+
+    /**
+     * Write a GIF with a frame after every given number of ticks. Frames use a fixed color table of all the colors of
+     * the log if they fit in a table else `ImageIO` quantises every frame.
+     *
+     * @param log           event log
+     * @param output        output file
+     * @param ticks         ticks between the frames
+     * @param pixelsPerCell side of a cell in the GIF or -1 for the size of the simulation
+     * @throws IOException if not able to read the log or write the GIF
+     */
+    private static void writeGIF(File log, File output, int ticks, int pixelsPerCell) throws IOException {
+        //First pass only collects the colors for the table
+        List<Color> colors = new ArrayList<>();
+        try (EventLog.Reader reader = new EventLog.Reader(log)) {
+            while (reader.nextTick()) {
+                //Paints are applied by the reader
+            }
+            for (int rgb : reader.getColors()) {
+                colors.add(new Color(rgb));
+            }
+        }
+        GIFPalette palette = colors.size() <= GIFPalette.MAX_COLORS ? GIFPalette.create(colors, 1) : null;
+        try (EventLog.Reader reader = new EventLog.Reader(log)) {
+            int scale = pixelsPerCell > 0 ? pixelsPerCell : reader.getCellSize();
+            ImageUtils.StreamingGIFBuilder gifBuilder = new ImageUtils.StreamingGIFBuilder(output,
+                    reader.render(scale), palette, Configuration.OUTPUT_GIF_DELAY, Configuration.OUTPUT_GIF_LOOPING,
+                    Configuration.OUTPUT_GIF_FRAME_POOL_SIZE);
+            int frames = 0;
+            while (reader.nextTick()) {
+                if (reader.getTick() % ticks == 0) {
+                    gifBuilder.addImage(reader.render(scale));
+                    frames++;
+                }
+            }
+            gifBuilder.close();
+            System.out.println(String.format("GIF of %s frames from %s ticks:%s", frames, reader.getTick(), output));
+        }
+    }
+
+    /**
+     * Write the image of a tick
+     *
+     * @param log           event log
+     * @param output        output file
+     * @param format        image format
+     * @param tick          tick of the image or -1 for the end of the simulation
+     * @param pixelsPerCell side of a cell in the image or -1 for the size of the simulation
+     * @throws IOException if not able to read the log or write the image
+     */
+    private static void writeImage(File log, File output, String format, int tick, int pixelsPerCell)
+            throws IOException {
+        try (EventLog.Reader reader = new EventLog.Reader(log)) {
+            while ((tick < 0 || reader.getTick() < tick) && reader.nextTick()) {
+                //Paints are applied by the reader
+            }
+            ImageIO.write(reader.render(pixelsPerCell > 0 ? pixelsPerCell : reader.getCellSize()), format, output);
+            System.out.println(String.format("Image of tick %s:%s", reader.getTick(), output));
+        }
+    }
+}
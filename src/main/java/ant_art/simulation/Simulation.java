@@ -0,0 +1,160 @@
+package ant_art.simulation;
+
+import ant_art.config.Configuration;
+import ant_art.config.SimulationParameters;
+import ant_art.entities.AntArea;
+import ant_art.evaluation.ConvergenceMonitor;
+import ant_art.exceptions.AntArtException;
+import ant_art.utils.ImageUtils;
+import ant_art.utils.MarkovChain;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 10-05-2020 16:30
+ * Purpose: A simulation which runs without the GUI as fast as possible. Ticks are the same as the updates of the GUI so
+ * a headless simulation with the same seed paints the same image.
+ **/
+public class Simulation {
+    private final AntArea antArea;
+    private final long seed;
+    private final ConvergenceMonitor convergence;
+    private final File gifFile;
+    private ImageUtils.StreamingGIFBuilder gifBuilder;
+    //Event log of the simulation or null if the paints are not logged
+    private File eventLogFile;
+    //Time taken by the ticks of the simulation
+    private long elapsedNanos;
+
+    /**
+     * @param chains       chains of the target colors. They are only read so they can be shared between simulations.
+     * @param image        input image. It is copied so it can be shared between simulations.
+     * @param targetColors target colors of the input image
+     * @param seed         seed of the simulation
+     * @param gifFile      file where the GIF of the simulation is written or null for no GIF
+     * @throws AntArtException if the area can't be created
+     */
+    public Simulation(MarkovChain[] chains, BufferedImage image, List<Color> targetColors, long seed, File gifFile)
+            throws AntArtException {
+        this(chains, image, targetColors, seed, gifFile, SimulationParameters.DEFAULT);
+    }
+
+    /**
+     * @param chains       chains of the target colors. They are only read so they can be shared between simulations.
+     * @param image        input image. It is copied so it can be shared between simulations.
+     * @param targetColors target colors of the input image
+     * @param seed         seed of the simulation
+     * @param gifFile      file where the GIF of the simulation is written or null for no GIF
+     * @param parameters   parameters of the simulation
+     * @throws AntArtException if the area can't be created
+     */
+    public Simulation(MarkovChain[] chains, BufferedImage image, List<Color> targetColors, long seed, File gifFile,
+                      SimulationParameters parameters) throws AntArtException {
+        this.antArea = new AntArea(chains, ImageUtils.deepCopy(image), targetColors, Configuration.Colors.DEFAULT, seed,
+                parameters);
+        this.seed = seed;
+        this.gifFile = gifFile;
+        if (Configuration.Termination.ENABLED) {
+            this.convergence = new ConvergenceMonitor();
+        } else {
+            //Run for the same number of ticks as the GUI does in its duration
+            int ticks = Configuration.GUI.DURATION * Configuration.GUI.FPS;
+            this.convergence = new ConvergenceMonitor(ticks, ticks,
+                    Configuration.Termination.WINDOW_SECONDS * Configuration.GUI.FPS, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Log the paints of the simulation. It should be called before running the simulation.
+     *
+     * @param eventLogFile output file of the log
+     * @return this simulation
+     */
+    public Simulation logEvents(File eventLogFile) {
+        this.eventLogFile = eventLogFile;
+        return this;
+    }
+
+    /**
+     * Run the simulation till it is finished. The area is shut down and the GIF is completed at the end.
+     *
+     * @return this simulation
+     */
+    public Simulation run() {
+        if (gifFile != null) {
+            gifBuilder = OutputGenerator.openGIF(antArea, gifFile);
+        }
+        if (eventLogFile != null && !OutputGenerator.startEventLog(antArea, eventLogFile)) {
+            eventLogFile = null;
+        }
+        int sampleTicks = Configuration.GUI.SAMPLE_INTERVAL * Configuration.GUI.FPS;
+        long start = System.nanoTime();
+        while (!convergence.isFinished()) {
+            antArea.update();
+            convergence.update(antArea.getMetrics().getCoverage(), antArea.getSiteCount(), antArea.getFoodCellCount(),
+                    antArea.getFoodRemaining());
+            //Take a snapshot of image
+            if (gifBuilder != null && convergence.getTicks() % sampleTicks == 0) {
+                gifBuilder.addImage(antArea.getMapImage());
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        antArea.shutDown();
+        if (gifBuilder != null) {
+            try {
+                gifBuilder.close();
+
+            } catch (IOException e) {
+                System.out.println("Not able to create the GIF:" + gifFile);
+                e.printStackTrace();
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return file of the event log of the simulation or null if the paints are not logged
+     */
+    public File getEventLogFile() {
+        return eventLogFile;
+    }
+
+    public AntArea getAntArea() {
+        return antArea;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public ConvergenceMonitor getConvergence() {
+        return convergence;
+    }
+
+    /**
+     * @return file of the GIF of the simulation or null if there is no GIF
+     */
+    public File getGIFFile() {
+        return gifBuilder == null ? null : gifFile;
+    }
+
+    /**
+     * @return ticks per second of the simulation. It includes the time of taking the GIF snapshots.
+     */
+    public float getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : convergence.getTicks() * 1e9f / elapsedNanos;
+    }
+
+    public float getCoverage() {
+        return antArea.getMetrics().getCoverage();
+    }
+
+    public float getMosaicScore() {
+        return antArea.getMetrics().getMosaicScore();
+    }
+}
@@ -0,0 +1,315 @@
+package ant_art.simulation;
+
+import ant_art.config.Configuration;
+import ant_art.config.SimulationParameters;
+import ant_art.entities.AntArea;
+import ant_art.exceptions.AntArtException;
+import ant_art.utils.MarkovChain;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 11-05-2020 15:40
+ * Purpose: Cost of a tick on this host. A tick updates every cell and every ant so its cost is modelled as a fixed part,
+ * a part for every cell and a part for every ant. The parts are measured on a generated image so the profile doesn't
+ * depend on the input and is cached per host.
+ **/
+public class TickProfile {
+    //Change it whenever the measurement or the model is changed.
+    private static final int VERSION = 1;
+    //Sizes and ants of the measured simulations. Three of them are enough for the three parts of the model.
+    private static final int SMALL_SIZE = 200;
+    private static final int LARGE_SIZE = 400;
+    private static final int FEW_ANTS = 25;
+    private static final int MANY_ANTS = 100;
+    private static final int MEASURED_TICKS = 60;
+    private static final int MEASURED_CHUNKS = 5;
+    private static final List<Color> TARGET_COLORS = Arrays.asList(new Color(200, 30, 30), new Color(30, 200, 30));
+
+    private final double baseNanos;
+    private final double nanosPerCell;
+    private final double nanosPerAnt;
+    private final int cellSize;
+
+    private TickProfile(double baseNanos, double nanosPerCell, double nanosPerAnt, int cellSize) {
+        this.baseNanos = baseNanos;
+        this.nanosPerCell = nanosPerCell;
+        this.nanosPerAnt = nanosPerAnt;
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Get the profile of this host. It is loaded from the cache directory if present else measured and stored there.
+     *
+     * @param directory  cache directory
+     * @param parameters parameters of the simulations. Only the cell size affects the profile.
+     * @return profile of this host
+     * @throws AntArtException if the measurement fails
+     */
+    public static TickProfile get(File directory, SimulationParameters parameters) throws AntArtException {
+        File profileFile = new File(directory, "ticks_" + getHost().replaceAll("[^A-Za-z0-9.-]", "_") + ".properties");
+        TickProfile profile = profileFile.exists() ? load(profileFile, parameters) : null;
+        if (profile != null) {
+            return profile;
+        }
+        System.out.println("Calibrating the tick rate for this host...");
+        profile = measure(parameters);
+        profile.store(profileFile);
+        System.out.println("Calibration done. " + profile);
+        return profile;
+    }
+
+    /**
+     * Measure the profile by running simulations of a generated image. Drawing the image is included as the GUI draws
+     * the image in every tick.
+     *
+     * @param parameters parameters of the simulations. Only the cell size affects the profile.
+     * @return measured profile
+     * @throws AntArtException if a simulation can't be created
+     */
+    public static TickProfile measure(SimulationParameters parameters) throws AntArtException {
+        MarkovChain chain = createChain();
+        //First simulation only warms up the JIT compiler and the drawing
+        measureTick(chain, SMALL_SIZE, FEW_ANTS, parameters);
+        double small = measureTick(chain, SMALL_SIZE, FEW_ANTS, parameters);
+        double large = measureTick(chain, LARGE_SIZE, FEW_ANTS, parameters);
+        double crowded = measureTick(chain, SMALL_SIZE, MANY_ANTS, parameters);
+
+        int cellSize = parameters.getCellSize();
+        double nanosPerCell = Math.max(0, (large - small) / (getCells(LARGE_SIZE, cellSize) - getCells(SMALL_SIZE, cellSize)));
+        double nanosPerAnt = Math.max(0, (crowded - small) / (TARGET_COLORS.size() * (MANY_ANTS - FEW_ANTS)));
+        double baseNanos = Math.max(0, small - nanosPerCell * getCells(SMALL_SIZE, cellSize)
+                - nanosPerAnt * TARGET_COLORS.size() * FEW_ANTS);
+        return new TickProfile(baseNanos, nanosPerCell, nanosPerAnt, cellSize);
+    }
+
+    /**
+     * @param imageSize    largest side of the image
+     * @param maxAnts      number of ants of every target color
+     * @param targetColors number of target colors
+     * @return time of a tick in nanoseconds. Image is taken as a square so it is never less than the actual time.
+     */
+    public double getTickNanos(int imageSize, int maxAnts, int targetColors) {
+        return baseNanos + nanosPerCell * getCells(imageSize, cellSize) + nanosPerAnt * maxAnts * targetColors;
+    }
+
+    /**
+     * @param fps          ticks per second
+     * @param maxAnts      number of ants of every target color
+     * @param targetColors number of target colors
+     * @param headroom     ratio of the time of a tick which can be used
+     * @return largest side of the image which can run at the given ticks per second or 0 if none can
+     */
+    public int getMaximumImageSize(int fps, int maxAnts, int targetColors, float headroom) {
+        double cellNanos = getBudget(fps, headroom) - baseNanos - nanosPerAnt * maxAnts * targetColors;
+        if (cellNanos <= 0) {
+            return 0;
+        }
+        if (nanosPerCell == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, cellSize * Math.floor(Math.sqrt(cellNanos / nanosPerCell)));
+    }
+
+    /**
+     * @param fps          ticks per second
+     * @param imageSize    largest side of the image
+     * @param targetColors number of target colors
+     * @param headroom     ratio of the time of a tick which can be used
+     * @return largest number of ants of every target color which can run at the given ticks per second or 0 if none
+     * can
+     */
+    public int getMaximumAnts(int fps, int imageSize, int targetColors, float headroom) {
+        double antNanos = getBudget(fps, headroom) - baseNanos - nanosPerCell * getCells(imageSize, cellSize);
+        if (antNanos <= 0) {
+            return 0;
+        }
+        if (nanosPerAnt == 0) {
+            return Integer.MAX_VALUE;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, Math.floor(antNanos / (nanosPerAnt * targetColors)));
+    }
+
+    /**
+     * @param imageSize    largest side of the image
+     * @param maxAnts      number of ants of every target color
+     * @param targetColors number of target colors
+     * @param headroom     ratio of the time of a tick which can be used
+     * @return highest ticks per second for the given image
+     */
+    public int getMaximumFPS(int imageSize, int maxAnts, int targetColors, float headroom) {
+        return (int) Math.floor(1e9 * headroom / getTickNanos(imageSize, maxAnts, targetColors));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Tick: %.0fns + %.1fns per cell + %.0fns per ant (cell size:%s)", baseNanos, nanosPerCell,
+                nanosPerAnt, cellSize);
+    }
+
+    private static double getBudget(int fps, float headroom) {
+        return 1e9 * headroom / fps;
+    }
+
+    private static long getCells(int imageSize, int cellSize) {
+        return (long) (imageSize / cellSize) * (imageSize / cellSize);
+    }
+
+    /**
+     * Measure the time of a tick of a simulation. Ticks get slower as more cells are painted so they are measured after
+     * the minimum ticks of a simulation when the area is painted as much as it usually is.
+     *
+     * @param chain      chain of the target colors
+     * @param imageSize  side of the image
+     * @param maxAnts    number of ants of every target color
+     * @param parameters parameters of the simulation
+     * @return time of a tick in nanoseconds
+     * @throws AntArtException if the simulation can't be created
+     */
+    private static double measureTick(MarkovChain chain, int imageSize, int maxAnts, SimulationParameters parameters)
+            throws AntArtException {
+        SimulationParameters measured = new SimulationParameters(maxAnts, parameters.getPheromoneDecayRate(),
+                parameters.getCellSize(), parameters.getAntSelectionSeed(), parameters.getIntensityAmplifier());
+        AntArea area = new AntArea(new MarkovChain[]{chain, chain}, createImage(imageSize), TARGET_COLORS,
+                Configuration.Colors.DEFAULT, imageSize, measured);
+        BufferedImage view = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_INT_RGB);
+        Graphics graphics = view.getGraphics();
+        //An ant is spawned in a tick at most
+        int warmUpTicks = Math.max(Configuration.Termination.MIN_SECONDS * Configuration.GUI.FPS, 2 * maxAnts * TARGET_COLORS.size());
+        for (int i = 0; i < warmUpTicks; i++) {
+            area.update();
+            graphics.drawImage(area.getMapImage(), 0, 0, null);
+        }
+        //Median of the chunks is not affected by the chunks which are slowed down by other processes
+        long[] chunks = new long[MEASURED_CHUNKS];
+        for (int chunk = 0; chunk < MEASURED_CHUNKS; chunk++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_TICKS; i++) {
+                area.update();
+                graphics.drawImage(area.getMapImage(), 0, 0, null);
+            }
+            chunks[chunk] = System.nanoTime() - start;
+        }
+        graphics.dispose();
+        Arrays.sort(chunks);
+        return (double) chunks[MEASURED_CHUNKS / 2] / MEASURED_TICKS;
+    }
+
+    /**
+     * @param size side of the image
+     * @return image with squares of the target colors on a dark background
+     */
+    private static BufferedImage createImage(int size) {
+        Random random = new Random(size);
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int square = (x / 30 + y / 30) % 4;
+                image.setRGB(x, y, square < TARGET_COLORS.size() ? TARGET_COLORS.get(square).getRGB() :
+                        random.nextInt(60) * 0x010101);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @return chain of a generated pallet with a few shades of some colors
+     */
+    private static MarkovChain createChain() {
+        BufferedImage pallet = new BufferedImage(32, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < pallet.getWidth(); x++) {
+            for (int y = 0; y < pallet.getHeight(); y++) {
+                pallet.setRGB(x, y, 0x204060 * (x / 8) + 0x101010 * y + 0x050505);
+            }
+        }
+        return MarkovChain.train(pallet, Collections.emptyList());
+    }
+
+    /**
+     * @return name of this host
+     */
+    private static String getHost() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * @return things other than the host name which change the profile. A profile measured with different ones is
+     * measured again.
+     */
+    private static String getEnvironment(int cellSize) {
+        return String.format("%s,%s,%s,%s,%s", VERSION, Runtime.getRuntime().availableProcessors(),
+                System.getProperty("os.arch"), System.getProperty("java.version"), cellSize);
+    }
+
+    /**
+     * Load a profile from a file
+     *
+     * @param profileFile profile file
+     * @param parameters  parameters of the simulations
+     * @return loaded profile or null if the file is not valid or is measured in another environment
+     */
+    private static TickProfile load(File profileFile, SimulationParameters parameters) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(profileFile)) {
+            properties.load(in);
+            if (!getEnvironment(parameters.getCellSize()).equals(properties.getProperty("environment"))) {
+                return null;
+            }
+            return new TickProfile(Double.parseDouble(properties.getProperty("base_nanos")),
+                    Double.parseDouble(properties.getProperty("nanos_per_cell")),
+                    Double.parseDouble(properties.getProperty("nanos_per_ant")), parameters.getCellSize());
+
+        } catch (IOException | NullPointerException | NumberFormatException e) {
+            System.out.println(String.format("Profile file %s is not valid. Calibrating again.", profileFile.getName()));
+            return null;
+        }
+    }
+
+    /**
+     * Store the profile in a file. The file is written with a temporary name and then renamed so a half written file
+     * is never read.
+     *
+     * @param profileFile profile file
+     */
+    private void store(File profileFile) {
+        File directory = profileFile.getParentFile();
+        if (!directory.exists() && !directory.mkdirs()) {
+            System.out.println("Not able to create cache directory:" + directory);
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("environment", getEnvironment(cellSize));
+        properties.setProperty("base_nanos", Double.toString(baseNanos));
+        properties.setProperty("nanos_per_cell", Double.toString(nanosPerCell));
+        properties.setProperty("nanos_per_ant", Double.toString(nanosPerAnt));
+        try {
+            File tempFile = File.createTempFile("ticks", ".tmp", directory);
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                properties.store(out, "Tick profile of " + getHost());
+            }
+            Files.move(tempFile.toPath(), profileFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            System.out.println("Not able to store the tick profile:" + profileFile.getName());
+            e.printStackTrace();
+        }
+    }
+}
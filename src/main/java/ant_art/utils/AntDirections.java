@@ -1,96 +1,70 @@
 package ant_art.utils;
 
-import javafx.util.Pair;
-
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Created By: Prashant Chaubey
  * Created On: 17-04-2020 16:18
  * Purpose: Directions possible for ants
  **/
 public class AntDirections {
-    public static final Pair<Integer, Integer> WEST = new Pair<>(-1, 0);
-    public static final Pair<Integer, Integer> SOUTH = new Pair<>(0, 1);
-    public static final Pair<Integer, Integer> EAST = new Pair<>(1, 0);
-    public static final Pair<Integer, Integer> NORTH = new Pair<>(0, -1);
-    public static final Pair<Integer, Integer> NORTH_EAST = new Pair<>(1, -1);
-    public static final Pair<Integer, Integer> NORTH_WEST = new Pair<>(-1, -1);
-    public static final Pair<Integer, Integer> SOUTH_WEST = new Pair<>(-1, 1);
-    public static final Pair<Integer, Integer> SOUTH_EAST = new Pair<>(1, 1);
+    //Ids of the directions. They go clockwise from 0 for north.
+    public static final int NORTH = 0;
+    public static final int NORTH_EAST = 1;
+    public static final int EAST = 2;
+    public static final int SOUTH_EAST = 3;
+    public static final int SOUTH = 4;
+    public static final int SOUTH_WEST = 5;
+    public static final int WEST = 6;
+    public static final int NORTH_WEST = 7;
 
-    //These two maps make rotating code clutter-free. No use as individually.
-    private static Map<Pair<Integer, Integer>, Integer> forwardMap = new HashMap<>();
-    private static Map<Integer, Pair<Integer, Integer>> reverseMap = new HashMap<>();
+    public static final int NO_OF_DIRECTIONS = 8;
 
-    private static int NO_OF_DIRECTIONS = 8;
+    //Change of the column and row of every direction
+    private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
 
-    static {
-        forwardMap.put(NORTH, 0);
-        forwardMap.put(NORTH_EAST, 1);
-        forwardMap.put(EAST, 2);
-        forwardMap.put(SOUTH_EAST, 3);
-        forwardMap.put(SOUTH, 4);
-        forwardMap.put(SOUTH_WEST, 5);
-        forwardMap.put(WEST, 6);
-        forwardMap.put(NORTH_WEST, 7);
+    /**
+     * @param id id of a direction
+     * @return change of the column in the direction
+     */
+    public static int getDX(int id) {
+        return DX[id];
+    }
 
-        reverseMap.put(0, NORTH);
-        reverseMap.put(1, NORTH_EAST);
-        reverseMap.put(2, EAST);
-        reverseMap.put(3, SOUTH_EAST);
-        reverseMap.put(4, SOUTH);
-        reverseMap.put(5, SOUTH_WEST);
-        reverseMap.put(6, WEST);
-        reverseMap.put(7, NORTH_WEST);
+    /**
+     * @param id id of a direction
+     * @return change of the row in the direction
+     */
+    public static int getDY(int id) {
+        return DY[id];
     }
 
     /**
      * Move in clockwise direction
      *
-     * @param currDirection current direction
-     * @return new direction
+     * @param id id of the current direction
+     * @return id of the new direction
      */
-    public static Pair<Integer, Integer> moveClockWise(Pair<Integer, Integer> currDirection) {
-        int loc = forwardMap.getOrDefault(currDirection, -1);
-        if (loc == -1) {
-            return null;
-        }
-        loc++;
-        loc %= NO_OF_DIRECTIONS;
-        return reverseMap.get(loc);
+    public static int moveClockWise(int id) {
+        return (id + 1) % NO_OF_DIRECTIONS;
     }
 
     /**
      * Move in counter clock wise direction
      *
-     * @param currDirection current direction
-     * @return new direction
+     * @param id id of the current direction
+     * @return id of the new direction
      */
-    public static Pair<Integer, Integer> moveCounterClockwise(Pair<Integer, Integer> currDirection) {
-        int loc = forwardMap.getOrDefault(currDirection, -1);
-        if (loc == -1) {
-            return null;
-        }
-        loc--;
-        loc = loc < 0 ? NO_OF_DIRECTIONS - 1 : loc;
-        return reverseMap.get(loc);
+    public static int moveCounterClockwise(int id) {
+        return (id + NO_OF_DIRECTIONS - 1) % NO_OF_DIRECTIONS;
     }
 
     /**
      * Move in opposite direction
      *
-     * @param currDirection current direction
-     * @return new direction
+     * @param id id of the current direction
+     * @return id of the new direction
      */
-    public static Pair<Integer, Integer> moveBackward(Pair<Integer, Integer> currDirection) {
-        int loc = forwardMap.getOrDefault(currDirection, -1);
-        if (loc == -1) {
-            return null;
-        }
-        loc += NO_OF_DIRECTIONS / 2;
-        loc %= NO_OF_DIRECTIONS;
-        return reverseMap.get(loc);
+    public static int moveBackward(int id) {
+        return (id + NO_OF_DIRECTIONS / 2) % NO_OF_DIRECTIONS;
     }
 }
@@ -0,0 +1,257 @@
+package ant_art.utils;
+
+import ant_art.config.Configuration;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 06-05-2020 11:05
+ * Purpose: Create color profile of an image from a histogram. Pixels are first counted in a quantised RGB cube and then
+ * the buckets of the cube are grouped into similar colors, so the cost of grouping doesn't depend on the image size.
+ **/
+public class ColorProfiler {
+    private static final int BITS = Configuration.COLOR_PROFILE_HISTOGRAM_BITS;
+    private static final int BUCKETS = 1 << (3 * BITS);
+    //Rows counted by one task
+    private static final int ROWS_PER_TASK = 64;
+
+    private ColorProfiler() {
+    }
+
+    /**
+     * Color profile of an image with the uncertainty of every ratio. Ratios of a profile made from a sample of pixels
+     * are only estimates and the true ratio is within `ratio +/- margin` with the configured confidence.
+     */
+    public static class Profile {
+        private final Map<Color, Float> ratios;
+        private final Map<Color, Float> margins;
+        private final boolean exact;
+
+        Profile(Map<Color, Float> ratios, Map<Color, Float> margins, boolean exact) {
+            this.ratios = ratios;
+            this.margins = margins;
+            this.exact = exact;
+        }
+
+        /**
+         * @return map containing colors and their ratios. It is not copied so the caller can modify it.
+         */
+        public Map<Color, Float> getRatios() {
+            return ratios;
+        }
+
+        /**
+         * @param color color of the profile
+         * @return margin of error of the ratio of the color. It is zero for exact profiles.
+         */
+        public float getMargin(Color color) {
+            return margins.getOrDefault(color, 0f);
+        }
+
+        /**
+         * @return true if every pixel was counted
+         */
+        public boolean isExact() {
+            return exact;
+        }
+    }
+
+    /**
+     * Counts of the pixels in the buckets of the RGB cube. Sum of the channels are also kept so that every bucket is
+     * represented by the average of its pixels.
+     */
+    static class Histogram {
+        final long[] counts = new long[BUCKETS];
+        final long[] reds = new long[BUCKETS];
+        final long[] greens = new long[BUCKETS];
+        final long[] blues = new long[BUCKETS];
+        long total;
+
+        /**
+         * Add a pixel
+         *
+         * @param rgb packed RGB pixel
+         */
+        void add(int rgb) {
+            int red = (rgb >> 16) & 0xFF;
+            int green = (rgb >> 8) & 0xFF;
+            int blue = rgb & 0xFF;
+            int bucket = ((red >> (8 - BITS)) << (2 * BITS)) | ((green >> (8 - BITS)) << BITS) | (blue >> (8 - BITS));
+            counts[bucket]++;
+            reds[bucket] += red;
+            greens[bucket] += green;
+            blues[bucket] += blue;
+            total++;
+        }
+
+        /**
+         * Add the counts of other histogram in this one
+         *
+         * @param other other histogram
+         * @return this histogram
+         */
+        Histogram merge(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += other.counts[i];
+                reds[i] += other.reds[i];
+                greens[i] += other.greens[i];
+                blues[i] += other.blues[i];
+            }
+            total += other.total;
+            return this;
+        }
+
+        /**
+         * @param bucket bucket of the cube
+         * @return average color of the pixels in the bucket
+         */
+        Color averageColor(int bucket) {
+            long count = counts[bucket];
+            return new Color((int) (reds[bucket] / count), (int) (greens[bucket] / count), (int) (blues[bucket] / count));
+        }
+    }
+
+    /**
+     * Create a color profile from the input image. Color profile is a map containing colors in the image and their ratio.
+     * Similar colors are represented by a single color. The most frequent colors become the representatives.
+     *
+     * @param src source image
+     * @return map containing color profile of the image
+     */
+    public static Map<Color, Float> profile(BufferedImage src) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int[] pixels = ImageUtils.getRGBPixels(src);
+        int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+
+        Histogram histogram = IntStream.range(0, tasks).parallel().mapToObj(task -> {
+            Histogram local = new Histogram();
+            int end = Math.min(height, (task + 1) * ROWS_PER_TASK) * width;
+            for (int i = task * ROWS_PER_TASK * width; i < end; i++) {
+                local.add(pixels[i]);
+            }
+            return local;
+        }).reduce(Histogram::merge).orElseGet(Histogram::new);
+
+        return cluster(histogram);
+    }
+
+    /**
+     * Create a color profile from a sample of the pixels. The image is divided in a grid and a random pixel is taken
+     * from every cell of the grid. Pixels are picked with `COLOR_PROFILE_SEED` so an image always gets the same
+     * profile. Only the colors whose ratio is between the limits are used later, so if the ratio of a color is too
+     * close to a limit to decide on which side it falls then the whole image is profiled. Small images are always
+     * profiled fully.
+     *
+     * @param src            source image
+     * @param lowerLimit     ratio below which colors are not used
+     * @param higherLimit    ratio at and above which colors are not used
+     * @param excludedColors colors which are not used anyway so their ratio doesn't matter
+     * @return color profile of the image
+     */
+    public static Profile profile(BufferedImage src, float lowerLimit, float higherLimit, List<Color> excludedColors) {
+        return profile(src, lowerLimit, higherLimit, excludedColors, new Random(Configuration.COLOR_PROFILE_SEED));
+    }
+
+    /**
+     * Create a color profile from a sample of the pixels (look `profile(BufferedImage, float, float, List)`)
+     *
+     * @param src            source image
+     * @param lowerLimit     ratio below which colors are not used
+     * @param higherLimit    ratio at and above which colors are not used
+     * @param excludedColors colors which are not used anyway so their ratio doesn't matter
+     * @param random         picks the pixels of the sample. Same seed gives the same profile of an image.
+     * @return color profile of the image
+     */
+    public static Profile profile(BufferedImage src, float lowerLimit, float higherLimit, List<Color> excludedColors,
+                                  Random random) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int sampleSize = Configuration.COLOR_PROFILE_SAMPLE_SIZE;
+        if ((long) width * height <= (long) sampleSize * Configuration.COLOR_PROFILE_SAMPLING_FACTOR) {
+            return new Profile(profile(src), Collections.emptyMap(), true);
+        }
+
+        //Grid with nearly square cells containing `sampleSize` cells.
+        int columns = Math.max(1, Math.min(width, (int) Math.round(Math.sqrt((double) sampleSize * width / height))));
+        int rows = Math.max(1, Math.min(height, sampleSize / columns));
+        Histogram histogram = new Histogram();
+        for (int row = 0; row < rows; row++) {
+            int top = (int) ((long) row * height / rows);
+            int bottom = (int) ((long) (row + 1) * height / rows);
+            for (int column = 0; column < columns; column++) {
+                int left = (int) ((long) column * width / columns);
+                int right = (int) ((long) (column + 1) * width / columns);
+                histogram.add(src.getRGB(left + random.nextInt(right - left), top + random.nextInt(bottom - top)));
+            }
+        }
+        Map<Color, Float> ratios = cluster(histogram);
+
+        //Normal approximation of the binomial proportion. Stratified sample is at least as accurate as a random one.
+        Map<Color, Float> margins = new HashMap<>();
+        SimilarityIndex excludedIndex = new SimilarityIndex(excludedColors);
+        boolean usableColorFound = false;
+        for (Map.Entry<Color, Float> entry : ratios.entrySet()) {
+            float ratio = entry.getValue();
+            float margin = (float) (Configuration.COLOR_PROFILE_CONFIDENCE_Z *
+                    Math.sqrt(ratio * (1 - ratio) / histogram.total) + 1.0 / histogram.total);
+            margins.put(entry.getKey(), margin);
+            if (excludedIndex.isSimilarToAny(entry.getKey().getRGB())) {
+                continue;
+            }
+            if (Math.abs(ratio - lowerLimit) <= margin || Math.abs(ratio - higherLimit) <= margin) {
+                System.out.println(String.format("Color ratio %s +/- %s of %s is too close to a limit. Profiling full image.",
+                        ratio, margin, entry.getKey()));
+                return new Profile(profile(src), Collections.emptyMap(), true);
+            }
+            if (ratio >= lowerLimit && ratio < higherLimit) {
+                usableColorFound = true;
+            }
+        }
+        if (!usableColorFound) {
+            System.out.println("No usable color found in the sample of the image.");
+        }
+        return new Profile(ratios, margins, false);
+    }
+
+    /**
+     * Group the buckets of a histogram into similar colors. Buckets are visited from the most frequent and each one
+     * joins the first representative similar to it or becomes a new representative.
+     *
+     * @param histogram input histogram
+     * @return map containing color profile
+     */
+    static Map<Color, Float> cluster(Histogram histogram) {
+        List<Integer> buckets = new ArrayList<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (histogram.counts[i] > 0) {
+                buckets.add(i);
+            }
+        }
+        buckets.sort((b1, b2) -> Long.compare(histogram.counts[b2], histogram.counts[b1]));
+
+        SimilarityIndex representatives = new SimilarityIndex();
+        List<Long> counts = new ArrayList<>();
+        for (int bucket : buckets) {
+            Color color = histogram.averageColor(bucket);
+            int representative = representatives.firstSimilar(color.getRGB());
+            if (representative != -1) {
+                counts.set(representative, counts.get(representative) + histogram.counts[bucket]);
+            } else {
+                representatives.add(color);
+                counts.add(histogram.counts[bucket]);
+            }
+        }
+        //Convert the count into ratios
+        Map<Color, Float> colorProfile = new HashMap<>();
+        for (int i = 0; i < representatives.size(); i++) {
+            colorProfile.put(representatives.getColor(i), counts.get(i) / (float) histogram.total);
+        }
+        return colorProfile;
+    }
+}
@@ -0,0 +1,297 @@
+package ant_art.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 15-05-2020 10:30
+ * Purpose: Binary log of the paints of an area. The image of an area only changes when a cell is painted so the paints
+ * of every tick are enough to rebuild any frame of a simulation without running the ants again.
+ * <p>
+ * Format: header (magic, version, columns, rows, cell size), colors of all the cells in column major order and then
+ * the paints of the ticks. A paint is the distance from the previous painted cell of the tick and a color. A tick ends
+ * with a zero. Numbers are variable length and colors are indexes in a table which is built as the colors appear. An
+ * index equal to the size of the table is followed by the RGB bytes of a new color.
+ **/
+public class EventLog implements Closeable {
+    private static final int MAGIC = 0x414E544C;
+    private static final int VERSION = 1;
+    //Longest paint is two numbers of 5 bytes and a new color
+    private static final int MAX_PAINT_BYTES = 13;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    private final Map<Integer, Integer> colorIndexes = new HashMap<>();
+    private int lastCell;
+    //First error while writing. Nothing is written after it and it is reported when the log is closed.
+    private IOException failure;
+
+    /**
+     * Open a log and write the initial state of the area
+     *
+     * @param file     output file
+     * @param columns  columns of the area
+     * @param rows     rows of the area
+     * @param cellSize side of a cell in pixels
+     * @param rgbs     packed RGB colors of the cells in column major order
+     * @throws IOException if not able to write the file
+     */
+    public EventLog(File file, int columns, int rows, int cellSize, int[] rgbs) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).put((byte) VERSION).putInt(columns).putInt(rows).putInt(cellSize);
+        for (int rgb : rgbs) {
+            ensure(MAX_PAINT_BYTES);
+            writeColor(rgb);
+        }
+        if (failure != null) {
+            channel.close();
+            throw failure;
+        }
+    }
+
+    /**
+     * Record a paint in the current tick
+     *
+     * @param cell cell in column major order
+     * @param rgb  packed RGB color
+     */
+    public void paint(int cell, int rgb) {
+        if (!ensure(MAX_PAINT_BYTES)) {
+            return;
+        }
+        //Zero ends a tick so the distances are shifted by one
+        writeNumber(zigzag(cell - lastCell) + 1);
+        writeColor(rgb);
+        lastCell = cell;
+    }
+
+    /**
+     * End the current tick
+     */
+    public void endTick() {
+        if (!ensure(1)) {
+            return;
+        }
+        buffer.put((byte) 0);
+        lastCell = 0;
+    }
+
+    /**
+     * Finish the log. Paints after the last tick are written as the last tick.
+     *
+     * @throws IOException if the log could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        endTick();
+        flush();
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeColor(int rgb) {
+        rgb &= 0xFFFFFF;
+        Integer index = colorIndexes.get(rgb);
+        if (index != null) {
+            writeNumber(index);
+            return;
+        }
+        writeNumber(colorIndexes.size());
+        colorIndexes.put(rgb, colorIndexes.size());
+        buffer.put((byte) (rgb >> 16)).put((byte) (rgb >> 8)).put((byte) rgb);
+    }
+
+    private void writeNumber(long value) {
+        while (value >= 0x80) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigzag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Make space in the buffer
+     *
+     * @param bytes bytes needed
+     * @return false if the log has failed
+     */
+    private boolean ensure(int bytes) {
+        if (failure == null && buffer.remaining() < bytes) {
+            flush();
+        }
+        return failure == null;
+    }
+
+    private void flush() {
+        if (failure != null) {
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Reader of a log. It keeps the colors of all the cells and moves a tick at a time.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream input;
+        private final int columns;
+        private final int rows;
+        private final int cellSize;
+        //Packed RGB colors of the cells in column major order
+        private final int[] rgbs;
+        private final List<Integer> colors = new ArrayList<>();
+        private int tick;
+
+        /**
+         * Open a log and read the initial state of the area
+         *
+         * @param file input file
+         * @throws IOException if not able to read the file or it is not a log
+         */
+        public Reader(File file) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            try {
+                if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+                    throw new IOException("Not an event log of a supported version:" + file);
+                }
+                this.columns = input.readInt();
+                this.rows = input.readInt();
+                this.cellSize = input.readInt();
+                this.rgbs = new int[columns * rows];
+                for (int cell = 0; cell < rgbs.length; cell++) {
+                    rgbs[cell] = readColor();
+                }
+            } catch (IOException e) {
+                input.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Apply the paints of the next tick
+         *
+         * @return false if there are no more ticks
+         * @throws IOException if not able to read the file
+         */
+        public boolean nextTick() throws IOException {
+            int cell = 0;
+            int first = input.read();
+            if (first < 0) {
+                return false;
+            }
+            long distance = readNumber(first);
+            while (distance != 0) {
+                long zigzag = distance - 1;
+                cell += (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+                rgbs[cell] = readColor();
+                distance = readNumber(input.readUnsignedByte());
+            }
+            tick++;
+            return true;
+        }
+
+        /**
+         * @return ticks read till now
+         */
+        public int getTick() {
+            return tick;
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCellSize() {
+            return cellSize;
+        }
+
+        /**
+         * @return packed RGB colors of the cells in column major order. It is updated by every tick.
+         */
+        public int[] getRGBs() {
+            return rgbs;
+        }
+
+        /**
+         * @return colors seen till now
+         */
+        public List<Integer> getColors() {
+            return colors;
+        }
+
+        /**
+         * Draw the cells on an image
+         *
+         * @param pixelsPerCell side of a cell in the image
+         * @return image of the cells
+         */
+        public BufferedImage render(int pixelsPerCell) {
+            int width = columns * pixelsPerCell;
+            int[] pixels = new int[width * rows * pixelsPerCell];
+            for (int x = 0; x < columns; x++) {
+                for (int y = 0; y < rows; y++) {
+                    int rgb = rgbs[x * rows + y];
+                    for (int j = y * pixelsPerCell; j < (y + 1) * pixelsPerCell; j++) {
+                        Arrays.fill(pixels, j * width + x * pixelsPerCell, j * width + (x + 1) * pixelsPerCell, rgb);
+                    }
+                }
+            }
+            BufferedImage image = new BufferedImage(width, rows * pixelsPerCell, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(0, 0, width, image.getHeight(), pixels, 0, width);
+            return image;
+        }
+
+        private int readColor() throws IOException {
+            int index = (int) readNumber(input.readUnsignedByte());
+            if (index == colors.size()) {
+                colors.add((input.readUnsignedByte() << 16) | (input.readUnsignedByte() << 8)
+                        | input.readUnsignedByte());
+            }
+            return colors.get(index);
+        }
+
+        private long readNumber(int first) throws IOException {
+            long value = first & 0x7F;
+            int shift = 7;
+            while ((first & 0x80) != 0) {
+                first = input.readUnsignedByte();
+                value |= (long) (first & 0x7F) << shift;
+                shift += 7;
+            }
+            return value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
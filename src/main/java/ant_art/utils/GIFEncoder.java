@@ -0,0 +1,323 @@
+package ant_art.utils;
+
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 04-05-2020 20:15
+ * Purpose: Low level GIF89a encoder working on palette indexes. Frames only contain the rectangle which changed from the
+ * previous frame and are drawn over it, so nothing is quantised and unchanged parts of the canvas are not written again.
+ * REFERENCE: https://www.w3.org/Graphics/GIF/spec-gif89a.txt
+ **/
+public class GIFEncoder {
+    //Disposal methods of the graphic control extension
+    public static final int DISPOSAL_NONE = 0;
+    public static final int DISPOSAL_DO_NOT_DISPOSE = 1;
+
+    public static final int TRAILER = 0x3B;
+
+    private GIFEncoder() {
+    }
+
+    /**
+     * Write the header, the global color table and the looping extension.
+     *
+     * @param out     output stream
+     * @param width   width of the GIF
+     * @param height  height of the GIF
+     * @param palette global color table
+     * @param loop    whether gif will loop or not
+     * @throws IOException if something goes wrong
+     */
+    public static void writeHeader(OutputStream out, int width, int height, GIFPalette palette, boolean loop)
+            throws IOException {
+        int colorBits = palette.getColorBits();
+        out.write("GIF89a".getBytes(StandardCharsets.US_ASCII));
+        //Logical screen descriptor
+        writeShort(out, width);
+        writeShort(out, height);
+        out.write(0x80 | ((colorBits - 1) << 4) | (colorBits - 1));
+        out.write(0);
+        out.write(0);
+        //Global color table
+        for (int rgb : palette.getColors()) {
+            out.write((rgb >> 16) & 0xFF);
+            out.write((rgb >> 8) & 0xFF);
+            out.write(rgb & 0xFF);
+        }
+        //NETSCAPE extension for looping
+        int loopCount = loop ? 0 : 1;
+        out.write(0x21);
+        out.write(0xFF);
+        out.write(11);
+        out.write("NETSCAPE2.0".getBytes(StandardCharsets.US_ASCII));
+        out.write(3);
+        out.write(1);
+        writeShort(out, loopCount);
+        out.write(0);
+    }
+
+    /**
+     * Find the rectangle containing all the pixels which are different in two frames
+     *
+     * @param prev   indexes of the previous frame. If null then whole frame is returned.
+     * @param curr   indexes of the current frame
+     * @param width  width of the frames
+     * @param height height of the frames
+     * @return bounding rectangle of the changes or null if nothing is changed
+     */
+    public static Rectangle changedBounds(byte[] prev, byte[] curr, int width, int height) {
+        if (prev == null) {
+            return new Rectangle(0, 0, width, height);
+        }
+        int top = -1;
+        int bottom = -1;
+        int left = width;
+        int right = -1;
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * width;
+            int first = -1;
+            for (int x = 0; x < width; x++) {
+                if (prev[rowStart + x] != curr[rowStart + x]) {
+                    first = x;
+                    break;
+                }
+            }
+            if (first == -1) {
+                continue;
+            }
+            int last = first;
+            for (int x = width - 1; x > first; x--) {
+                if (prev[rowStart + x] != curr[rowStart + x]) {
+                    last = x;
+                    break;
+                }
+            }
+            if (top == -1) {
+                top = y;
+            }
+            bottom = y;
+            left = Math.min(left, first);
+            right = Math.max(right, last);
+        }
+        if (top == -1) {
+            return null;
+        }
+        return new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+
+    /**
+     * Encode a frame. It contains the graphic control extension, the image descriptor and the compressed image data.
+     *
+     * @param indexes   palette indexes of the whole canvas
+     * @param width     width of the canvas
+     * @param bounds    part of the canvas to write
+     * @param delay     delay in milliseconds after this frame
+     * @param disposal  disposal method of the frame
+     * @param colorBits number of bits of the global color table
+     * @return encoded frame
+     */
+    public static byte[] encodeFrame(byte[] indexes, int width, Rectangle bounds, int delay, int disposal, int colorBits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bounds.width * bounds.height / 4 + 64);
+        try {
+            //Graphic control extension
+            out.write(0x21);
+            out.write(0xF9);
+            out.write(4);
+            out.write(disposal << 2);
+            writeShort(out, delay / 10);
+            out.write(0);
+            out.write(0);
+            //Image descriptor without local color table
+            out.write(0x2C);
+            writeShort(out, bounds.x);
+            writeShort(out, bounds.y);
+            writeShort(out, bounds.width);
+            writeShort(out, bounds.height);
+            out.write(0);
+            //Image data
+            new LZWEncoder(Math.max(2, colorBits)).encode(indexes, width, bounds, out);
+
+        } catch (IOException e) {
+            //Not possible with a byte array stream
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Write a little endian short
+     *
+     * @param out   output stream
+     * @param value value to write
+     * @throws IOException if something goes wrong
+     */
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >> 8) & 0xFF);
+    }
+
+    /**
+     * Variable length LZW compression used by GIF.
+     * REFERENCE: https://github.com/rtyley/animated-gif-lib-for-java/blob/master/src/main/java/com/madgag/gif/fmsware/LZWEncoder.java
+     * I have used the above mentioned URL to implement this according to my needs.
+     */
+    static class LZWEncoder {
+        private static final int MAX_BITS = 12;
+        private static final int MAX_CODES = 1 << MAX_BITS;
+        //Prime bigger than the number of codes. Keeps the hash table around 80% full in the worst case.
+        private static final int HASH_SIZE = 5003;
+
+        private final int initCodeSize;
+        private final int clearCode;
+        private final int endCode;
+        private final int[] hashKeys = new int[HASH_SIZE];
+        private final int[] hashCodes = new int[HASH_SIZE];
+
+        private int codeSize;
+        private int nextCode;
+        private boolean clearPending;
+
+        //Bits which are not written yet
+        private int bitBuffer;
+        private int bitCount;
+        //GIF data is written in sub-blocks of at most 255 bytes
+        private final byte[] block = new byte[255];
+        private int blockLength;
+        private OutputStream out;
+
+        LZWEncoder(int minCodeSize) {
+            this.initCodeSize = minCodeSize + 1;
+            this.clearCode = 1 << minCodeSize;
+            this.endCode = clearCode + 1;
+        }
+
+        /**
+         * Compress a rectangle of the indexes
+         *
+         * @param indexes palette indexes of the whole canvas
+         * @param width   width of the canvas
+         * @param bounds  rectangle to compress
+         * @param out     output stream
+         * @throws IOException if something goes wrong
+         */
+        void encode(byte[] indexes, int width, Rectangle bounds, OutputStream out) throws IOException {
+            this.out = out;
+            out.write(initCodeSize - 1);
+            resetTable();
+            codeSize = initCodeSize;
+            writeCode(clearCode);
+
+            int prefix = indexes[bounds.y * width + bounds.x] & 0xFF;
+            boolean first = true;
+            for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                int rowStart = y * width;
+                for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                    //First pixel is already the prefix
+                    if (first) {
+                        first = false;
+                        continue;
+                    }
+                    int pixel = indexes[rowStart + x] & 0xFF;
+                    int key = (pixel << MAX_BITS) + prefix;
+                    int slot = (pixel << 4) ^ prefix;
+                    if (hashKeys[slot] == key) {
+                        prefix = hashCodes[slot];
+                        continue;
+                    }
+                    //Secondary probe
+                    if (hashKeys[slot] >= 0) {
+                        int step = slot == 0 ? 1 : HASH_SIZE - slot;
+                        boolean found = false;
+                        do {
+                            slot -= step;
+                            if (slot < 0) {
+                                slot += HASH_SIZE;
+                            }
+                            if (hashKeys[slot] == key) {
+                                found = true;
+                                break;
+                            }
+                        } while (hashKeys[slot] >= 0);
+                        if (found) {
+                            prefix = hashCodes[slot];
+                            continue;
+                        }
+                    }
+                    writeCode(prefix);
+                    prefix = pixel;
+                    if (nextCode < MAX_CODES) {
+                        hashCodes[slot] = nextCode++;
+                        hashKeys[slot] = key;
+                    } else {
+                        //Table is full. Start again with a clear code.
+                        resetTable();
+                        clearPending = true;
+                        writeCode(clearCode);
+                    }
+                }
+            }
+            writeCode(prefix);
+            writeCode(endCode);
+            //Flush the remaining bits
+            if (bitCount > 0) {
+                writeByte(bitBuffer & 0xFF);
+                bitBuffer = 0;
+                bitCount = 0;
+            }
+            flushBlock();
+            out.write(0);
+        }
+
+        /**
+         * Empty the code table
+         */
+        private void resetTable() {
+            Arrays.fill(hashKeys, -1);
+            nextCode = endCode + 1;
+        }
+
+        /**
+         * Write a code with the current code size and grow the code size when the decoder will do the same.
+         *
+         * @param code code to write
+         * @throws IOException if something goes wrong
+         */
+        private void writeCode(int code) throws IOException {
+            bitBuffer |= code << bitCount;
+            bitCount += codeSize;
+            while (bitCount >= 8) {
+                writeByte(bitBuffer & 0xFF);
+                bitBuffer >>>= 8;
+                bitCount -= 8;
+            }
+            if (clearPending) {
+                clearPending = false;
+                codeSize = initCodeSize;
+            } else if (nextCode > (1 << codeSize) - 1 && codeSize < MAX_BITS) {
+                codeSize++;
+            }
+        }
+
+        private void writeByte(int value) throws IOException {
+            block[blockLength++] = (byte) value;
+            if (blockLength == block.length) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockLength == 0) {
+                return;
+            }
+            out.write(blockLength);
+            out.write(block, 0, blockLength);
+            blockLength = 0;
+        }
+    }
+}
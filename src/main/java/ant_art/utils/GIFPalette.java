@@ -0,0 +1,209 @@
+package ant_art.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 04-05-2020 18:42
+ * Purpose: Global color table of a GIF. The canvas only shows colors from the pallets and some fixed colors so they can
+ * be put in a single table once and every frame is written as indexes in that table without any quantisation.
+ **/
+public class GIFPalette {
+    //GIF color tables can't have more than 256 colors.
+    public static final int MAX_COLORS = 256;
+
+    //Packed RGB colors of the table. Length is always a power of two as required by GIF.
+    private final int[] colors;
+    //Number of bits needed to index the table
+    private final int colorBits;
+    //Indexes of the colors present in the table
+    private final Map<Integer, Integer> indexes = new HashMap<>();
+    //Colors not in the table are mapped to the closest color in the table. It is computed once for a color.
+    private final Map<Integer, Integer> nearestIndexes = new ConcurrentHashMap<>();
+    //Color model of the images which store indexes of this table
+    private final IndexColorModel colorModel;
+
+    private GIFPalette(List<Integer> colorList) {
+        int bits = 1;
+        while ((1 << bits) < colorList.size()) {
+            bits++;
+        }
+        this.colorBits = bits;
+        this.colors = new int[1 << bits];
+        for (int i = 0; i < colorList.size(); i++) {
+            colors[i] = colorList.get(i);
+            indexes.put(colorList.get(i), i);
+        }
+        this.colorModel = new IndexColorModel(8, colors.length, colors, 0, false, -1, DataBuffer.TYPE_BYTE);
+    }
+
+    /**
+     * Create a palette from the colors. Pheromone shading darkens the colors on the canvas so darker shades of the colors
+     * are also added while there is space in the table.
+     *
+     * @param baseColors  colors which can be painted on the canvas
+     * @param shadeLevels number of intensity levels to add for each color. 1 means no shades.
+     * @return palette
+     */
+    public static GIFPalette create(Collection<Color> baseColors, int shadeLevels) {
+        Set<Integer> colorSet = new LinkedHashSet<>();
+        for (Color color : baseColors) {
+            colorSet.add(color.getRGB() & 0xFFFFFF);
+        }
+        List<Integer> base = new ArrayList<>(colorSet);
+        if (base.size() > MAX_COLORS) {
+            System.out.println(String.format("GIF palette can't hold %s colors. Extra colors will be approximated.",
+                    base.size()));
+        }
+        //Shades are added from the brightest to the darkest so if table is full we lose the least visible ones.
+        for (int level = shadeLevels - 1; level >= 1 && colorSet.size() < MAX_COLORS; level--) {
+            float intensity = (float) level / shadeLevels;
+            for (int rgb : base) {
+                if (colorSet.size() >= MAX_COLORS) {
+                    break;
+                }
+                colorSet.add(shade(rgb, intensity));
+            }
+        }
+        List<Integer> colorList = new ArrayList<>(colorSet);
+        return new GIFPalette(colorList.subList(0, Math.min(colorList.size(), MAX_COLORS)));
+    }
+
+    /**
+     * Scale a color with an intensity in the same way as the cells are shaded
+     *
+     * @param rgb       packed RGB color
+     * @param intensity intensity between 0 and 1
+     * @return shaded color
+     */
+    static int shade(int rgb, float intensity) {
+        int red = (int) (((rgb >> 16) & 0xFF) * intensity);
+        int green = (int) (((rgb >> 8) & 0xFF) * intensity);
+        int blue = (int) ((rgb & 0xFF) * intensity);
+        return (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * Get the index of a color in the table. If the color is not present then index of the closest color is returned.
+     *
+     * @param rgb packed RGB color. Alpha is ignored.
+     * @return index of the color in the table
+     */
+    public int indexOf(int rgb) {
+        rgb &= 0xFFFFFF;
+        Integer index = indexes.get(rgb);
+        if (index != null) {
+            return index;
+        }
+        return nearestIndexes.computeIfAbsent(rgb, this::nearestIndex);
+    }
+
+    /**
+     * Find the closest color in the table
+     *
+     * @param rgb packed RGB color
+     * @return index of the closest color
+     */
+    private int nearestIndex(int rgb) {
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+        int bestIndex = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < indexes.size(); i++) {
+            int dr = red - ((colors[i] >> 16) & 0xFF);
+            int dg = green - ((colors[i] >> 8) & 0xFF);
+            int db = blue - (colors[i] & 0xFF);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                bestIndex = i;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Convert a row of packed RGB pixels into table indexes.
+     *
+     * @param rgbs   packed RGB pixels
+     * @param dest   destination for indexes
+     * @param length number of pixels to convert
+     */
+    public void toIndexes(int[] rgbs, byte[] dest, int length) {
+        if (length == 0) {
+            return;
+        }
+        //Canvas has long runs of the same color so remembering the last lookup saves most of them.
+        int lastRgb = ~rgbs[0];
+        byte lastIndex = 0;
+        for (int i = 0; i < length; i++) {
+            if (rgbs[i] != lastRgb) {
+                lastRgb = rgbs[i];
+                lastIndex = (byte) indexOf(lastRgb);
+            }
+            dest[i] = lastIndex;
+        }
+    }
+
+    /**
+     * Convert an image into table indexes. An image which already stores indexes of this table is copied as it is.
+     *
+     * @param image  input image
+     * @param rgbs   buffer for the packed RGB pixels of the image. It is only used if the image is not indexed.
+     * @param dest   destination for indexes
+     */
+    public void toIndexes(BufferedImage image, int[] rgbs, byte[] dest) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (isIndexing(image)) {
+            image.getRaster().getDataElements(0, 0, width, height, dest);
+            return;
+        }
+        image.getRGB(0, 0, width, height, rgbs, 0, width);
+        toIndexes(rgbs, dest, width * height);
+    }
+
+    /**
+     * @param image input image
+     * @return true if the pixels of the image are indexes of this table
+     */
+    public boolean isIndexing(BufferedImage image) {
+        return image.getColorModel() == colorModel;
+    }
+
+    /**
+     * @return color model of the images which store indexes of this table. Every color of the table is opaque.
+     */
+    public IndexColorModel getColorModel() {
+        return colorModel;
+    }
+
+    /**
+     * @param index index in the table
+     * @return packed RGB color at the index
+     */
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    /**
+     * @return packed RGB colors of the table. Unused entries are black.
+     */
+    public int[] getColors() {
+        return colors.clone();
+    }
+
+    /**
+     * @return number of bits needed to index the table
+     */
+    public int getColorBits() {
+        return colorBits;
+    }
+}
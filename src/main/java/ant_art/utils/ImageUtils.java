@@ -12,12 +12,25 @@ import java.awt.*;
 import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
-import java.awt.image.RenderedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 
 /**
  * Created By: Prashant Chaubey
@@ -26,37 +39,313 @@ import java.util.List;
  **/
 public class ImageUtils {
     /**
-     * Class to create gif from a set of images
+     * Class to create gif while the simulation is running. It doesn't keep the images in memory. The
+     * sequence is opened when the simulation starts and every image is encoded on a background thread as it arrives.
+     * Images are copied in a small pool of reused frame buffers so the memory doesn't grow with the simulation length.
+     * <p>
+     * If a palette is given then frames are written with `GIFEncoder` using that palette as the global color table and
+     * only the part which changed from the previous frame is written. Every frame is an independent LZW stream so the
+     * frames are compressed concurrently and written in order. Compressed frames are collected and written together
+     * with a single gathering write on the file channel once the compression catches up with the frames submitted or
+     * the pool size is reached. A frame buffer is reused only after its frame is compressed so the frames in flight
+     * are bounded by the pool. Otherwise `ImageIO` is used.
      * REFERENCE: http://elliot.kroo.net/software/java/GifSequenceWriter/
-     * I have used the above mentioned URL to implement this according to my needs.
+     * I have used the above mentioned URL to implement the `ImageIO` metadata according to my needs.
      */
-    public static class GIFBuilder {
-        //All the images which will be added to the image
-        private List<BufferedImage> images = new ArrayList<>();
-
-        //Used to create GIF
+    public static class StreamingGIFBuilder {
+        private final File outputFile;
+        //Used when writing with `ImageIO`
+        private ImageOutputStream imageOutput;
         private ImageWriter writer;
         private ImageWriteParam params;
         private IIOMetadata metadata;
+        //Used when writing with the fixed palette
+        private final GIFPalette palette;
+        private FileChannel paletteChannel;
+        //Compressed frames waiting to be written. Only touched by the write chain and by `close` after it.
+        private final List<ByteBuffer> pendingWrites = new ArrayList<>();
+        private final int delay;
+        //Only needed if the frames are not already indexed by the palette
+        private int[] rgbs;
+        private byte[] prevIndexes;
+        //Compresses the frames of the fixed palette
+        private ExecutorService compressors;
+        //Completes when the last submitted frame is written. Frames are chained so they are written in order.
+        private CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+
+        //Frame buffers which are free to receive a new image
+        private final BlockingQueue<Frame> framePool;
+        //Converts the frames in order and submits them for the compression
+        private final ExecutorService encoder;
+        private final ColorModel colorModel;
+        private final int width;
+        private final int height;
+        //Number of frame buffers created till now. It can't go beyond the pool size.
+        private int framesAllocated;
+        private final int poolSize;
+        private volatile int framesWritten;
+        //Number of frames submitted for the compression. Used to know if more compressed frames are on the way.
+        private volatile int framesSubmitted;
+        //First error happened on the encoder threads. It is reported back when the gif is closed.
+        private volatile IOException failure;
+
+        /**
+         * A reused frame buffer
+         */
+        private static class Frame {
+            private final BufferedImage image;
+            //Palette indexes of the image. Null if the palette is not used.
+            private final byte[] indexes;
+
+            private Frame(BufferedImage image, byte[] indexes) {
+                this.image = image;
+                this.indexes = indexes;
+            }
+        }
+
+        /**
+         * Open the gif sequence
+         *
+         * @param outputFile output file
+         * @param template   image having the same type and dimensions as the images which will be added
+         * @param delay      delay between images in the gif.
+         * @param loop       whether gif is looping or not
+         * @param poolSize   number of frame buffers to reuse
+         * @throws IOException if not able to open the output file
+         */
+        public StreamingGIFBuilder(File outputFile, BufferedImage template, int delay, boolean loop, int poolSize) throws IOException {
+            this(outputFile, template, null, delay, loop, poolSize);
+        }
+
+        /**
+         * Open the gif sequence
+         *
+         * @param outputFile output file
+         * @param template   image having the same type and dimensions as the images which will be added
+         * @param palette    global color table of the gif. If null then `ImageIO` will quantise each frame.
+         * @param delay      delay between images in the gif.
+         * @param loop       whether gif is looping or not
+         * @param poolSize   number of frame buffers to reuse. It is also the most frames compressed at once.
+         * @throws IOException if not able to open the output file
+         */
+        public StreamingGIFBuilder(File outputFile, BufferedImage template, GIFPalette palette, int delay, boolean loop,
+                                   int poolSize) throws IOException {
+            this.outputFile = outputFile;
+            this.colorModel = template.getColorModel();
+            this.width = template.getWidth();
+            this.height = template.getHeight();
+            this.poolSize = poolSize;
+            this.framePool = new ArrayBlockingQueue<>(poolSize);
+            this.palette = palette;
+            this.delay = delay;
+            if (palette != null) {
+                this.paletteChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                ByteArrayOutputStream header = new ByteArrayOutputStream();
+                GIFEncoder.writeHeader(header, width, height, palette, loop);
+                pendingWrites.add(ByteBuffer.wrap(header.toByteArray()));
+                int threads = Math.max(1, Math.min(poolSize, Runtime.getRuntime().availableProcessors()));
+                this.compressors = Executors.newFixedThreadPool(threads, daemonThreads("gif-compressor"));
+            } else {
+                this.imageOutput = new FileImageOutputStream(outputFile);
+                this.writer = ImageIO.getImageWritersBySuffix("gif").next();
+                this.params = writer.getDefaultWriteParam();
+                ImageTypeSpecifier imageTypeSpecifier = ImageTypeSpecifier.createFromRenderedImage(template);
+                this.metadata = writer.getDefaultImageMetadata(imageTypeSpecifier, params);
+                configureRootMetadata(metadata, delay, loop);
+                writer.setOutput(imageOutput);
+                writer.prepareWriteSequence(null);
+            }
+            //Single thread as the frames have to be compared with the previous one in order.
+            this.encoder = Executors.newSingleThreadExecutor(daemonThreads("gif-encoder"));
+        }
 
+        /**
+         * @param name name of the threads
+         * @return factory of daemon threads so a gif which is not closed doesn't keep the JVM alive
+         */
+        private static ThreadFactory daemonThreads(String name) {
+            return runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
 
         /**
-         * Add an image for the GIF
+         * Add an image for the GIF. The image is copied so the caller can keep on modifying it. If all the frame
+         * buffers are busy then it will wait for the encoder to free one.
          *
          * @param image input image
          */
         public void addImage(BufferedImage image) {
-            images.add(image);
+            Frame frame = acquireFrame();
+            if (frame == null) {
+                return;
+            }
+            image.copyData(frame.image.getRaster());
+            encoder.execute(() -> {
+                if (palette != null) {
+                    submitFrame(frame);
+                    return;
+                }
+                try {
+                    if (failure == null) {
+                        writer.writeToSequence(new IIOImage(frame.image, null, metadata), params);
+                        framesWritten++;
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                } finally {
+                    framePool.offer(frame);
+                }
+            });
+        }
+
+        /**
+         * Find the changed area of a frame of the fixed palette and submit it for the compression. Runs on the encoder
+         * thread. The frame buffer is freed after the frame is written.
+         *
+         * @param frame input frame
+         */
+        private void submitFrame(Frame frame) {
+            if (failure != null) {
+                framePool.offer(frame);
+                return;
+            }
+            if (rgbs == null && !palette.isIndexing(frame.image)) {
+                rgbs = new int[width * height];
+            }
+            palette.toIndexes(frame.image, rgbs, frame.indexes);
+            Rectangle changed = GIFEncoder.changedBounds(prevIndexes, frame.indexes, width, height);
+            //Nothing changed but a frame is still needed to keep the timing.
+            Rectangle bounds = changed == null ? new Rectangle(0, 0, 1, 1) : changed;
+            if (prevIndexes == null) {
+                prevIndexes = new byte[frame.indexes.length];
+            }
+            System.arraycopy(frame.indexes, 0, prevIndexes, 0, prevIndexes.length);
+
+            CompletableFuture<byte[]> compressed = CompletableFuture.supplyAsync(() -> GIFEncoder.encodeFrame(
+                    frame.indexes, width, bounds, delay, GIFEncoder.DISPOSAL_DO_NOT_DISPOSE, palette.getColorBits()),
+                    compressors);
+            int sequence = ++framesSubmitted;
+            written = written.thenCombine(compressed, (ignored, bytes) -> bytes).handle((bytes, error) -> {
+                //The compressed bytes don't refer to the frame buffer any more
+                framePool.offer(frame);
+                try {
+                    if (error != null) {
+                        if (failure == null) {
+                            failure = new IOException("Not able to compress a gif frame", error);
+                        }
+                    } else if (failure == null) {
+                        pendingWrites.add(ByteBuffer.wrap(bytes));
+                        framesWritten++;
+                        //Write if it is the latest frame or enough frames are collected
+                        if (sequence == framesSubmitted || pendingWrites.size() >= poolSize) {
+                            writePending();
+                        }
+                    }
+                } catch (IOException e) {
+                    failure = e;
+                }
+                return null;
+            });
+        }
+
+        /**
+         * Write all the collected frames with a single gathering write
+         *
+         * @throws IOException if not able to write
+         */
+        private void writePending() throws IOException {
+            ByteBuffer[] buffers = pendingWrites.toArray(new ByteBuffer[0]);
+            pendingWrites.clear();
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= paletteChannel.write(buffers);
+            }
+        }
+
+        /**
+         * Get a free frame buffer. Buffers are created lazily till the pool size is reached.
+         *
+         * @return free frame buffer or null if interrupted while waiting for one.
+         */
+        private Frame acquireFrame() {
+            Frame frame = framePool.poll();
+            if (frame != null) {
+                return frame;
+            }
+            if (framesAllocated < poolSize) {
+                framesAllocated++;
+                BufferedImage image = new BufferedImage(colorModel,
+                        colorModel.createCompatibleWritableRaster(width, height), colorModel.isAlphaPremultiplied(),
+                        null);
+                return new Frame(image, palette != null ? new byte[width * height] : null);
+            }
+            try {
+                return framePool.take();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /**
+         * Finish the gif. It only waits for the frames which are still in the pool so it doesn't depend on the
+         * length of the simulation. If no frame was added then the output file is removed.
+         *
+         * @throws IOException if something goes wrong
+         */
+        public void close() throws IOException {
+            encoder.shutdown();
+            try {
+                encoder.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                //Last frame is written after all the others
+                written.get();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                //Errors of the frames are kept in `failure`
+            }
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (palette != null) {
+                    pendingWrites.add(ByteBuffer.wrap(new byte[]{GIFEncoder.TRAILER}));
+                    writePending();
+                } else {
+                    writer.endWriteSequence();
+                }
+            } finally {
+                if (palette != null) {
+                    compressors.shutdown();
+                    paletteChannel.close();
+                } else {
+                    imageOutput.close();
+                    writer.dispose();
+                }
+                if (framesWritten == 0 && !outputFile.delete()) {
+                    System.out.println("Not able to remove empty gif:" + outputFile);
+                }
+            }
         }
 
         /**
          * Set up for building GIF
          *
-         * @param delay delay between iamges
-         * @param loop  whether gif will loop or not
+         * @param metadata metadata of the GIF images
+         * @param delay    delay between iamges
+         * @param loop     whether gif will loop or not
          * @throws IIOInvalidTreeException if something goes wrong
          */
-        private void configureRootMetadata(int delay, boolean loop) throws IIOInvalidTreeException {
+        private static void configureRootMetadata(IIOMetadata metadata, int delay, boolean loop) throws IIOInvalidTreeException {
             String metaFormatName = metadata.getNativeMetadataFormatName();
             IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(metaFormatName);
 
@@ -88,7 +377,7 @@ public class ImageUtils {
          * @param nodeName name of the node to find
          * @return node inside the `rootNode` with the name `nodeName`
          */
-        private IIOMetadataNode getNode(IIOMetadataNode rootNode, String nodeName) {
+        private static IIOMetadataNode getNode(IIOMetadataNode rootNode, String nodeName) {
             int nNodes = rootNode.getLength();
             for (int i = 0; i < nNodes; i++) {
                 if (rootNode.item(i).getNodeName().equalsIgnoreCase(nodeName)) {
@@ -99,54 +388,6 @@ public class ImageUtils {
             rootNode.appendChild(node);
             return (node);
         }
-
-        /**
-         * Helper method
-         *
-         * @param img input image
-         * @throws IOException if something goes wrong
-         */
-        void writeToSequence(RenderedImage img) throws IOException {
-            writer.writeToSequence(new IIOImage(img, null, metadata), params);
-        }
-
-        /**
-         * Clean up
-         *
-         * @throws IOException if something goes wrong
-         */
-        void close() throws IOException {
-            writer.endWriteSequence();
-        }
-
-        /**
-         * Create the gif from the set of images in the instance
-         *
-         * @param outputFile output file
-         * @param delay      delay between images in the gif.
-         * @param loop       whether gif is looping or not
-         * @throws IOException if something goes wrong
-         */
-        public void create(File outputFile, int delay, boolean loop) throws IOException {
-            if (images.isEmpty()) {
-                return;
-            }
-            ImageOutputStream output = new FileImageOutputStream(outputFile);
-            writer = ImageIO.getImageWritersBySuffix("gif").next();
-            params = writer.getDefaultWriteParam();
-            ImageTypeSpecifier imageTypeSpecifier = ImageTypeSpecifier.createFromBufferedImageType(images.get(0).getType());
-            metadata = writer.getDefaultImageMetadata(imageTypeSpecifier, params);
-            configureRootMetadata(delay, loop);
-            writer.setOutput(output);
-            writer.prepareWriteSequence(null);
-            //Add the images
-            for (BufferedImage image : images) {
-                writeToSequence(image);
-            }
-            //Cleanup
-            close();
-            output.close();
-        }
     }
 
     /**
@@ -159,59 +400,159 @@ public class ImageUtils {
         int intensityLevels = Configuration.OilPainting.INTENSITY_LEVEL;
 
         /**
-         * Oil paint the source image
+         * Oil paint the source image. Every pixel takes the average color of the most frequent intensity in a circle
+         * around it. The circle moves one pixel at a time along a row so the intensity histogram is updated only for
+         * the pixels entering and leaving the circle. Rows are processed in parallel.
          *
          * @param src source image
          * @return oil painted image
          */
         public BufferedImage paint(BufferedImage src) {
-            BufferedImage dest = new BufferedImage(src.getWidth(), src.getHeight(), src.getType());
-            int averageR[] = new int[intensityLevels];
-            int averageG[] = new int[intensityLevels];
-            int averageB[] = new int[intensityLevels];
-            int intensityCount[] = new int[intensityLevels];
-
-            for (int x = 0; x < src.getWidth(); ++x) {
-                int left = Math.max(0, x - radius);
-                int right = Math.min(x + radius, dest.getWidth() - 1);
-                for (int y = 0; y < src.getHeight(); ++y) {
-                    int top = Math.max(0, y - radius);
-                    int bottom = Math.min(y + radius, dest.getHeight() - 1);
-                    Arrays.fill(averageR, 0);
-                    Arrays.fill(averageG, 0);
-                    Arrays.fill(averageB, 0);
-                    Arrays.fill(intensityCount, 0);
-                    int maxIndex = -1;
-                    for (int j = top; j <= bottom; ++j) {
-                        for (int i = left; i <= right; ++i) {
-                            if (!inRange(x, y, i, j)) continue;
-                            int rgb = src.getRGB(i, j);
-                            int red = (rgb >> 16) & 0xFF;
-                            int green = (rgb >> 8) & 0xFF;
-                            int blue = (rgb) & 0xFF;
-                            int intensityIndex = (int) ((((red + green + blue) / 3.0) / 256.0) * intensityLevels);
-                            intensityCount[intensityIndex]++;
-                            averageR[intensityIndex] += red;
-                            averageG[intensityIndex] += green;
-                            averageB[intensityIndex] += blue;
-                            if (maxIndex == -1 ||
-                                    intensityCount[maxIndex] < intensityCount[intensityIndex]
-                                    ) {
-                                maxIndex = intensityIndex;
-                            }
-                        }
+            int width = src.getWidth();
+            int height = src.getHeight();
+            //An indexed source can't hold the averaged colors
+            int type = src.getColorModel() instanceof IndexColorModel ? BufferedImage.TYPE_INT_RGB : src.getType();
+            BufferedImage dest = new BufferedImage(width, height, type);
+            int[] pixels = src.getRGB(0, 0, width, height, null, 0, width);
+
+            //Intensity of a pixel only depends on the sum of its channels.
+            int[] intensityLUT = new int[256 * 3];
+            for (int sum = 0; sum < intensityLUT.length; sum++) {
+                intensityLUT[sum] = (int) (((sum / 3.0) / 256.0) * intensityLevels);
+            }
+            byte[] intensities = new byte[pixels.length];
+            for (int i = 0; i < pixels.length; i++) {
+                int rgb = pixels[i];
+                intensities[i] = (byte) intensityLUT[((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF)];
+            }
+
+            //Half width of the circle for every row offset. `spans[dy + radius]` is the largest dx in the circle.
+            int[] spans = new int[2 * radius + 1];
+            for (int dy = -radius; dy <= radius; dy++) {
+                spans[dy + radius] = -1;
+                for (int dx = 0; dx <= radius; dx++) {
+                    if (inRange(0, 0, dx, dy)) {
+                        spans[dy + radius] = dx;
                     }
-                    int curMax = intensityCount[maxIndex];
-                    int r = averageR[maxIndex] / curMax;
-                    int g = averageG[maxIndex] / curMax;
-                    int b = averageB[maxIndex] / curMax;
-                    int rgb = ((r << 16) | ((g << 8) | b));
-                    dest.setRGB(x, y, rgb);
                 }
             }
+
+            int[] painted = new int[pixels.length];
+            IntStream.range(0, height).parallel().forEach(y -> paintRow(pixels, intensities, spans, painted, width,
+                    height, y));
+            dest.setRGB(0, 0, width, height, painted, 0, width);
             return dest;
         }
 
+        /**
+         * Oil paint a row
+         *
+         * @param pixels      packed RGB pixels of the source image
+         * @param intensities intensity of every pixel
+         * @param spans       half width of the circle for every row offset
+         * @param painted     destination for the oil painted pixels
+         * @param width       width of the image
+         * @param height      height of the image
+         * @param y           row to paint
+         */
+        private void paintRow(int[] pixels, byte[] intensities, int[] spans, int[] painted, int width, int height, int y) {
+            int[] averageR = new int[intensityLevels];
+            int[] averageG = new int[intensityLevels];
+            int[] averageB = new int[intensityLevels];
+            int[] intensityCount = new int[intensityLevels];
+
+            for (int x = 0; x < width; ++x) {
+                for (int dy = -radius; dy <= radius; dy++) {
+                    int j = y + dy;
+                    int span = spans[dy + radius];
+                    if (j < 0 || j >= height || span < 0) {
+                        continue;
+                    }
+                    int rowStart = j * width;
+                    if (x == 0) {
+                        //First circle of the row
+                        for (int i = 0; i <= Math.min(span, width - 1); i++) {
+                            updateHistogram(pixels, intensities, rowStart + i, 1, averageR, averageG, averageB, intensityCount);
+                        }
+                        continue;
+                    }
+                    //Slide the circle by one pixel
+                    int leaving = x - 1 - span;
+                    if (leaving >= 0) {
+                        updateHistogram(pixels, intensities, rowStart + leaving, -1, averageR, averageG, averageB, intensityCount);
+                    }
+                    int entering = x + span;
+                    if (entering < width) {
+                        updateHistogram(pixels, intensities, rowStart + entering, 1, averageR, averageG, averageB, intensityCount);
+                    }
+                }
+
+                int maxIndex = 0;
+                boolean tie = false;
+                for (int i = 1; i < intensityLevels; i++) {
+                    if (intensityCount[i] > intensityCount[maxIndex]) {
+                        maxIndex = i;
+                        tie = false;
+                    } else if (intensityCount[i] == intensityCount[maxIndex]) {
+                        tie = true;
+                    }
+                }
+                if (tie) {
+                    //Equal intensities are resolved by the one which reached the count first while scanning the circle.
+                    maxIndex = resolveTie(intensities, spans, width, height, x, y);
+                }
+                int curMax = intensityCount[maxIndex];
+                int r = averageR[maxIndex] / curMax;
+                int g = averageG[maxIndex] / curMax;
+                int b = averageB[maxIndex] / curMax;
+                painted[y * width + x] = ((r << 16) | ((g << 8) | b));
+            }
+        }
+
+        /**
+         * Add or remove a pixel from the histogram
+         */
+        private static void updateHistogram(int[] pixels, byte[] intensities, int index, int delta, int[] averageR,
+                                            int[] averageG, int[] averageB, int[] intensityCount) {
+            int rgb = pixels[index];
+            int intensityIndex = intensities[index];
+            intensityCount[intensityIndex] += delta;
+            averageR[intensityIndex] += delta * ((rgb >> 16) & 0xFF);
+            averageG[intensityIndex] += delta * ((rgb >> 8) & 0xFF);
+            averageB[intensityIndex] += delta * (rgb & 0xFF);
+        }
+
+        /**
+         * Scan the circle row by row and find the intensity which was the first to reach the maximum count.
+         *
+         * @param intensities intensity of every pixel
+         * @param spans       half width of the circle for every row offset
+         * @param width       width of the image
+         * @param height      height of the image
+         * @param x           x coordinate of the center
+         * @param y           y coordinate of the center
+         * @return most frequent intensity
+         */
+        private int resolveTie(byte[] intensities, int[] spans, int width, int height, int x, int y) {
+            int[] intensityCount = new int[intensityLevels];
+            int maxIndex = -1;
+            for (int dy = -radius; dy <= radius; dy++) {
+                int j = y + dy;
+                int span = spans[dy + radius];
+                if (j < 0 || j >= height || span < 0) {
+                    continue;
+                }
+                for (int i = Math.max(0, x - span); i <= Math.min(x + span, width - 1); i++) {
+                    int intensityIndex = intensities[j * width + i];
+                    intensityCount[intensityIndex]++;
+                    if (maxIndex == -1 || intensityCount[maxIndex] < intensityCount[intensityIndex]) {
+                        maxIndex = intensityIndex;
+                    }
+                }
+            }
+            return maxIndex;
+        }
+
         /**
          * Check a the distance between two points is within the configured radius or not.
          *
@@ -241,6 +582,25 @@ public class ImageUtils {
         return new BufferedImage(cm, raster, isAlphaPremultiplied, null);
     }
 
+    /**
+     * Get the pixels of an image as packed RGB values in row major order. For integer RGB images the backing array of
+     * the image is returned without copying so it should be treated as read only.
+     *
+     * @param image input image
+     * @return packed RGB pixels
+     */
+    public static int[] getRGBPixels(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_RGB && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getDataBuffer().getNumBanks() == 1 && raster.getParent() == null
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == image.getWidth()
+                && raster.getDataBuffer().getOffset() == 0) {
+            return ((DataBufferInt) raster.getDataBuffer()).getData();
+        }
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
     /**
      * Check that two color are similar or not. We will check that individual channels of the destination color falls
      * into a fixed range or not of the source channel.
@@ -250,58 +610,30 @@ public class ImageUtils {
      * @return if colors are similar
      */
     public static boolean isSimilar(Color src, Color target) {
-        int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
-        int srcRed = src.getRed();
-        int srcGreen = src.getGreen();
-        int srcBlue = src.getBlue();
-        int destRed = target.getRed();
-        int destGreen = target.getGreen();
-        int destBlue = target.getBlue();
-
-        return destRed >= srcRed - limit && destRed <= srcRed + limit &&
-                destGreen >= srcGreen - limit && destGreen <= srcGreen + limit
-                && destBlue >= srcBlue - limit && destBlue <= srcBlue + limit;
-
+        return isSimilar(src.getRGB(), target.getRGB());
     }
 
     /**
-     * Create a color profile from the input image. Color profile is a map containing colors in the image and their ratio.
-     * This method will not extract each individual color. It will try to represent colors which are similar by a representative.
-     * The representative color is just the first color which is found.
+     * Check that two packed RGB colors are similar or not. Look `isSimilar(Color, Color)`. When comparing against a
+     * fixed set of colors use `SimilarityIndex` instead.
      *
-     * @param src source image
-     * @return map containing color profile of the image
+     * @param src    source color
+     * @param target destination color
+     * @return if colors are similar
      */
-    public static Map<Color, Float> colorProfile(BufferedImage src) {
-        Map<Color, Integer> colorCounts = new HashMap<>();
-
-        for (int i = 0; i < src.getWidth(); i++) {
-            for (int j = 0; j < src.getHeight(); j++) {
-                Color pixelColor = new Color(src.getRGB(i, j));
-                boolean found = false;
-                //If a pixel color is similar to already found color then it will just increase the count of that.
-                for (Color color : colorCounts.keySet()) {
-                    if (!isSimilar(color, pixelColor)) {
-                        continue;
-                    }
-                    colorCounts.put(color, colorCounts.get(color) + 1);
-                    found = true;
-                    break;
-                }
-                //If the pixel color can't be represented by any existing color then add it as a representative.
-                if (!found) {
-                    colorCounts.put(pixelColor, 1);
-                }
-            }
-        }
-        //Convert the count into ratios
-        int size = src.getWidth() * src.getHeight();
-        Map<Color, Float> colorProfile = new HashMap<>();
-        for (Color color : colorCounts.keySet()) {
-            colorProfile.put(color, colorCounts.get(color) / (float) size);
-        }
+    public static boolean isSimilar(int src, int target) {
+        int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
+        int srcRed = (src >> 16) & 0xFF;
+        int srcGreen = (src >> 8) & 0xFF;
+        int srcBlue = src & 0xFF;
+        int destRed = (target >> 16) & 0xFF;
+        int destGreen = (target >> 8) & 0xFF;
+        int destBlue = target & 0xFF;
+
+        return destRed >= srcRed - limit && destRed <= srcRed + limit &&
+                destGreen >= srcGreen - limit && destGreen <= srcGreen + limit
+                && destBlue >= srcBlue - limit && destBlue <= srcBlue + limit;
 
-        return colorProfile;
     }
 
     /**
@@ -357,17 +689,17 @@ public class ImageUtils {
         }
 
         if (processWidth) {
-            int newHeight = (int) (((float) Configuration.MAXIMUM_IMAGE_SIZE / input.getWidth()) * input.getHeight());
+            int newHeight = (int) (((float) limit / input.getWidth()) * input.getHeight());
             System.out.println(String.format("Resizing (%s, %s) to (%s,%s)", input.getWidth(), input.getHeight(),
-                    Configuration.MAXIMUM_IMAGE_SIZE, newHeight));
+                    limit, newHeight));
             System.out.println();
-            rescaled = input.getScaledInstance(Configuration.MAXIMUM_IMAGE_SIZE, newHeight, Image.SCALE_DEFAULT);
+            rescaled = input.getScaledInstance(limit, newHeight, Image.SCALE_DEFAULT);
         } else {
-            int newWidth = (int) (((float) input.getWidth() * Configuration.MAXIMUM_IMAGE_SIZE) / input.getHeight());
+            int newWidth = (int) (((float) input.getWidth() * limit) / input.getHeight());
             System.out.println(String.format("Resizing (%s, %s) to (%s,%s)", input.getWidth(), input.getHeight(),
-                    newWidth, Configuration.MAXIMUM_IMAGE_SIZE));
+                    newWidth, limit));
             System.out.println();
-            rescaled = input.getScaledInstance(newWidth, Configuration.MAXIMUM_IMAGE_SIZE, Image.SCALE_DEFAULT);
+            rescaled = input.getScaledInstance(newWidth, limit, Image.SCALE_DEFAULT);
         }
         return convertToBufferedImage(rescaled);
     }
@@ -0,0 +1,105 @@
+package ant_art.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 14-05-2020 11:20
+ * Purpose: Canvas which stores a byte per pixel. Every color the area can paint comes from the pallets, the target
+ * colors and some fixed colors so they are put in a `GIFPalette` and the image only keeps indexes in it. Pheromone
+ * shading uses a ramp of darker shades of every color of the table.
+ **/
+public class IndexedCanvas {
+    private final GIFPalette palette;
+    private final BufferedImage image;
+    //Backing array of the image in row major order
+    private final byte[] pixels;
+    private final int width;
+    //Number of steps of a ramp from black to the color
+    private final int levels;
+    //Index of the shade `level` of the color at `index` is at `index * (levels + 1) + level`
+    private final byte[] ramps;
+
+    /**
+     * @param width       width of the canvas
+     * @param height      height of the canvas
+     * @param colors      colors which can be painted on the canvas
+     * @param shadeLevels number of intensity levels of the shading
+     */
+    public IndexedCanvas(int width, int height, Collection<Color> colors, int shadeLevels) {
+        this.palette = GIFPalette.create(colors, shadeLevels);
+        IndexColorModel colorModel = palette.getColorModel();
+        this.image = new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height), false,
+                null);
+        this.pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        this.width = width;
+        this.levels = shadeLevels;
+        this.ramps = new byte[colorModel.getMapSize() * (levels + 1)];
+        for (int index = 0; index < colorModel.getMapSize(); index++) {
+            for (int level = 0; level <= levels; level++) {
+                //Shades which didn't fit in the table are the closest color present
+                int shade = GIFPalette.shade(palette.getColor(index), (float) level / levels);
+                ramps[index * (levels + 1) + level] = (byte) palette.indexOf(shade);
+            }
+        }
+    }
+
+    /**
+     * @return image of the canvas. Its pixels are indexes of the palette.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public GIFPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     * @param rgb packed RGB color
+     * @return index of the color or of the closest color in the palette
+     */
+    public int indexOf(int rgb) {
+        return palette.indexOf(rgb);
+    }
+
+    /**
+     * @param index index in the palette
+     * @return opaque packed RGB color at the index
+     */
+    public int getRGB(int index) {
+        return palette.getColor(index) | 0xFF000000;
+    }
+
+    /**
+     * Get a shade of a color of the palette
+     *
+     * @param index     index of the color in the palette
+     * @param intensity intensity between 0 and 1
+     * @return index of the shade in the palette
+     */
+    public int shade(int index, float intensity) {
+        int level = (int) (intensity * levels + 0.5f);
+        return ramps[index * (levels + 1) + level] & 0xFF;
+    }
+
+    /**
+     * Fill a square with a color
+     *
+     * @param x     left of the square
+     * @param y     top of the square
+     * @param side  side of the square
+     * @param index index of the color in the palette
+     */
+    public void fill(int x, int y, int side, int index) {
+        for (int row = y; row < y + side; row++) {
+            int start = row * width + x;
+            Arrays.fill(pixels, start, start + side, (byte) index);
+        }
+    }
+}
@@ -1,135 +1,455 @@
 package ant_art.utils;
 
-import javafx.util.Pair;
+import ant_art.config.Configuration;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * Created By: Prashant Chaubey
  * Created On: 18-04-2020 16:03
  * Purpose: Implementation of simple first order Markov chain which can learn colors from an input file.
+ * A trained chain is immutable so one chain can be shared by any number of threads and simulations. Walking the chain
+ * needs a random number generator and the previous color which are kept in a `Sampler` owned by the caller.
  **/
-public class MarkovChain {
-    private Map<Color, Map<Color, Integer>> colorCounts = new HashMap<>();
-    //This will be used in weighted selection of colors.
-    private Map<Color, Pair<Integer, NavigableMap<Integer, Color>>> selectorMap = new HashMap<>();
-    private Random random = new Random();
-    private List<Color> excludedColors;
+public final class MarkovChain {
+    //Rows counted by one training task
+    private static final int ROWS_PER_TASK = 64;
+    //Marks excluded pixels while training. Packed RGB without alpha is never negative.
+    private static final int EXCLUDED = -1;
 
-    public MarkovChain(List<Color> excludedColors) {
-        this.excludedColors = excludedColors;
+    //Compiled form of the chain which is built after training. Colors are given dense ids and neighbors of every color
+    //are sampled with an alias table (look `buildAliasTable`) so sampling doesn't allocate or search.
+    //Packed RGB of every color id
+    private final int[] colorRGBs;
+    private final Map<Integer, Integer> colorIds;
+    //For every color id: neighbor color ids, their counts, probability of keeping a neighbor and its alias.
+    private final int[][] neighborIds;
+    private final int[][] neighborCounts;
+    private final float[][] neighborProbabilities;
+    private final int[][] neighborAliases;
+
+    /**
+     * Build the compiled form of the chain
+     *
+     * @param rgbs      packed RGB of every color id
+     * @param neighbors neighbor color ids of every color id
+     * @param counts    number of times every neighbor is seen
+     */
+    MarkovChain(int[] rgbs, int[][] neighbors, int[][] counts) {
+        colorRGBs = rgbs;
+        neighborIds = neighbors;
+        neighborCounts = counts;
+        Map<Integer, Integer> ids = new HashMap<>();
+        for (int id = 0; id < rgbs.length; id++) {
+            ids.put(rgbs[id], id);
+        }
+        colorIds = Collections.unmodifiableMap(ids);
+        neighborProbabilities = new float[rgbs.length][];
+        neighborAliases = new int[rgbs.length][];
+        for (int id = 0; id < rgbs.length; id++) {
+            neighborProbabilities[id] = new float[neighbors[id].length];
+            neighborAliases[id] = new int[neighbors[id].length];
+            buildAliasTable(counts[id], neighborProbabilities[id], neighborAliases[id]);
+        }
     }
 
     /**
-     * Train the chain on the image
+     * Train a chain on the image. Rare transitions are pruned by `Configuration.MARKOV_CHAIN_PRUNE_RATIO`.
      * It is expected that this image is RGB else the behavior is unexpected. There is currently no functionality to
      * check the same.
      *
-     * @param image input image
+     * @param image          input image
+     * @param excludedColors colors which are not learned
+     * @return trained chain
      */
-    public void train(BufferedImage image) {
-        //Before training we erase previous data.
-        colorCounts = new HashMap<>();
-        selectorMap = new HashMap<>();
+    public static MarkovChain train(BufferedImage image, List<Color> excludedColors) {
+        return train(image, excludedColors, Configuration.MARKOV_CHAIN_PRUNE_RATIO);
+    }
 
+    /**
+     * Train a chain on the image. Rows of the image are divided in bands which are counted in parallel and then
+     * merged, so large images can be used for training.
+     *
+     * @param image          input image
+     * @param excludedColors colors which are not learned
+     * @param pruneRatio     transitions of a color which are less than this ratio of all its transitions are removed.
+     *                       The most frequent transition of a color is always kept. 0 keeps everything.
+     * @return trained chain
+     */
+    public static MarkovChain train(BufferedImage image, List<Color> excludedColors, float pruneRatio) {
+        SimilarityIndex excluded = new SimilarityIndex(excludedColors);
         int width = image.getWidth();
         int height = image.getHeight();
+        int[] pixels = ImageUtils.getRGBPixels(image);
+        int tasks = (height + ROWS_PER_TASK - 1) / ROWS_PER_TASK;
+
+        TransitionCounter counter = IntStream.range(0, tasks).parallel().mapToObj(task -> {
+            int start = task * ROWS_PER_TASK;
+            int end = Math.min(height, start + ROWS_PER_TASK);
+            return count(pixels, width, height, start, end, excluded);
+        }).reduce(TransitionCounter::merge).orElseGet(TransitionCounter::new);
+
+        return compile(counter, pruneRatio);
+    }
+
+    /**
+     * Count the transitions of a band of rows. A transition is a pixel and one of its 8 neighbors or itself.
+     *
+     * @param pixels   packed RGB pixels of the image
+     * @param width    width of the image
+     * @param height   height of the image
+     * @param start    first row of the band
+     * @param end      row after the last row of the band
+     * @param excluded colors which are not counted
+     * @return counts of the band
+     */
+    private static TransitionCounter count(int[] pixels, int width, int height, int start, int end,
+                                           SimilarityIndex excluded) {
+        //Rows of the band with a row above and below. Alpha is removed and excluded pixels are marked so that every
+        //pixel is checked only once.
+        int first = Math.max(0, start - 1);
+        int last = Math.min(height, end + 1);
+        int[] colors = new int[(last - first) * width];
+        int prevRGB = -1;
+        boolean prevExcluded = false;
+        for (int i = 0; i < colors.length; i++) {
+            int rgb = pixels[first * width + i] & 0xFFFFFF;
+            if (rgb != prevRGB) {
+                prevRGB = rgb;
+                prevExcluded = excluded.isSimilarToAny(rgb);
+            }
+            colors[i] = prevExcluded ? EXCLUDED : rgb;
+        }
 
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                Color color = new Color(image.getRGB(x, y));
-                if (isExcluded(color)) {
+        TransitionCounter counter = new TransitionCounter();
+        for (int y = start; y < end; y++) {
+            int row = (y - first) * width;
+            for (int x = 0; x < width; x++) {
+                int rgb = colors[row + x];
+                if (rgb == EXCLUDED) {
                     continue;
                 }
-                if (!colorCounts.containsKey(color)) {
-                    colorCounts.put(color, new HashMap<>());
-                }
-                Map<Color, Integer> neighbors = colorCounts.get(color);
-                //Adding neighbors
-                for (int i = x - 1; i <= x + 1; i++) {
-                    for (int j = y - 1; j <= y + 1; j++) {
-                        if (i < 0 || i >= width || j < 0 || j >= height) {
-                            continue;
-                        }
-                        Color neighborColor = new Color(image.getRGB(i, j));
-                        if (isExcluded(neighborColor)) {
-                            continue;
+                for (int j = Math.max(0, y - 1); j <= Math.min(height - 1, y + 1); j++) {
+                    int neighborRow = (j - first) * width;
+                    for (int i = Math.max(0, x - 1); i <= Math.min(width - 1, x + 1); i++) {
+                        int neighbor = colors[neighborRow + i];
+                        if (neighbor != EXCLUDED) {
+                            counter.add(TransitionCounter.key(rgb, neighbor), 1);
                         }
-                        neighbors.put(neighborColor, neighbors.getOrDefault(neighborColor, 0) + 1);
                     }
                 }
             }
         }
+        return counter;
+    }
+
+    /**
+     * Give dense ids to the counted colors and build the chain
+     *
+     * @param counter    counts of the transitions
+     * @param pruneRatio look `train`
+     * @return chain
+     */
+    private static MarkovChain compile(TransitionCounter counter, float pruneRatio) {
+        //Sorted keys keep transitions of a color together and the colors in ascending order. Every neighbor is also
+        //counted as a color because it is its own neighbor.
+        long[] keys = counter.sortedKeys();
+        int colorCount = 0;
+        for (int k = 0; k < keys.length; k++) {
+            if (k == 0 || TransitionCounter.color(keys[k]) != TransitionCounter.color(keys[k - 1])) {
+                colorCount++;
+            }
+        }
+        int[] rgbs = new int[colorCount];
+        int[] firstKeys = new int[colorCount + 1];
+        for (int k = 0, id = -1; k < keys.length; k++) {
+            if (k == 0 || TransitionCounter.color(keys[k]) != TransitionCounter.color(keys[k - 1])) {
+                rgbs[++id] = TransitionCounter.color(keys[k]);
+                firstKeys[id] = k;
+            }
+        }
+        firstKeys[colorCount] = keys.length;
+
+        int[][] neighbors = new int[colorCount][];
+        int[][] counts = new int[colorCount][];
+        for (int id = 0; id < colorCount; id++) {
+            int from = firstKeys[id];
+            int to = firstKeys[id + 1];
+            long total = 0;
+            int max = 0;
+            for (int k = from; k < to; k++) {
+                int count = counter.get(keys[k]);
+                total += count;
+                max = Math.max(max, count);
+            }
+            //Never more than the most frequent transition so that every color keeps a neighbor
+            long minimum = Math.min(max, (long) Math.ceil(pruneRatio * total));
+            int kept = 0;
+            int[] ids = new int[to - from];
+            int[] keptCounts = new int[to - from];
+            for (int k = from; k < to; k++) {
+                int count = counter.get(keys[k]);
+                if (count >= minimum) {
+                    ids[kept] = Arrays.binarySearch(rgbs, TransitionCounter.neighbor(keys[k]));
+                    keptCounts[kept] = count;
+                    kept++;
+                }
+            }
+            neighbors[id] = Arrays.copyOf(ids, kept);
+            counts[id] = Arrays.copyOf(keptCounts, kept);
+        }
+        return new MarkovChain(rgbs, neighbors, counts);
+    }
+
+    /**
+     * Write the trained chain. Look `read` for the format.
+     *
+     * @param out output
+     * @throws IOException if something goes wrong
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(colorRGBs.length);
+        for (int rgb : colorRGBs) {
+            out.writeInt(rgb);
+        }
+        for (int id = 0; id < colorRGBs.length; id++) {
+            out.writeInt(neighborIds[id].length);
+            for (int k = 0; k < neighborIds[id].length; k++) {
+                out.writeInt(neighborIds[id][k]);
+                out.writeInt(neighborCounts[id][k]);
+            }
+        }
+    }
+
+    /**
+     * Read a trained chain written by `write`. Format is the number of colors, packed RGB of every color and then for
+     * every color the number of neighbors followed by id and count of every neighbor. All values are big endian ints.
+     * Lengths are checked against the remaining input before anything is allocated so a corrupt file can't ask for a
+     * huge array.
+     *
+     * @param in input
+     * @return chain
+     * @throws BufferUnderflowException  if the input is incomplete
+     * @throws IndexOutOfBoundsException if a neighbor is not one of the colors or a count is negative
+     */
+    static MarkovChain read(ByteBuffer in) {
+        int[] rgbs = new int[readLength(in, 4)];
+        for (int id = 0; id < rgbs.length; id++) {
+            rgbs[id] = in.getInt();
+        }
+        int[][] neighbors = new int[rgbs.length][];
+        int[][] counts = new int[rgbs.length][];
+        for (int id = 0; id < rgbs.length; id++) {
+            neighbors[id] = new int[readLength(in, 8)];
+            counts[id] = new int[neighbors[id].length];
+            for (int k = 0; k < neighbors[id].length; k++) {
+                neighbors[id][k] = in.getInt();
+                counts[id][k] = in.getInt();
+                if (neighbors[id][k] < 0 || neighbors[id][k] >= rgbs.length || counts[id][k] < 0) {
+                    throw new IndexOutOfBoundsException(String.format("Neighbor:%s count:%s of %s colors",
+                            neighbors[id][k], counts[id][k], rgbs.length));
+                }
+            }
+        }
+        return new MarkovChain(rgbs, neighbors, counts);
+    }
+
+    /**
+     * @param in    input
+     * @param bytes bytes of every entry
+     * @return number of entries which are followed by at least that many entries in the input
+     * @throws BufferUnderflowException if the length is negative or the input doesn't have the entries
+     */
+    private static int readLength(ByteBuffer in, int bytes) {
+        int length = in.getInt();
+        if (length < 0 || length > in.remaining() / bytes) {
+            throw new BufferUnderflowException();
+        }
+        return length;
     }
 
     /**
-     * Check whether a color is excluded
+     * Build an alias table for weighted selection (Vose's method). Every slot of the table has equal chance and keeps
+     * its own entry with `probabilities[slot]` or else gives its alias.
+     * REFERENCE: https://www.keithschwarz.com/darts-dice-coins/
      *
-     * @param color input color
-     * @return true if excluded
+     * @param weights       weights of the entries
+     * @param probabilities output probabilities of keeping an entry
+     * @param aliases       output aliases of the entries
      */
-    private boolean isExcluded(Color color) {
-        for (Color excludedColor : excludedColors) {
-            if (ImageUtils.isSimilar(excludedColor, color)) {
-                return true;
+    static void buildAliasTable(int[] weights, float[] probabilities, int[] aliases) {
+        int n = weights.length;
+        long totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = (double) weights[i] * n / totalWeight;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probabilities[less] = (float) scaled[less];
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
             }
         }
-        return false;
+        //Left overs are full because of rounding errors
+        while (largeCount > 0) {
+            int more = large[--largeCount];
+            probabilities[more] = 1;
+            aliases[more] = more;
+        }
+        while (smallCount > 0) {
+            int less = small[--smallCount];
+            probabilities[less] = 1;
+            aliases[less] = less;
+        }
+    }
+
+    /**
+     * Create a sampler which walks this chain
+     *
+     * @param random random number generator of the sampler. It should not be shared with other threads.
+     * @return sampler
+     */
+    public Sampler newSampler(Random random) {
+        return new Sampler(this, random);
     }
 
     /**
-     * Return a random color from the chain. Remember to train first before calling this.
+     * Return a random color from the chain
      *
+     * @param random random number generator
      * @return color
      */
-    public Color getRandomColor() {
-        List<Color> colors = new ArrayList<>(colorCounts.keySet());
-        return colors.get(random.nextInt(colors.size()));
+    public Color getRandomColor(Random random) {
+        return new Color(colorRGBs[getRandomColorId(random)]);
+    }
+
+    /**
+     * @return all the colors learned by the chain
+     */
+    public Set<Color> getColors() {
+        Set<Color> colors = new LinkedHashSet<>();
+        for (int rgb : colorRGBs) {
+            colors.add(new Color(rgb));
+        }
+        return colors;
     }
 
     /**
      * Get a neighboring color from the chain for an input color
      *
-     * @param color input color
+     * @param color  input color
+     * @param random random number generator
      * @return neighboring color from the chain
      */
-    public Color getRandomNeighboringColor(Color color) {
-        Pair<Integer, NavigableMap<Integer, Color>> selector = getSelector(color);
-        if (selector == null) {
+    public Color getRandomNeighboringColor(Color color, Random random) {
+        int colorId = getColorId(color.getRGB());
+        if (colorId == -1) {
             return null;
         }
-        return selector.getValue().ceilingEntry(random.nextInt(selector.getKey() + 1)).getValue();
+        return new Color(colorRGBs[getRandomNeighborId(colorId, random)]);
     }
 
     /**
-     * Create a navigable map for weighted selection for neighbors
+     * Return id of a random color from the chain
      *
-     * @param color input color whose selector is to be made
-     * @return pair of total weight, navigable map containing neighbors and their weights
+     * @param random random number generator
+     * @return color id
      */
-    private Pair<Integer, NavigableMap<Integer, Color>> getSelector(Color color) {
-        // Return cached data.
-        if (selectorMap.containsKey(color)) {
-            return selectorMap.get(color);
+    public int getRandomColorId(Random random) {
+        return random.nextInt(colorRGBs.length);
+    }
+
+    /**
+     * Get id of a neighboring color from the chain. It takes constant time and doesn't allocate.
+     *
+     * @param colorId id of the input color
+     * @param random  random number generator
+     * @return id of the neighboring color
+     */
+    public int getRandomNeighborId(int colorId, Random random) {
+        int[] ids = neighborIds[colorId];
+        //Single random number gives both the slot and the chance of keeping it.
+        double value = random.nextDouble() * ids.length;
+        int slot = (int) value;
+        return value - slot < neighborProbabilities[colorId][slot] ? ids[slot] : ids[neighborAliases[colorId][slot]];
+    }
+
+    /**
+     * @param colorId id of a color
+     * @return packed RGB of the color
+     */
+    public int getRGB(int colorId) {
+        return colorRGBs[colorId];
+    }
+
+    /**
+     * @param rgb packed RGB color. Alpha is ignored.
+     * @return id of the color or -1 if it is not in the chain
+     */
+    public int getColorId(int rgb) {
+        return colorIds.getOrDefault(rgb & 0xFFFFFF, -1);
+    }
+
+    /**
+     * Cursor which walks a chain. It keeps the random number generator and the previous color so the chain itself
+     * stays immutable. A sampler is not thread safe; every thread or simulation should use its own.
+     */
+    public static final class Sampler {
+        private final MarkovChain chain;
+        private final Random random;
+        private int colorId = -1;
+
+        private Sampler(MarkovChain chain, Random random) {
+            this.chain = chain;
+            this.random = random;
         }
-        //Check color is present
-        Map<Color, Integer> colors = colorCounts.get(color);
-        if (colors == null || colors.isEmpty()) {
-            return null;
+
+        /**
+         * Move to the next color. The first color is a random color of the chain and after that a neighbor of the
+         * previous color.
+         *
+         * @return packed RGB of the color
+         */
+        public int next() {
+            colorId = colorId == -1 ? chain.getRandomColorId(random) : chain.getRandomNeighborId(colorId, random);
+            return chain.getRGB(colorId);
+        }
+
+        /**
+         * Forget the previous color so the next color is a random color of the chain
+         */
+        public void reset() {
+            colorId = -1;
         }
-        //Create a navigable map for weighted selection for neighbors
-        NavigableMap<Integer, Color> selector = new TreeMap<>();
-        int totalWeight = 0;
-        for (Color neighborColor : colors.keySet()) {
-            totalWeight += colors.get(neighborColor);
-            selector.put(totalWeight, neighborColor);
+
+        public MarkovChain getChain() {
+            return chain;
         }
-        //Cache for future use.
-        selectorMap.put(color, new Pair<>(totalWeight, selector));
-        return selectorMap.get(color);
     }
-
 }
@@ -0,0 +1,141 @@
+package ant_art.utils;
+
+import ant_art.config.Configuration;
+import ant_art.exceptions.AntArtException;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 08-05-2020 19:12
+ * Purpose: Disk cache of trained Markov chains. A chain is identified by the hash of the pallet file contents and the
+ * colors excluded while training so a changed pallet is trained again automatically.
+ **/
+public class MarkovChainCache {
+    //Change it whenever the format of the cache files or the training is changed.
+    private static final int VERSION = 2;
+    private static final int MAGIC = 0x4D4B4348;
+    private static final String EXTENSION = ".chain";
+
+    private final File directory;
+
+    public MarkovChainCache(String directory) {
+        this.directory = new File(directory);
+    }
+
+    /**
+     * Get the chain trained on a pallet. It is loaded from the cache if present else trained and stored in the cache.
+     *
+     * @param pallet         pallet file
+     * @param excludedColors colors excluded from the chain
+     * @return trained chain
+     * @throws IOException     if not able to read the pallet
+     * @throws AntArtException if the pallet is not valid
+     */
+    public MarkovChain get(File pallet, List<Color> excludedColors) throws IOException, AntArtException {
+        byte[] contents = Files.readAllBytes(pallet.toPath());
+        File cacheFile = new File(directory, getKey(contents, excludedColors) + EXTENSION);
+
+        MarkovChain chain = cacheFile.exists() ? load(cacheFile) : null;
+        if (chain != null) {
+            return chain;
+        }
+        chain = MarkovChain.train(PalletReader.read(pallet.getName(), contents), excludedColors);
+        store(chain, cacheFile);
+        return chain;
+    }
+
+    /**
+     * Create the key of a chain
+     *
+     * @param contents       contents of the pallet file
+     * @param excludedColors colors excluded from the chain
+     * @return hex string of the hash of everything which affects the training
+     */
+    private static String getKey(byte[] contents, List<Color> excludedColors) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+
+        } catch (NoSuchAlgorithmException e) {
+            //Every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer settings = ByteBuffer.allocate(4 * (4 + excludedColors.size()));
+        settings.putInt(VERSION);
+        settings.putInt(Configuration.COLOR_SIMILARITY_THRESHOLD);
+        settings.putFloat(Configuration.MARKOV_CHAIN_PRUNE_RATIO);
+        settings.putInt(excludedColors.size());
+        for (Color color : excludedColors) {
+            settings.putInt(color.getRGB());
+        }
+        digest.update(settings.array());
+        digest.update(contents);
+
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Load a chain from a cache file
+     *
+     * @param cacheFile cache file
+     * @return loaded chain or null if the file is not a valid cache file
+     */
+    private static MarkovChain load(File cacheFile) {
+        try (FileChannel channel = new RandomAccessFile(cacheFile, "r").getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            MarkovChain chain = MarkovChain.read(buffer);
+            //Anything after the chain means the file is not what was written
+            return buffer.hasRemaining() ? null : chain;
+
+        } catch (IOException | BufferUnderflowException | IndexOutOfBoundsException e) {
+            System.out.println(String.format("Cache file %s is not valid. Training again.", cacheFile.getName()));
+            return null;
+        }
+    }
+
+    /**
+     * Store a chain in a cache file. The file is written with a temporary name and then renamed so a half written
+     * file is never read.
+     *
+     * @param chain     trained chain
+     * @param cacheFile cache file
+     */
+    private void store(MarkovChain chain, File cacheFile) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            System.out.println("Not able to create cache directory:" + directory);
+            return;
+        }
+        try {
+            File tempFile = File.createTempFile("chain", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                chain.write(out);
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            System.out.println("Not able to cache the chain:" + cacheFile.getName());
+            e.printStackTrace();
+        }
+    }
+}
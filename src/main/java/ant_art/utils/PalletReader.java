@@ -0,0 +1,151 @@
+package ant_art.utils;
+
+import ant_art.config.Configuration;
+import ant_art.exceptions.AntArtException;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 09-05-2020 13:40
+ * Purpose: Read pallets. Apart from images it supports the plain text formats of Lospec, `.hex` (a hex color on every
+ * line) and `.gpl` (GIMP palette). Text pallets are drawn as a strip of swatches in memory just like the image pallets.
+ **/
+public class PalletReader {
+    private static final List<String> TEXT_EXTENSIONS = Arrays.asList("hex", "gpl");
+    private static final List<String> IMAGE_EXTENSIONS = Arrays.asList("png", "jpg", "jpeg", "gif", "bmp");
+
+    private PalletReader() {
+    }
+
+    /**
+     * @param fileName name of a file
+     * @return true if the file is a pallet which can be read
+     */
+    public static boolean isSupported(String fileName) {
+        String extension = getExtension(fileName);
+        return TEXT_EXTENSIONS.contains(extension) || IMAGE_EXTENSIONS.contains(extension);
+    }
+
+    /**
+     * Read a pallet as an image
+     *
+     * @param fileName name of the pallet file. Format is decided from the extension.
+     * @param contents contents of the pallet file
+     * @return pallet image
+     * @throws IOException     if not able to decode the image
+     * @throws AntArtException if the pallet is not valid
+     */
+    public static BufferedImage read(String fileName, byte[] contents) throws IOException, AntArtException {
+        String extension = getExtension(fileName);
+        if (TEXT_EXTENSIONS.contains(extension)) {
+            String text = new String(contents, StandardCharsets.UTF_8);
+            List<Color> colors = extension.equals("hex") ? parseHex(text) : parseGpl(text);
+            if (colors.isEmpty()) {
+                throw new AntArtException(String.format("%s doesn't contain any color", fileName));
+            }
+            return drawSwatches(colors, Configuration.PALLET_SWATCH_SIZE);
+        }
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(contents));
+        if (image == null) {
+            throw new AntArtException(String.format("%s is not an image", fileName));
+        }
+        return image;
+    }
+
+    /**
+     * Parse a `.hex` pallet. Every non empty line is a color like `ff0044` or `#ff0044`.
+     *
+     * @param text contents of the pallet
+     * @return colors of the pallet
+     * @throws AntArtException if a line is not a color
+     */
+    static List<Color> parseHex(String text) throws AntArtException {
+        List<Color> colors = new ArrayList<>();
+        for (String line : text.split("\\r?\\n")) {
+            line = line.trim();
+            if (line.startsWith("#")) {
+                line = line.substring(1);
+            }
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                colors.add(new Color(Integer.parseInt(line, 16)));
+
+            } catch (NumberFormatException e) {
+                throw new AntArtException(String.format("Invalid hex color:%s", line));
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * Parse a `.gpl` pallet. After the header every line is `red green blue name` and lines starting with `#` are
+     * comments.
+     *
+     * @param text contents of the pallet
+     * @return colors of the pallet
+     * @throws AntArtException if the pallet is not valid
+     */
+    static List<Color> parseGpl(String text) throws AntArtException {
+        String[] lines = text.split("\\r?\\n");
+        if (lines.length == 0 || !lines[0].trim().equals("GIMP Palette")) {
+            throw new AntArtException("Not a GIMP palette");
+        }
+        List<Color> colors = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("Name:") || line.startsWith("Columns:")) {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            try {
+                colors.add(new Color(Integer.parseInt(tokens[0]), Integer.parseInt(tokens[1]),
+                        Integer.parseInt(tokens[2])));
+
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new AntArtException(String.format("Invalid GIMP palette color:%s", line));
+            } catch (IllegalArgumentException e) {
+                throw new AntArtException(String.format("GIMP palette color out of range:%s", line));
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * Draw colors as a horizontal strip of square swatches
+     *
+     * @param colors      colors to draw
+     * @param swatchSize side of a swatch in pixels
+     * @return image of the swatches
+     */
+    static BufferedImage drawSwatches(List<Color> colors, int swatchSize) {
+        BufferedImage image = new BufferedImage(colors.size() * swatchSize, swatchSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int i = 0; i < colors.size(); i++) {
+            g.setColor(colors.get(i));
+            g.fillRect(i * swatchSize, 0, swatchSize, swatchSize);
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * @param fileName name of a file
+     * @return lower case extension of the file or empty string if there is none
+     */
+    private static String getExtension(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot == -1 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,145 @@
+package ant_art.utils;
+
+import ant_art.exceptions.AntArtException;
+
+import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 09-05-2020 15:02
+ * Purpose: Registry of the pallets in a directory. The directory is scanned once and every pallet is trained only once,
+ * either all together in parallel by `preload` or when it is asked for the first time. Trained chains are shared by
+ * everyone asking for the same pallet.
+ **/
+public class PalletRegistry {
+    //Pallet file by name. Sorted so that the order doesn't depend on the file system.
+    private final Map<String, File> pallets = new TreeMap<>();
+    private final List<String> names;
+    private final Map<String, CompletableFuture<MarkovChain>> chains = new ConcurrentHashMap<>();
+    //Pallets which can't be trained. They are not picked randomly any more.
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+    private final List<Color> excludedColors;
+    private final MarkovChainCache cache;
+    private final Random random = new Random();
+
+    /**
+     * Scan the pallet directory
+     *
+     * @param directory      pallet directory
+     * @param excludedColors colors excluded from the chains
+     * @param cache          cache of the trained chains
+     * @throws AntArtException if there is no pallet in the directory
+     */
+    public PalletRegistry(String directory, List<Color> excludedColors, MarkovChainCache cache) throws AntArtException {
+        this.excludedColors = excludedColors;
+        this.cache = cache;
+        File dirObj = new File(directory);
+        if (!dirObj.isDirectory()) {
+            throw new AntArtException(String.format("%s is not a directory", directory));
+        }
+        File[] files = dirObj.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && PalletReader.isSupported(file.getName())) {
+                    pallets.put(file.getName(), file);
+                }
+            }
+        }
+        if (pallets.isEmpty()) {
+            throw new AntArtException(String.format("%s doesn't contain any pallet", directory));
+        }
+        this.names = Collections.unmodifiableList(new ArrayList<>(pallets.keySet()));
+    }
+
+    /**
+     * Start training all the pallets in parallel. It doesn't wait for the training to finish.
+     *
+     * @return future which completes when all the pallets are trained. Pallets which can't be trained are reported and
+     * skipped.
+     */
+    public CompletableFuture<Void> preload() {
+        List<CompletableFuture<MarkovChain>> futures = new ArrayList<>();
+        for (String name : names) {
+            futures.add(getFuture(name).exceptionally(e -> {
+                System.out.println(String.format("Not able to train pallet %s: %s", name, e.getCause()));
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Get the trained chain of a pallet. If the pallet is being trained then it waits for it.
+     *
+     * @param name name of the pallet file
+     * @return trained chain
+     * @throws AntArtException if the pallet is not present or can't be trained
+     */
+    public MarkovChain get(String name) throws AntArtException {
+        if (!pallets.containsKey(name)) {
+            throw new AntArtException(String.format("Pallet %s is not present", name));
+        }
+        try {
+            return getFuture(name).join();
+
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AntArtException) {
+                throw (AntArtException) cause;
+            }
+            throw new AntArtException(String.format("Not able to train pallet %s: %s", name, cause));
+        }
+    }
+
+    /**
+     * Pallets which are known to fail the training are skipped. A pallet which is not trained yet can still fail so the
+     * caller should ask for another name if `get` fails.
+     *
+     * @return name of a random pallet
+     * @throws AntArtException if none of the pallets can be trained
+     */
+    public String getRandomName() throws AntArtException {
+        List<String> candidates = new ArrayList<>();
+        for (String name : names) {
+            if (!failed.contains(name)) {
+                candidates.add(name);
+            }
+        }
+        if (candidates.isEmpty()) {
+            throw new AntArtException("None of the pallets can be trained");
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    /**
+     * @return names of all the pallets
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Get the training of a pallet. Training is started if not already started.
+     *
+     * @param name name of the pallet file
+     * @return future of the trained chain
+     */
+    private CompletableFuture<MarkovChain> getFuture(String name) {
+        return chains.computeIfAbsent(name, key -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get(pallets.get(key), excludedColors);
+
+            } catch (IOException | AntArtException e) {
+                failed.add(key);
+                throw new CompletionException(e);
+            }
+        }));
+    }
+}
@@ -0,0 +1,139 @@
+package ant_art.utils;
+
+import ant_art.config.Configuration;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 07-05-2020 16:38
+ * Purpose: Index of colors which tells which of them are similar to a given color in constant time. Similarity is
+ * checked on every channel independently (look `ImageUtils.isSimilar`) so for every value of a channel we keep a bit mask
+ * of the colors whose channel is within the range. A color is similar to the ones present in all the three masks.
+ **/
+public class SimilarityIndex {
+    //Masks of a channel value are stored together. `words` longs for each of the 256 values of the three channels.
+    private long[] masks;
+    private int words;
+    private final List<Color> colors = new ArrayList<>();
+
+    public SimilarityIndex() {
+        this(Collections.emptyList());
+    }
+
+    public SimilarityIndex(List<Color> colors) {
+        this.words = Math.max(1, (colors.size() + 63) / 64);
+        this.masks = new long[3 * 256 * words];
+        for (Color color : colors) {
+            add(color);
+        }
+    }
+
+    /**
+     * Add a color to the index. Its position is the number of colors already present.
+     *
+     * @param color input color
+     * @return position of the color in the index
+     */
+    public int add(Color color) {
+        int position = colors.size();
+        if (position == words * 64) {
+            grow();
+        }
+        colors.add(color);
+        int limit = Configuration.COLOR_SIMILARITY_THRESHOLD;
+        int[] channels = {color.getRed(), color.getGreen(), color.getBlue()};
+        for (int channel = 0; channel < 3; channel++) {
+            int from = Math.max(0, channels[channel] - limit);
+            int to = Math.min(255, channels[channel] + limit);
+            for (int value = from; value <= to; value++) {
+                masks[(channel * 256 + value) * words + position / 64] |= 1L << (position % 64);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Double the number of words of every mask
+     */
+    private void grow() {
+        long[] grown = new long[masks.length * 2];
+        for (int i = 0; i < 3 * 256; i++) {
+            System.arraycopy(masks, i * words, grown, i * words * 2, words);
+        }
+        masks = grown;
+        words *= 2;
+    }
+
+    /**
+     * Get 64 colors of the index which are similar to the input color as a bit mask
+     *
+     * @param rgb  packed RGB color
+     * @param word which 64 colors to check. 0 means colors from 0 to 63.
+     * @return bit mask in which bit `i` is set if color `word * 64 + i` is similar
+     */
+    public long similarMask(int rgb, int word) {
+        return masks[(((rgb >> 16) & 0xFF)) * words + word]
+                & masks[(256 + ((rgb >> 8) & 0xFF)) * words + word]
+                & masks[(512 + (rgb & 0xFF)) * words + word];
+    }
+
+    /**
+     * Get the first 64 colors of the index which are similar to the input color as a bit mask
+     *
+     * @param rgb packed RGB color
+     * @return bit mask in which bit `i` is set if color `i` is similar
+     */
+    public long similarMask(int rgb) {
+        return similarMask(rgb, 0);
+    }
+
+    /**
+     * @param rgb packed RGB color
+     * @return position of the first color similar to the input color or -1 if there is none.
+     */
+    public int firstSimilar(int rgb) {
+        for (int word = 0; word < words; word++) {
+            long mask = similarMask(rgb, word);
+            if (mask != 0) {
+                return word * 64 + Long.numberOfTrailingZeros(mask);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param rgb packed RGB color
+     * @return true if any color of the index is similar to the input color
+     */
+    public boolean isSimilarToAny(int rgb) {
+        return firstSimilar(rgb) != -1;
+    }
+
+    /**
+     * @param position position of a color in the index
+     * @param rgb      packed RGB color
+     * @return true if the color at the position is similar to the input color
+     */
+    public boolean isSimilar(int position, int rgb) {
+        return (similarMask(rgb, position / 64) & (1L << (position % 64))) != 0;
+    }
+
+    /**
+     * @param position position of a color in the index
+     * @return color at the position
+     */
+    public Color getColor(int position) {
+        return colors.get(position);
+    }
+
+    /**
+     * @return number of colors in the index
+     */
+    public int size() {
+        return colors.size();
+    }
+}
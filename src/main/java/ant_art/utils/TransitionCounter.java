@@ -0,0 +1,150 @@
+package ant_art.utils;
+
+import java.util.Arrays;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 09-05-2020 12:20
+ * Purpose: Counts of color transitions in an open addressing hash map of primitives. A transition is keyed by the packed
+ * RGB of the color and its neighbor in a single long, so counting doesn't allocate anything except when growing.
+ **/
+class TransitionCounter {
+    private static final long EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    private int mask;
+
+    TransitionCounter() {
+        this(1 << 10);
+    }
+
+    /**
+     * @param capacity initial capacity. It is rounded to a power of two.
+     */
+    TransitionCounter(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        keys = new long[slots];
+        counts = new int[slots];
+        Arrays.fill(keys, EMPTY);
+        mask = slots - 1;
+    }
+
+    /**
+     * @param rgb      packed RGB of the color. Alpha should be removed.
+     * @param neighbor packed RGB of the neighbor. Alpha should be removed.
+     * @return key of the transition
+     */
+    static long key(int rgb, int neighbor) {
+        return ((long) rgb << 24) | neighbor;
+    }
+
+    /**
+     * @param key key of a transition
+     * @return packed RGB of the color
+     */
+    static int color(long key) {
+        return (int) (key >>> 24);
+    }
+
+    /**
+     * @param key key of a transition
+     * @return packed RGB of the neighbor
+     */
+    static int neighbor(long key) {
+        return (int) (key & 0xFFFFFF);
+    }
+
+    /**
+     * Add to the count of a transition
+     *
+     * @param key   key of the transition
+     * @param count count to add
+     */
+    void add(long key, int count) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        if (++size > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    /**
+     * @param key key of a transition
+     * @return count of the transition or 0 if it is not present
+     */
+    int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Add the counts of other counter in this one
+     *
+     * @param other other counter
+     * @return this counter
+     */
+    TransitionCounter merge(TransitionCounter other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return keys of all the transitions in ascending order, so transitions of a color are together
+     */
+    long[] sortedKeys() {
+        long[] sorted = new long[size];
+        int i = 0;
+        for (long key : keys) {
+            if (key != EMPTY) {
+                sorted[i++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        //Fibonacci hashing spreads the keys of similar colors over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                add(oldKeys[slot], oldCounts[slot]);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package ant_art.benchmark;
+
+import ant_art.config.Configuration;
+import ant_art.config.SimulationParameters;
+import ant_art.evaluation.AntArtEvaluator;
+import ant_art.exceptions.AntArtException;
+import ant_art.simulation.Simulation;
+import ant_art.utils.MarkovChain;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 16-05-2020 10:00
+ * Purpose: Regression gate of the simulation. Seeded headless jobs run on the synthetic inputs in `regression/inputs`
+ * and are compared with `regression/golden.properties`. The painted image has to have the same hash and ticks as
+ * before. Every job is run twice so a job which doesn't repeat itself also fails. Scores kept by `AreaMetrics` during
+ * the run have to be the same as `AntArtEvaluator` scores of the final image. `RegressionGateIT` runs the check in
+ * `mvn verify` so it gates the build. Skip it with `-Dregression.skip=true`.
+ * <p>
+ * The fixed point pheromones and the indexed canvas are approximations so with them only the ticks and the scores are
+ * compared within a tolerance instead of the hash.
+ * <p>
+ * Speed and allocation depend on the host so they are only checked with `-Dregression.speed=true`. Speed is kept as
+ * ticks per million steps of a reference loop timed in the same JVM, so a host which is faster or slower as a whole
+ * keeps the same baseline. Allocation per tick is compared as it is and depends on the JVM.
+ * Usage: RegressionGate [check|record] [golden file] from the test classpath. It exits with 1 if anything fails.
+ * Record the baselines again after a change of the art which is intended.
+ **/
+public class RegressionGate {
+    private static final String INPUTS = "regression/inputs";
+    static final String GOLDEN = "regression/golden.properties";
+    //Whether speed and allocation are checked
+    private static final boolean CHECK_SPEED = Boolean.getBoolean("regression.speed");
+    //A build host can be busy so only a large slowdown fails
+    private static final float MINIMUM_SPEED_RATIO = 0.5f;
+    private static final float MAXIMUM_ALLOCATION_RATIO = 1.25f;
+    private static final long ALLOCATION_SLACK_BYTES = 4096;
+    //Tolerance of the approximate representations
+    private static final float SCORE_TOLERANCE = 0.02f;
+    private static final float TICKS_TOLERANCE = 0.1f;
+    //Steps of the reference loop. Its table is larger than the caches like the cell store of a large area.
+    private static final int REFERENCE_STEPS = 1 << 24;
+    private static final int REFERENCE_TABLE_SIZE = 1 << 22;
+    private static final int REFERENCE_REPEATS = 5;
+    //Keeps the result of the reference loop so it is not removed by the compiler
+    private static int referenceSink;
+
+    private static final Job[] JOBS = {
+            new Job("squares", 11, SimulationParameters.DEFAULT,
+                    new Color[]{new Color(0xC81E1E), new Color(0x1EC81E)},
+                    "3-bit-rgb-32x.png", "ammo-8-32x.png"),
+            new Job("stripes", 22, new SimulationParameters(Configuration.MAX_ANTS, 0.01f, Configuration.CELL_SIZE,
+                    Configuration.ANT_SELECTION_SEED, Configuration.INTENSITY_AMPLIFIER),
+                    new Color[]{new Color(0xE0C020), new Color(0x2050D0), new Color(0xD040A0)},
+                    "3-bit-rgb-32x.png", "afternoon-haze-32x.png", "ammo-8-32x.png"),
+            new Job("rings", 33, new SimulationParameters(Configuration.MAX_ANTS,
+                    Configuration.PHEROMONE_DECAY_RATE, 3, Configuration.ANT_SELECTION_SEED,
+                    Configuration.INTENSITY_AMPLIFIER),
+                    new Color[]{new Color(0x20C0C0), new Color(0xF08020)},
+                    "afternoon-haze-32x.png", "spacehaze-32x.png")
+    };
+
+    /**
+     * A seeded simulation of an input
+     */
+    private static class Job {
+        private final String name;
+        private final long seed;
+        private final SimulationParameters parameters;
+        private final List<Color> targetColors;
+        private final String[] pallets;
+
+        private Job(String name, long seed, SimulationParameters parameters, Color[] targetColors, String... pallets) {
+            this.name = name;
+            this.seed = seed;
+            this.parameters = parameters;
+            this.targetColors = Arrays.asList(targetColors);
+            this.pallets = pallets;
+        }
+    }
+
+    /**
+     * Measurements of a run of a job
+     */
+    private static class Result {
+        private String hash;
+        private int ticks;
+        private float coverage;
+        private float mosaic;
+        //Whether the scores of the area are the same as the scores of its image
+        private boolean consistent;
+        private float ticksPerSecond;
+        //Ticks per million steps of the reference loop
+        private float relativeSpeed;
+        //-1 if the JVM can't measure the allocation
+        private long bytesPerTick;
+    }
+
+    public static void main(String[] args) throws IOException, AntArtException {
+        boolean record = args.length > 0 && args[0].equals("record");
+        File golden = new File(args.length > 1 ? args[1] : GOLDEN);
+        if (execute(record, golden) > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run all the jobs and check them against the baselines or record them as the new baselines
+     *
+     * @param record true to record the baselines instead of checking them
+     * @param golden file of the baselines
+     * @return number of failures. Details of every failure are printed.
+     * @throws IOException     if not able to read the inputs or the baselines
+     * @throws AntArtException if a simulation can't be created
+     */
+    static int execute(boolean record, File golden) throws IOException, AntArtException {
+        boolean exact = isExact();
+
+        Properties baselines = new Properties();
+        if (!record) {
+            if (!golden.exists()) {
+                System.out.println("No golden file. Record it first:" + golden);
+                return 1;
+            }
+            try (InputStream input = new FileInputStream(golden)) {
+                baselines.load(input);
+            }
+            exact &= Boolean.parseBoolean(baselines.getProperty("exact"));
+        }
+
+        double referenceStepsPerSecond = measureReference();
+        System.out.println(String.format("Reference loop: %.1f million steps/s on %s", referenceStepsPerSecond / 1e6,
+                getEnvironment()));
+
+        int failures = 0;
+        Properties results = new Properties();
+        for (Job job : JOBS) {
+            Result first = run(job);
+            //Second run is measured as the first one includes the compilation of the code
+            Result second = run(job);
+            second.relativeSpeed = (float) (second.ticksPerSecond * 1e6 / referenceStepsPerSecond);
+            System.out.println(String.format("%s: hash:%s ticks:%s coverage:%.4f mosaic:%.4f ticks/s:%.1f " +
+                            "relative speed:%.2f bytes/tick:%s", job.name, second.hash, second.ticks, second.coverage,
+                    second.mosaic, second.ticksPerSecond, second.relativeSpeed, second.bytesPerTick));
+            if (!second.consistent) {
+                System.out.println(String.format("FAILED %s: AreaMetrics and AntArtEvaluator scores are different",
+                        job.name));
+                failures++;
+            }
+            if (!first.hash.equals(second.hash) || first.ticks != second.ticks) {
+                System.out.println(String.format("FAILED %s: two runs with the same seed are different", job.name));
+                failures++;
+            }
+            if (record) {
+                results.setProperty(job.name + ".hash", second.hash);
+                results.setProperty(job.name + ".ticks", String.valueOf(second.ticks));
+                results.setProperty(job.name + ".coverage", String.valueOf(second.coverage));
+                results.setProperty(job.name + ".mosaic", String.valueOf(second.mosaic));
+                results.setProperty(job.name + ".relative_speed", String.valueOf(second.relativeSpeed));
+                results.setProperty(job.name + ".bytes_per_tick", String.valueOf(second.bytesPerTick));
+            } else {
+                failures += check(job.name, second, baselines, exact);
+            }
+        }
+
+        if (record) {
+            results.setProperty("exact", String.valueOf(exact));
+            try (OutputStream output = new FileOutputStream(golden)) {
+                results.store(output, "Baselines of RegressionGate. Speed and allocation measured on " +
+                        getEnvironment());
+            }
+            System.out.println("Recorded:" + golden);
+        }
+        if (failures > 0) {
+            System.out.println(String.format("Regression gate FAILED with %s failures", failures));
+        } else {
+            System.out.println("Regression gate passed");
+        }
+        return failures;
+    }
+
+    /**
+     * @return true if the configured representations paint exactly the same as the float engine
+     */
+    private static boolean isExact() {
+        return !Configuration.Canvas.INDEXED && Configuration.Grid.STORAGE != Configuration.Grid.Storage.FIXED_POINT;
+    }
+
+    /**
+     * Run a job on the current thread
+     *
+     * @param job job to run
+     * @return measurements of the run
+     * @throws IOException     if not able to read the inputs
+     * @throws AntArtException if the simulation can't be created
+     */
+    private static Result run(Job job) throws IOException, AntArtException {
+        BufferedImage image = ImageIO.read(new File(INPUTS, job.name + ".png"));
+        MarkovChain[] chains = new MarkovChain[job.targetColors.size()];
+        for (int i = 0; i < chains.length; i++) {
+            BufferedImage pallet = ImageIO.read(new File(Configuration.Directories.PALLETS,
+                    job.pallets[i % job.pallets.length]));
+            chains[i] = MarkovChain.train(pallet, Collections.singletonList(Configuration.Colors.DEFAULT));
+        }
+        Simulation simulation = new Simulation(chains, image, job.targetColors, job.seed, null, job.parameters);
+
+        long allocatedBefore = getAllocatedBytes();
+        simulation.run();
+        long allocatedAfter = getAllocatedBytes();
+
+        Result result = new Result();
+        BufferedImage output = simulation.getAntArea().getMapImage();
+        result.hash = hash(output);
+        result.ticks = simulation.getConvergence().getTicks();
+        result.coverage = simulation.getCoverage();
+        result.mosaic = simulation.getMosaicScore();
+        result.consistent = result.coverage == AntArtEvaluator.getCoverage(output)
+                && result.mosaic == AntArtEvaluator.getMosaicScore(output);
+        result.ticksPerSecond = simulation.getTicksPerSecond();
+        result.bytesPerTick = allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / result.ticks;
+        return result;
+    }
+
+    /**
+     * Compare a result with its baselines
+     *
+     * @param name      name of the job
+     * @param result    result of the job
+     * @param baselines stored baselines
+     * @param exact     whether the image has to be exactly the same
+     * @return number of failures
+     */
+    private static int check(String name, Result result, Properties baselines, boolean exact) {
+        if (baselines.getProperty(name + ".hash") == null) {
+            System.out.println(String.format("FAILED %s: no baseline", name));
+            return 1;
+        }
+        int failures = 0;
+        int ticks = Integer.parseInt(baselines.getProperty(name + ".ticks"));
+        float coverage = Float.parseFloat(baselines.getProperty(name + ".coverage"));
+        float mosaic = Float.parseFloat(baselines.getProperty(name + ".mosaic"));
+        if (exact) {
+            if (!result.hash.equals(baselines.getProperty(name + ".hash")) || result.ticks != ticks) {
+                System.out.println(String.format("FAILED %s: image changed. Ticks:%s->%s coverage:%.4f->%.4f " +
+                        "mosaic:%.4f->%.4f", name, ticks, result.ticks, coverage, result.coverage, mosaic,
+                        result.mosaic));
+                failures++;
+            }
+        } else if (Math.abs(result.ticks - ticks) > ticks * TICKS_TOLERANCE
+                || Math.abs(result.coverage - coverage) > SCORE_TOLERANCE
+                || Math.abs(result.mosaic - mosaic) > SCORE_TOLERANCE) {
+            System.out.println(String.format("FAILED %s: outside the tolerance. Ticks:%s->%s coverage:%.4f->%.4f " +
+                    "mosaic:%.4f->%.4f", name, ticks, result.ticks, coverage, result.coverage, mosaic, result.mosaic));
+            failures++;
+        }
+
+        if (!CHECK_SPEED) {
+            return failures;
+        }
+        float relativeSpeed = Float.parseFloat(baselines.getProperty(name + ".relative_speed"));
+        if (result.relativeSpeed < relativeSpeed * MINIMUM_SPEED_RATIO) {
+            System.out.println(String.format("FAILED %s: slower. Relative speed:%.2f->%.2f", name, relativeSpeed,
+                    result.relativeSpeed));
+            failures++;
+        }
+        long bytesPerTick = Long.parseLong(baselines.getProperty(name + ".bytes_per_tick"));
+        if (bytesPerTick >= 0 && result.bytesPerTick >= 0
+                && result.bytesPerTick > bytesPerTick * MAXIMUM_ALLOCATION_RATIO + ALLOCATION_SLACK_BYTES) {
+            System.out.println(String.format("FAILED %s: allocates more. Bytes per tick:%s->%s", name, bytesPerTick,
+                    result.bytesPerTick));
+            failures++;
+        }
+        return failures;
+    }
+
+    /**
+     * Time a loop of random reads and writes of a table. The best of some repeats is taken as the others are slowed
+     * by the compilation or the other work of the host.
+     *
+     * @return steps of the loop per second
+     */
+    private static double measureReference() {
+        int[] table = new int[REFERENCE_TABLE_SIZE];
+        long best = Long.MAX_VALUE;
+        for (int repeat = 0; repeat < REFERENCE_REPEATS; repeat++) {
+            long start = System.nanoTime();
+            int seed = repeat;
+            for (int step = 0; step < REFERENCE_STEPS; step++) {
+                seed = seed * 1664525 + 1013904223;
+                int index = (seed >>> 10) & (REFERENCE_TABLE_SIZE - 1);
+                table[index] += seed ^ table[(index + 1) & (REFERENCE_TABLE_SIZE - 1)];
+            }
+            best = Math.min(best, System.nanoTime() - start);
+            referenceSink += table[seed & (REFERENCE_TABLE_SIZE - 1)];
+        }
+        return REFERENCE_STEPS * 1e9 / best;
+    }
+
+    /**
+     * @return bytes allocated by the current thread till now or -1 if the JVM can't measure it
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @param image input image
+     * @return CRC32 of the RGB pixels of the image
+     */
+    private static String hash(BufferedImage image) {
+        CRC32 crc = new CRC32();
+        int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        byte[] bytes = new byte[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            bytes[3 * i] = (byte) (pixels[i] >> 16);
+            bytes[3 * i + 1] = (byte) (pixels[i] >> 8);
+            bytes[3 * i + 2] = (byte) pixels[i];
+        }
+        crc.update(bytes);
+        return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * @return JVM, OS and processors of this host
+     */
+    private static String getEnvironment() {
+        return String.format("%s %s (%s), %s %s, %s processors", System.getProperty("java.vendor"),
+                System.getProperty("java.version"), System.getProperty("java.vm.name"), System.getProperty("os.name"),
+                System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,22 @@
+package ant_art.benchmark;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 16-05-2020 10:00
+ * Purpose: Runs `RegressionGate` against `regression/golden.properties` in `mvn verify`. Speed and allocation are also
+ * checked with `-Dregression.speed=true`. Skip it with `-Dregression.skip=true`.
+ **/
+public class RegressionGateIT {
+
+    @Test
+    public void matchesGoldenBaselines() throws Exception {
+        assertEquals("Regression gate failed. Look at the output for the jobs which failed.", 0,
+                RegressionGate.execute(false, new File(RegressionGate.GOLDEN)));
+    }
+}
@@ -0,0 +1,101 @@
+package ant_art.entities;
+
+import ant_art.utils.AntDirections;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 11:10
+ * Purpose: Index and column/row mapping of the cell layouts and the torus neighbors at the edges
+ **/
+public class CellLayoutTest {
+    //Sizes which are and are not multiples of the blocks
+    private static final int[][] SIZES = {{1, 1}, {4, 4}, {13, 7}, {8, 16}, {17, 33}, {40, 3}};
+
+    @Test
+    public void wrapAtTheEdges() {
+        for (int size = 1; size <= 9; size++) {
+            assertEquals(size - 1, CellLayout.wrap(-1, size));
+            assertEquals(0, CellLayout.wrap(size, size));
+            for (int value = 0; value < size; value++) {
+                assertEquals(value, CellLayout.wrap(value, size));
+            }
+        }
+    }
+
+    @Test
+    public void columnMajorMapping() {
+        for (int[] size : SIZES) {
+            checkMapping(CellLayout.columnMajor(size[0], size[1]));
+        }
+    }
+
+    @Test
+    public void blockedZOrderMapping() {
+        for (int[] size : SIZES) {
+            for (int shift = 1; shift <= 3; shift++) {
+                checkMapping(CellLayout.blockedZOrder(size[0], size[1], shift));
+            }
+        }
+    }
+
+    @Test
+    public void neighborsWrapAroundTheEdges() {
+        for (int[] size : SIZES) {
+            checkNeighbors(CellLayout.columnMajor(size[0], size[1]));
+            checkNeighbors(CellLayout.blockedZOrder(size[0], size[1], 2));
+            checkNeighbors(CellLayout.columnMajor(size[0], size[1]).precomputeNeighbors());
+            checkNeighbors(CellLayout.blockedZOrder(size[0], size[1], 2).precomputeNeighbors());
+        }
+    }
+
+    /**
+     * Every cell has its own index which maps back to the cell. Indexes which no cell has are padding.
+     *
+     * @param layout layout to check
+     */
+    private static void checkMapping(CellLayout layout) {
+        int columns = layout.getColumns();
+        int rows = layout.getRows();
+        boolean[] used = new boolean[layout.size()];
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < rows; y++) {
+                int index = layout.index(x, y);
+                String message = String.format("%sx%s cell:%s,%s", columns, rows, x, y);
+                assertTrue(message, index >= 0 && index < layout.size());
+                assertFalse(message, used[index]);
+                used[index] = true;
+                assertEquals(message, x, layout.getX(index));
+                assertEquals(message, y, layout.getY(index));
+                assertTrue(message, layout.isInside(index));
+            }
+        }
+        for (int index = 0; index < used.length; index++) {
+            assertEquals(String.format("%sx%s index:%s", columns, rows, index), used[index], layout.isInside(index));
+        }
+    }
+
+    private static void checkNeighbors(CellLayout layout) {
+        int columns = layout.getColumns();
+        int rows = layout.getRows();
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < rows; y++) {
+                int index = layout.index(x, y);
+                for (int direction = 0; direction < AntDirections.NO_OF_DIRECTIONS; direction++) {
+                    int neighborX = (x + AntDirections.getDX(direction) + columns) % columns;
+                    int neighborY = (y + AntDirections.getDY(direction) + rows) % rows;
+                    String message = String.format("%sx%s cell:%s,%s direction:%s", columns, rows, x, y, direction);
+                    assertEquals(message, neighborX, layout.neighborX(x, direction));
+                    assertEquals(message, neighborY, layout.neighborY(y, direction));
+                    int expected = layout.index(neighborX, neighborY);
+                    assertEquals(message, expected, layout.neighbor(index, direction));
+                    assertEquals(message, expected, layout.neighbor(index, direction, neighborX, neighborY));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ant_art.entities;
+
+import ant_art.config.Configuration;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 11:30
+ * Purpose: Fixed point pheromones against the float pheromones of the other stores
+ **/
+public class FixedPointCellStoreTest {
+    //A pheromone is kept within 0.025% of its value whatever the decay rate
+    private static final double TOLERANCE = 2.5e-4;
+    private static final float MAX_PHEROMONE = Math.max(Configuration.MAX_FOOD_PHEROMONE,
+            Configuration.MAX_HOME_PHEROMONE);
+
+    @Test
+    public void pheromonesAreKeptWithinTolerance() {
+        FixedPointCellStore store = new FixedPointCellStore(1, 1 - Configuration.PHEROMONE_DECAY_RATE);
+        for (double pheromone = MAX_PHEROMONE; pheromone > 1e-4; pheromone *= 0.937) {
+            store.setFoodPheromone(0, (float) pheromone);
+            store.setHomePheromone(0, (float) pheromone);
+            assertRelative(pheromone, store.getFoodPheromone(0));
+            assertRelative(pheromone, store.getHomePheromone(0));
+        }
+    }
+
+    @Test
+    public void tinyPheromonesAreZero() {
+        FixedPointCellStore store = new FixedPointCellStore(1, 1 - Configuration.PHEROMONE_DECAY_RATE);
+        store.setFoodPheromone(0, 1e-6f);
+        assertEquals(0, store.getFoodPheromone(0), 0);
+    }
+
+    @Test
+    public void decayFollowsFloatDecay() {
+        for (float rate : new float[]{0.0025f, 0.005f, 0.01f, 0.1f}) {
+            float retained = 1 - rate;
+            FixedPointCellStore store = new FixedPointCellStore(1, retained);
+            store.setFoodPheromone(0, 37.5f);
+            store.setHomePheromone(0, 3.25f);
+            //Same error as the first encoding as every decay is a whole number of codes
+            double food = store.getFoodPheromone(0);
+            double home = store.getHomePheromone(0);
+            for (int tick = 0; tick < 500 && food > 1e-3; tick++) {
+                store.decayPheromones(0, retained, 0);
+                food *= retained;
+                home *= retained;
+                assertRelative(food, store.getFoodPheromone(0));
+                assertRelative(home, store.getHomePheromone(0));
+            }
+        }
+    }
+
+    @Test
+    public void decayReportsPheromonesBelowMinimum() {
+        float retained = 1 - Configuration.PHEROMONE_DECAY_RATE;
+        float minimum = Configuration.MINIMUM_PHEROMONE_THRESHOLD;
+        FixedPointCellStore store = new FixedPointCellStore(1, retained);
+        store.setFoodPheromone(0, 0.02f);
+        store.setHomePheromone(0, 0.001f);
+        for (int tick = 0; tick < 1000; tick++) {
+            boolean below = store.decayPheromones(0, retained, minimum);
+            assertEquals(store.getFoodPheromone(0) + store.getHomePheromone(0) < minimum, below);
+        }
+    }
+
+    @Test
+    public void zeroDecayKeepsPheromones() {
+        FixedPointCellStore store = new FixedPointCellStore(1, 1);
+        store.setFoodPheromone(0, 12.5f);
+        store.setHomePheromone(0, 0.5f);
+        float food = store.getFoodPheromone(0);
+        float home = store.getHomePheromone(0);
+        assertRelative(12.5, food);
+        assertRelative(0.5, home);
+        for (int tick = 0; tick < 100; tick++) {
+            assertFalse(store.decayPheromones(0, 1, Configuration.MINIMUM_PHEROMONE_THRESHOLD));
+        }
+        assertEquals(food, store.getFoodPheromone(0), 0);
+        assertEquals(home, store.getHomePheromone(0), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decayTooSmallForAStepIsRejected() {
+        new FixedPointCellStore(1, 0.9999f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fullDecayIsRejected() {
+        new FixedPointCellStore(1, 0);
+    }
+
+    private static void assertRelative(double expected, float actual) {
+        assertTrue(String.format("expected:%s actual:%s", expected, actual),
+                Math.abs(actual - expected) <= expected * TOLERANCE);
+    }
+}
@@ -0,0 +1,117 @@
+package ant_art.evaluation;
+
+import ant_art.config.Configuration;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 10:20
+ * Purpose: Sliding window mosaic count of `AntArtEvaluator` against counting the neighbors of every pixel
+ **/
+public class AntArtEvaluatorTest {
+    //Colors near each other so some neighbors are similar and some are not
+    private static final int[] COLORS = {Configuration.Colors.DEFAULT.getRGB() & 0xFFFFFF, 0x102030, 0xC81E1E,
+            0xE03C30, 0xA01010, 0x1EC81E, 0x1E1EC8, 0x50B050};
+
+    @Test
+    public void slideWindowMatchesBruteForce() {
+        Random random = new Random(1);
+        for (int radius = 0; radius <= 4; radius++) {
+            int window = 2 * radius + 1;
+            //Lengths around the multiples of the window
+            for (int length = 1; length <= 4 * window + 2; length++) {
+                int offset = random.nextInt(5);
+                int[] values = new int[offset + length + 3];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt(256);
+                }
+                int[] min = new int[values.length];
+                int[] max = new int[values.length];
+                int[] buffers = new int[4 * (length + 4 * radius)];
+                AntArtEvaluator.slideWindow(values, min, max, offset, length, radius, buffers);
+
+                for (int i = 0; i < length; i++) {
+                    int expectedMin = Integer.MAX_VALUE;
+                    int expectedMax = Integer.MIN_VALUE;
+                    for (int j = Math.max(0, i - radius); j <= Math.min(length - 1, i + radius); j++) {
+                        expectedMin = Math.min(expectedMin, values[offset + j]);
+                        expectedMax = Math.max(expectedMax, values[offset + j]);
+                    }
+                    String message = String.format("radius:%s length:%s index:%s", radius, length, i);
+                    assertEquals(message, expectedMin, min[offset + i]);
+                    assertEquals(message, expectedMax, max[offset + i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mosaicCountsMatchBruteForce() {
+        if (!AntArtEvaluator.ANY_DIFFERENT_NEIGHBOR) {
+            //Sliding window is only used when any different neighbor makes a mosaic
+            return;
+        }
+        Random random = new Random(2);
+        int window = 2 * Configuration.MOSAIC_NEIGHBORHOOD + 1;
+        int[] sizes = {1, 2, window - 1, window, window + 1, 2 * window + 3, 23, 64, 70};
+        for (int width : sizes) {
+            for (int height : sizes) {
+                int[] pixels = createPixels(width, height, random);
+                //Whole image and bands which start and end inside it
+                int[][] bands = {{0, height}, {0, height / 2}, {height / 2, height}, {height / 3, 2 * height / 3}};
+                for (int[] band : bands) {
+                    if (band[0] >= band[1]) {
+                        continue;
+                    }
+                    assertArrayEquals(String.format("width:%s height:%s band:%s-%s", width, height, band[0], band[1]),
+                            AntArtEvaluator.countDifferentNeighbors(pixels, width, height, band[0], band[1]),
+                            AntArtEvaluator.getMosaicCounts(pixels, width, height, band[0], band[1]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mosaicScoreMatchesBruteForceAcrossTasks() {
+        Random random = new Random(3);
+        //Taller than a task so the bands are combined
+        int width = 45;
+        int height = 131;
+        int[] pixels = createPixels(width, height, random);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+
+        long[] expected = AntArtEvaluator.countDifferentNeighbors(pixels, width, height, 0, height);
+        assertEquals((float) expected[0] / expected[1], AntArtEvaluator.getMosaicScore(image), 0);
+    }
+
+    /**
+     * Create pixels in patches so there are both uniform areas and edges
+     *
+     * @param width  width of the image
+     * @param height height of the image
+     * @param random random source
+     * @return packed RGB pixels in row major order
+     */
+    private static int[] createPixels(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        int patch = 1 + random.nextInt(4);
+        int[] patchColors = new int[((width + patch - 1) / patch) * ((height + patch - 1) / patch)];
+        for (int i = 0; i < patchColors.length; i++) {
+            patchColors[i] = COLORS[random.nextInt(COLORS.length)];
+        }
+        int patchColumns = (width + patch - 1) / patch;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = patchColors[(y / patch) * patchColumns + x / patch];
+            }
+        }
+        return pixels;
+    }
+}
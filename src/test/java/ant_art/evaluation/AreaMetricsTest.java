@@ -0,0 +1,87 @@
+package ant_art.evaluation;
+
+import ant_art.config.Configuration;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 10:45
+ * Purpose: Scores kept by `AreaMetrics` while the cells are painted against `AntArtEvaluator` scores of the image
+ **/
+public class AreaMetricsTest {
+    //Background, colors which are similar to each other and colors which are not
+    private static final int[] COLORS = {Configuration.Colors.DEFAULT.getRGB() & 0xFFFFFF, 0x202020, 0xC81E1E,
+            0xE03C30, 0x1EC81E, 0x50B050, 0x1E1EC8};
+
+    @Test
+    public void imageSizeIsMultipleOfCellSize() {
+        checkRandomPaints(40, 32, 4, 1);
+    }
+
+    @Test
+    public void imageSizeIsNotMultipleOfCellSize() {
+        checkRandomPaints(43, 30, 4, 2);
+        checkRandomPaints(37, 41, 3, 3);
+        checkRandomPaints(29, 26, 5, 4);
+    }
+
+    @Test
+    public void imageSmallerThanNeighborhood() {
+        checkRandomPaints(9, 7, 2, 5);
+    }
+
+    /**
+     * Paint random cells and compare the scores after every paint. Pixels outside the cells get random colors which
+     * are never painted again like in an ant area.
+     *
+     * @param width    width of the image
+     * @param height   height of the image
+     * @param cellSize size of a cell
+     * @param seed     seed of the colors
+     */
+    private static void checkRandomPaints(int width, int height, int cellSize, long seed) {
+        Random random = new Random(seed);
+        int columns = width / cellSize;
+        int rows = height / cellSize;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, COLORS[random.nextInt(COLORS.length)]);
+            }
+        }
+        for (int column = 0; column < columns; column++) {
+            for (int row = 0; row < rows; row++) {
+                paintCell(image, column, row, cellSize, COLORS[random.nextInt(COLORS.length)]);
+            }
+        }
+        AreaMetrics metrics = new AreaMetrics(image, columns, rows, cellSize);
+        assertScores(image, metrics, "initial");
+
+        for (int paint = 0; paint < 300; paint++) {
+            int column = random.nextInt(columns);
+            int row = random.nextInt(rows);
+            int rgb = COLORS[random.nextInt(COLORS.length)];
+            paintCell(image, column, row, cellSize, rgb);
+            metrics.update(column, row, rgb);
+            assertScores(image, metrics, String.format("%sx%s cell:%s paint:%s", width, height, cellSize, paint));
+        }
+    }
+
+    private static void paintCell(BufferedImage image, int column, int row, int cellSize, int rgb) {
+        for (int x = column * cellSize; x < (column + 1) * cellSize; x++) {
+            for (int y = row * cellSize; y < (row + 1) * cellSize; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+    }
+
+    private static void assertScores(BufferedImage image, AreaMetrics metrics, String message) {
+        assertEquals(message, AntArtEvaluator.getCoverage(image), metrics.getCoverage(), 0);
+        assertEquals(message, AntArtEvaluator.getMosaicScore(image), metrics.getMosaicScore(), 0);
+    }
+}
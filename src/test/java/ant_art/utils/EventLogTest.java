@@ -0,0 +1,121 @@
+package ant_art.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 12:30
+ * Purpose: Paints written by `EventLog` read back by `EventLog.Reader`
+ **/
+public class EventLogTest {
+    private static final int COLUMNS = 23;
+    private static final int ROWS = 17;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ticksAreReadAsWritten() throws IOException {
+        Random random = new Random(4);
+        //More colors than a single byte index and enough paints to flush the buffer many times
+        int[] palette = new int[300];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = random.nextInt(0x1000000);
+        }
+        int[] cells = new int[COLUMNS * ROWS];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = palette[random.nextInt(palette.length)];
+        }
+        File file = folder.newFile();
+        List<int[]> states = new ArrayList<>();
+        try (EventLog log = new EventLog(file, COLUMNS, ROWS, 3, cells.clone())) {
+            for (int tick = 0; tick < 2000; tick++) {
+                //Some ticks don't paint anything
+                int paints = tick % 10 == 0 ? 0 : random.nextInt(40);
+                for (int i = 0; i < paints; i++) {
+                    int cell = random.nextInt(cells.length);
+                    //Alpha is not kept
+                    int rgb = palette[random.nextInt(palette.length)];
+                    log.paint(cell, rgb | 0xFF000000);
+                    cells[cell] = rgb;
+                }
+                log.endTick();
+                states.add(cells.clone());
+            }
+        }
+
+        try (EventLog.Reader reader = new EventLog.Reader(file)) {
+            assertEquals(COLUMNS, reader.getColumns());
+            assertEquals(ROWS, reader.getRows());
+            assertEquals(3, reader.getCellSize());
+            for (int[] state : states) {
+                assertTrue(reader.nextTick());
+                assertArrayEquals("tick:" + reader.getTick(), state, reader.getRGBs());
+            }
+            //Close ends one more tick without paints
+            assertTrue(reader.nextTick());
+            assertFalse(reader.nextTick());
+        }
+    }
+
+    @Test
+    public void renderDrawsCellsInColumnMajorOrder() throws IOException {
+        int[] cells = new int[COLUMNS * ROWS];
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cell * 997;
+        }
+        File file = folder.newFile();
+        new EventLog(file, COLUMNS, ROWS, 1, cells).close();
+
+        try (EventLog.Reader reader = new EventLog.Reader(file)) {
+            BufferedImage image = reader.render(2);
+            assertEquals(COLUMNS * 2, image.getWidth());
+            assertEquals(ROWS * 2, image.getHeight());
+            for (int x = 0; x < COLUMNS; x++) {
+                for (int y = 0; y < ROWS; y++) {
+                    assertEquals(cells[x * ROWS + y], image.getRGB(2 * x + 1, 2 * y + 1) & 0xFFFFFF);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void otherFilesAreRejected() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "not an event log".getBytes("UTF-8"));
+        try {
+            new EventLog.Reader(file).close();
+            fail("Read a file which is not a log");
+
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedHeaderIsRejected() throws IOException {
+        File file = folder.newFile();
+        new EventLog(file, COLUMNS, ROWS, 1, new int[COLUMNS * ROWS]).close();
+        try (RandomAccessFile truncated = new RandomAccessFile(file, "rw")) {
+            truncated.setLength(20);
+        }
+        new EventLog.Reader(file).close();
+    }
+}
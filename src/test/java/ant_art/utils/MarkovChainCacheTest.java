@@ -0,0 +1,125 @@
+package ant_art.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 13:00
+ * Purpose: `MarkovChainCache` trains again instead of loading a cache file which is corrupt or truncated
+ **/
+public class MarkovChainCacheTest {
+    private static final List<Color> EXCLUDED = Collections.singletonList(Color.BLACK);
+    //Magic, version and the number of colors
+    private static final int COUNT_OFFSET = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File pallet;
+    private File directory;
+    private MarkovChain trained;
+    private File cacheFile;
+    private byte[] cached;
+
+    @Before
+    public void setUp() throws Exception {
+        BufferedImage image = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 8; y++) {
+                image.setRGB(x, y, 0x204060 * (x / 4) + 0x101010 * (y / 2) + 0x050505);
+            }
+        }
+        pallet = folder.newFile("pallet.png");
+        ImageIO.write(image, "png", pallet);
+        directory = folder.newFolder("cache");
+
+        trained = new MarkovChainCache(directory.getPath()).get(pallet, EXCLUDED);
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        cacheFile = files[0];
+        cached = Files.readAllBytes(cacheFile.toPath());
+    }
+
+    @Test
+    public void validFileIsLoaded() throws Exception {
+        assertEquals(trained.getColors(), new MarkovChainCache(directory.getPath()).get(pallet, EXCLUDED).getColors());
+    }
+
+    @Test
+    public void truncatedFileIsTrainedAgain() throws Exception {
+        int[] lengths = {0, 3, COUNT_OFFSET, COUNT_OFFSET + 4, cached.length / 2, cached.length - 1};
+        for (int length : lengths) {
+            try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+                file.setLength(length);
+            }
+            assertTrainedAgain("length:" + length);
+        }
+    }
+
+    @Test
+    public void wrongMagicIsTrainedAgain() throws Exception {
+        corrupt(0, 0x12345678);
+        assertTrainedAgain("magic");
+    }
+
+    @Test
+    public void impossibleColorCountIsTrainedAgain() throws Exception {
+        corrupt(COUNT_OFFSET, Integer.MAX_VALUE);
+        assertTrainedAgain("large count");
+        corrupt(COUNT_OFFSET, -1);
+        assertTrainedAgain("negative count");
+    }
+
+    @Test
+    public void neighborOfUnknownColorIsTrainedAgain() throws Exception {
+        int colors = ByteBuffer.wrap(cached).getInt(COUNT_OFFSET);
+        //First neighbor of the first color is after its colors and its number of neighbors
+        int neighborOffset = COUNT_OFFSET + 4 + 4 * colors + 4;
+        corrupt(neighborOffset, colors);
+        assertTrainedAgain("neighbor id");
+    }
+
+    @Test
+    public void trailingBytesAreTrainedAgain() throws Exception {
+        byte[] longer = new byte[cached.length + 4];
+        System.arraycopy(cached, 0, longer, 0, cached.length);
+        Files.write(cacheFile.toPath(), longer);
+        assertTrainedAgain("trailing bytes");
+    }
+
+    private void corrupt(int offset, int value) throws IOException {
+        byte[] contents = cached.clone();
+        ByteBuffer.wrap(contents).putInt(offset, value);
+        Files.write(cacheFile.toPath(), contents);
+    }
+
+    /**
+     * The chain is the same as the trained one and the cache file is written again
+     *
+     * @param message message of a failure
+     */
+    private void assertTrainedAgain(String message) throws Exception {
+        MarkovChain chain = new MarkovChainCache(directory.getPath()).get(pallet, EXCLUDED);
+        assertEquals(message, trained.getColors(), chain.getColors());
+        assertArrayEquals(message, cached, Files.readAllBytes(cacheFile.toPath()));
+    }
+}
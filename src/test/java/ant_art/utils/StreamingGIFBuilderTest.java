@@ -0,0 +1,155 @@
+package ant_art.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Node;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Created By: Prashant Chaubey
+ * Created On: 17-05-2020 12:00
+ * Purpose: GIFs written by `ImageUtils.StreamingGIFBuilder` decoded again with `ImageIO`
+ **/
+public class StreamingGIFBuilderTest {
+    private static final List<Color> COLORS = Arrays.asList(Color.BLACK, new Color(0xC81E1E), new Color(0x1EC81E),
+            new Color(0x1E1EC8), new Color(0xE0C020));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void paletteFramesDecodeToTheSameImages() throws IOException {
+        GIFPalette palette = GIFPalette.create(COLORS, 1);
+        List<int[]> frames = new ArrayList<>();
+        File gif = writeFrames(palette, 3, frames);
+
+        List<int[]> decoded = decodeFrames(gif, 61, 43);
+        assertEquals(frames.size(), decoded.size());
+        for (int i = 0; i < frames.size(); i++) {
+            assertArrayEquals("frame:" + i, frames.get(i), decoded.get(i));
+        }
+    }
+
+    @Test
+    public void paletteOutputDoesNotDependOnThePoolSize() throws IOException {
+        GIFPalette palette = GIFPalette.create(COLORS, 1);
+        byte[] single = Files.readAllBytes(writeFrames(palette, 1, new ArrayList<>()).toPath());
+        byte[] pooled = Files.readAllBytes(writeFrames(palette, 4, new ArrayList<>()).toPath());
+        assertArrayEquals(single, pooled);
+    }
+
+    @Test
+    public void imageIOFramesDecode() throws IOException {
+        List<int[]> frames = new ArrayList<>();
+        File gif = writeFrames(null, 2, frames);
+
+        List<int[]> decoded = decodeFrames(gif, 61, 43);
+        assertEquals(frames.size(), decoded.size());
+        //Few colors are kept as they are by the quantisation of `ImageIO`
+        assertArrayEquals(frames.get(frames.size() - 1), decoded.get(decoded.size() - 1));
+    }
+
+    @Test
+    public void emptyGIFIsRemoved() throws IOException {
+        File gif = folder.newFile("empty.gif");
+        BufferedImage template = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        new ImageUtils.StreamingGIFBuilder(gif, template, GIFPalette.create(COLORS, 1), 100, true, 2).close();
+        assertFalse(gif.exists());
+    }
+
+    /**
+     * Write frames of random rectangles. Some frames don't change and some change a single pixel.
+     *
+     * @param palette  palette of the GIF or null to use `ImageIO`
+     * @param poolSize frame buffers of the builder
+     * @param frames   output RGB pixels of the frames which are written
+     * @return GIF file
+     * @throws IOException if not able to write the GIF
+     */
+    private File writeFrames(GIFPalette palette, int poolSize, List<int[]> frames) throws IOException {
+        int width = 61;
+        int height = 43;
+        Random random = new Random(9);
+        File gif = folder.newFile();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics graphics = image.getGraphics();
+        ImageUtils.StreamingGIFBuilder builder = new ImageUtils.StreamingGIFBuilder(gif, image, palette, 100, true,
+                poolSize);
+        for (int frame = 0; frame < 25; frame++) {
+            if (frame % 7 == 3) {
+                image.setRGB(random.nextInt(width), random.nextInt(height), COLORS.get(1).getRGB());
+            } else if (frame % 5 != 4) {
+                for (int k = 0; k < 4; k++) {
+                    graphics.setColor(COLORS.get(random.nextInt(COLORS.size())));
+                    graphics.fillRect(random.nextInt(width), random.nextInt(height), 1 + random.nextInt(20),
+                            1 + random.nextInt(20));
+                }
+            }
+            builder.addImage(image);
+            frames.add(image.getRGB(0, 0, width, height, null, 0, width));
+        }
+        builder.close();
+        graphics.dispose();
+        return gif;
+    }
+
+    /**
+     * Decode the frames of a GIF. Frames which only cover a part of the image are drawn over the previous frame.
+     *
+     * @param gif    GIF file
+     * @param width  width of the GIF
+     * @param height height of the GIF
+     * @return RGB pixels of every frame
+     * @throws IOException if not able to read the GIF
+     */
+    private static List<int[]> decodeFrames(File gif, int width, int height) throws IOException {
+        List<int[]> frames = new ArrayList<>();
+        ImageReader reader = ImageIO.getImageReadersBySuffix("gif").next();
+        try (ImageInputStream input = ImageIO.createImageInputStream(gif)) {
+            reader.setInput(input);
+            BufferedImage canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            int count = reader.getNumImages(true);
+            for (int i = 0; i < count; i++) {
+                BufferedImage frame = reader.read(i);
+                Point position = getPosition(reader.getImageMetadata(i));
+                Graphics graphics = canvas.getGraphics();
+                graphics.drawImage(frame, position.x, position.y, null);
+                graphics.dispose();
+                frames.add(canvas.getRGB(0, 0, width, height, null, 0, width));
+            }
+        } finally {
+            reader.dispose();
+        }
+        return frames;
+    }
+
+    private static Point getPosition(IIOMetadata metadata) {
+        Node root = metadata.getAsTree(metadata.getNativeMetadataFormatName());
+        for (Node node = root.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeName().equals("ImageDescriptor")) {
+                return new Point(
+                        Integer.parseInt(node.getAttributes().getNamedItem("imageLeftPosition").getNodeValue()),
+                        Integer.parseInt(node.getAttributes().getNamedItem("imageTopPosition").getNodeValue()));
+            }
+        }
+        return new Point(0, 0);
+    }
+}